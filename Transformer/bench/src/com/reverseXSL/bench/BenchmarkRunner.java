@@ -0,0 +1,265 @@
+package com.reverseXSL.bench;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Minimal micro-benchmark harness, in the manner of JMH but with no dependency beyond the JRE.
+ * <p>
+ * Every benchmark {@link BenchmarkRunner.Case} is run in a number of warm-up iterations, which let the JIT compiler
+ * settle, and then in measured iterations. Each iteration calls the case repeatedly for a fixed time, and yields
+ * an average time per operation. The score of a case is the mean over the measured iterations, with the standard
+ * deviation as error and the best iteration as minimum.
+ * </p><p>
+ * Scores are written as CSV, one line per case, and can be compared with a former CSV result taken as baseline,
+ * such that performance regressions can be caught by a build.
+ * </p>
+ *
+ * @author bernardH
+ */
+public class BenchmarkRunner {
+
+	/** header line of CSV results */
+	public static final String CSV_HEADER = "suite,input,bytes,iterations,ops,ns_per_op,ns_per_op_error,ns_per_op_min,mb_per_s";
+
+	/** protects results from dead-code elimination */
+	private static volatile int sink;
+
+	private int warmupIterations = 3;
+	private int iterations = 5;
+	private long iterationNanos = 1000000000L;
+	private Pattern filter = null;
+
+	/**
+	 * A benchmarked operation.
+	 */
+	public static abstract class Case {
+		final String suite;
+		final String input;
+		final long bytes;
+
+		/**
+		 * @param suite	name of the benchmarked operation, e.g. 'parser.parse.string'
+		 * @param input	name of the input data, e.g. 'MT101'
+		 * @param bytes	size of the input processed by one operation, used for the throughput, or 0 if not relevant
+		 */
+		protected Case(String suite, String input, long bytes) {
+			this.suite = suite;
+			this.input = input;
+			this.bytes = bytes;
+		}
+
+		/**
+		 * Executes the operation once.
+		 * @return the result of the operation, which is consumed such that the JIT cannot optimize it away
+		 * @throws Exception	aborts the case
+		 */
+		public abstract Object run() throws Exception;
+
+		/**
+		 * @return the case key, as 'suite/input'
+		 */
+		public String getName() {
+			return suite + "/" + input;
+		}
+	}
+
+	/**
+	 * The measured performance of one case.
+	 */
+	public static final class Score {
+		public final String suite;
+		public final String input;
+		public final long bytes;
+		public final int iterations;
+		public final long ops;
+		public final double nsPerOp;
+		public final double error;
+		public final double min;
+
+		Score(Case c, int iterations, long ops, double nsPerOp, double error, double min) {
+			this.suite = c.suite;
+			this.input = c.input;
+			this.bytes = c.bytes;
+			this.iterations = iterations;
+			this.ops = ops;
+			this.nsPerOp = nsPerOp;
+			this.error = error;
+			this.min = min;
+		}
+
+		/**
+		 * @return throughput in megabytes per second, or 0 when the case has no input size
+		 */
+		public double getMBPerSecond() {
+			return bytes > 0 && nsPerOp > 0 ? bytes * 1e3 / nsPerOp : 0;
+		}
+
+		/**
+		 * @return the score as a CSV line, matching {@link BenchmarkRunner#CSV_HEADER}
+		 */
+		public String toCSV() {
+			DecimalFormat df = new DecimalFormat("0.0", new DecimalFormatSymbols(Locale.US));
+			DecimalFormat tf = new DecimalFormat("0.000", new DecimalFormatSymbols(Locale.US));
+			return suite + "," + input + "," + bytes + "," + iterations + "," + ops + "," + df.format(nsPerOp) + ","
+					+ df.format(error) + "," + df.format(min) + "," + tf.format(getMBPerSecond());
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#toString()
+		 */
+		public String toString() {
+			DecimalFormat df = new DecimalFormat("0.000");
+			return suite + "/" + input + ": " + df.format(nsPerOp / 1e3) + " +/- " + df.format(error / 1e3) + " us/op"
+					+ (bytes > 0 ? " (" + new DecimalFormat("0.0").format(getMBPerSecond()) + " MB/s)" : "");
+		}
+	}
+
+	/**
+	 * @param warmup	count of warm-up iterations, not measured
+	 * @param measured	count of measured iterations, at least one
+	 * @param millis	duration of every iteration
+	 */
+	public void setIterations(int warmup, int measured, long millis) {
+		warmupIterations = Math.max(0, warmup);
+		iterations = Math.max(1, measured);
+		iterationNanos = Math.max(1, millis) * 1000000L;
+	}
+
+	/**
+	 * @param regex	only cases whose key 'suite/input' contains a match are run, or null to run all cases
+	 */
+	public void setFilter(String regex) {
+		filter = regex == null ? null : Pattern.compile(regex);
+	}
+
+	/**
+	 * Runs cases in sequence, and reports progress on the given log.
+	 *
+	 * @param cases	the cases to run
+	 * @param log	receives a line per case, or null
+	 * @return the scores of the cases run
+	 * @throws Exception	as thrown by a case
+	 */
+	public List<Score> run(List<Case> cases, PrintWriter log) throws Exception {
+		List<Score> scores = new ArrayList<Score>();
+		for (Iterator<Case> it = cases.iterator(); it.hasNext();) {
+			Case c = it.next();
+			if (filter != null && !filter.matcher(c.getName()).find()) continue;
+			Score s = measure(c);
+			scores.add(s);
+			if (log != null) {
+				log.println(s.toString());
+				log.flush();
+			}
+		}
+		return scores;
+	}
+
+	private Score measure(Case c) throws Exception {
+		double[] nsPerOp = new double[iterations];
+		long ops = 0;
+		for (int i = -warmupIterations; i < iterations; i++) {
+			long n = 0;
+			long t0 = System.nanoTime();
+			long t;
+			do {
+				consume(c.run());
+				n++;
+			} while ((t = System.nanoTime() - t0) < iterationNanos);
+			if (i >= 0) {
+				nsPerOp[i] = (double) t / n;
+				ops += n;
+			}
+		}
+		double mean = 0, min = Double.MAX_VALUE;
+		for (int i = 0; i < iterations; i++) {
+			mean += nsPerOp[i];
+			min = Math.min(min, nsPerOp[i]);
+		}
+		mean /= iterations;
+		double var = 0;
+		for (int i = 0; i < iterations; i++)
+			var += (nsPerOp[i] - mean) * (nsPerOp[i] - mean);
+		double error = iterations > 1 ? Math.sqrt(var / (iterations - 1)) : 0;
+		return new Score(c, iterations, ops, mean, error, min);
+	}
+
+	private static void consume(Object o) {
+		sink ^= o == null ? 0 : System.identityHashCode(o);
+	}
+
+	/**
+	 * Writes scores as CSV, with a header line.
+	 */
+	public static void writeCSV(List<Score> scores, PrintWriter w) {
+		w.println(CSV_HEADER);
+		for (Iterator<Score> it = scores.iterator(); it.hasNext();)
+			w.println(it.next().toCSV());
+		w.flush();
+	}
+
+	/**
+	 * Reads the mean time per operation of each case from a former CSV result.
+	 *
+	 * @param fileName	the CSV file
+	 * @return a map of 'suite/input' to nanoseconds per operation
+	 * @throws IOException	if the file cannot be read or is not a CSV result
+	 */
+	public static Map<String, Double> readBaseline(String fileName) throws IOException {
+		Map<String, Double> baseline = new HashMap<String, Double>();
+		BufferedReader r = new BufferedReader(new FileReader(fileName));
+		try {
+			String line = r.readLine();
+			if (line == null || !line.startsWith("suite,input,")) throw new IOException("Not a benchmark result file: " + fileName);
+			while ((line = r.readLine()) != null) {
+				String[] f = line.split(",");
+				if (f.length < 6) continue;
+				try {
+					baseline.put(f[0] + "/" + f[1], Double.valueOf(f[5]));
+				} catch (NumberFormatException e) {
+					throw new IOException("Invalid benchmark result line '" + line + "' in " + fileName);
+				}
+			}
+		} finally {
+			r.close();
+		}
+		return baseline;
+	}
+
+	/**
+	 * Compares scores with a baseline. A case regresses when its mean time exceeds the baseline by more than the
+	 * tolerance, and by more than its own error.
+	 *
+	 * @param scores	current scores
+	 * @param baseline	former times per operation, as from {@link #readBaseline(String)}
+	 * @param tolerance	relative tolerance, e.g. 0.1 for 10%
+	 * @return a description of every regression, empty if none
+	 */
+	public static List<String> compare(List<Score> scores, Map<String, Double> baseline, double tolerance) {
+		List<String> regressions = new ArrayList<String>();
+		DecimalFormat df = new DecimalFormat("0.0");
+		for (Iterator<Score> it = scores.iterator(); it.hasNext();) {
+			Score s = it.next();
+			Double base = baseline.get(s.suite + "/" + s.input);
+			if (base == null) continue;
+			double b = base.doubleValue();
+			if (s.nsPerOp > b * (1 + tolerance) && s.nsPerOp - s.error > b)
+				regressions.add(s.suite + "/" + s.input + ": " + df.format(s.nsPerOp) + " ns/op against " + df.format(b)
+						+ " ns/op in baseline (+" + df.format((s.nsPerOp / b - 1) * 100) + "%)");
+		}
+		return regressions;
+	}
+
+}
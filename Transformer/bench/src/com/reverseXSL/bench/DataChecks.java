@@ -0,0 +1,412 @@
+package com.reverseXSL.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.Random;
+
+import com.reverseXSL.message.ConvertingInputStream;
+import com.reverseXSL.message.ConvertingReader;
+import com.reverseXSL.message.Data;
+
+/**
+ * Regression checks of the {@link Data} conversions and format identification.
+ *
+ * @author bernardH
+ */
+class DataChecks {
+
+	/**
+	 * {@link Data#getConvertedData(int)} filters bytes, decodes and converts characters in a single pass, chunk by
+	 * chunk, in place of the former successive passes over the whole data: both must yield the same characters.
+	 * <p>
+	 * Inputs are random byte sequences over an alphabet biased towards what the conversions act upon: line
+	 * terminators, spaces and tabs, control bytes, PSCRM remark continuations, multibyte and malformed UTF-8
+	 * sequences. Some are longer than a chunk. Each one is converted with random conversion flags in a random
+	 * charset, from a byte array, from a direct buffer, and through a {@link ConvertingReader} fed a few bytes at a
+	 * time; the three must match the former algorithm, kept below as a reference.
+	 * </p><p>
+	 * Each input is also read through a {@link ConvertingInputStream} fed the same way, and itself read by random
+	 * amounts, single bytes included. With byte-oriented conversions only, its bytes are merely filtered and must
+	 * decode into the reference characters; else they must be the reference characters encoded back into the charset.
+	 * </p>
+	 */
+	static class Conversions extends RegressionChecks.Check {
+
+		private static final String[] CHARSETS = { "UTF-8", "ISO-8859-1", "US-ASCII", "UTF-16BE" };
+
+		//the size of the chunks converted at once by Data
+		private static final int CHUNK = 8192;
+
+		//all flags, from _ToCRLF to _UnfoldPSCRMRemarks
+		private static final int ALL_FLAGS = 2047;
+
+		//the byte-oriented flags, applied without decoding by a ConvertingInputStream when alone
+		private static final int BYTE_FLAGS = Data._NoCtrlBytes | Data._NoCRLFBytes | Data._NoBlankLine;
+
+		private static final String[] PIECES = {
+			"\r", "\n", "\r\n", "\r\r\n", " ", "\t", "  \t ", "A", "b", "z9", "/", ".", "-",
+			"\n.RN/", "\r\n.RN/", " .R/", " .R/CKIN HK1 1BAG", "\u0001", "\u001A", "\u0000", "\u007F",
+		};
+
+		private static final byte[][] BYTES = {
+			{ (byte) 0xC3, (byte) 0xA9 }, { (byte) 0xE2, (byte) 0x82, (byte) 0xAC }, { (byte) 0xF0, (byte) 0x9F, (byte) 0x98, (byte) 0x80 },
+			{ (byte) 0xC3 }, { (byte) 0x80 }, { (byte) 0xFF }, { (byte) 0xE9 },
+		};
+
+		Conversions() {
+			super("data.conversions");
+		}
+
+		public void run() throws Exception {
+			Random rnd = new Random(seed);
+			for (int n = 0; n < count; n++) {
+				byte[] ba = input(rnd, rnd.nextInt(50) == 0 ? CHUNK + rnd.nextInt(3 * CHUNK) : rnd.nextInt(200));
+				int conversions = rnd.nextInt(4) == 0 ? rnd.nextInt(ALL_FLAGS + 1) & BYTE_FLAGS : rnd.nextInt(ALL_FLAGS + 1);
+				Charset cs = Charset.forName(CHARSETS[rnd.nextInt(CHARSETS.length)]);
+				String expected = formerConvertedData(ByteBuffer.wrap(ba), cs, conversions).toString();
+				String what = Data.namedTokens(conversions) + " in " + cs + " of " + ba.length + " bytes, input " + n;
+
+				verifyEquals(expected, new Data(ba, cs).getConvertedData(conversions).toString(), what + " from an array");
+				ByteBuffer direct = ByteBuffer.allocateDirect(ba.length);
+				direct.put(ba).flip();
+				verifyEquals(expected, new Data(direct, cs).getConvertedData(conversions).toString(), what + " from a direct buffer");
+				verifyEquals(expected, read(new ConvertingReader(trickle(ba, rnd), cs, conversions)), what + " from a reader");
+
+				byte[] converted = read(new ConvertingInputStream(trickle(ba, rnd), cs, conversions), rnd);
+				if ((conversions & ~BYTE_FLAGS) == 0)
+					verifyEquals(expected, cs.decode(ByteBuffer.wrap(converted)).toString(), what + " from an input stream");
+				else {
+					byte[] encoded = encode(expected, cs);
+					if (!Arrays.equals(encoded, converted))
+						verifyEquals(toString(encoded), toString(converted), what + " from an input stream");
+				}
+			}
+		}
+
+		private static byte[] input(Random rnd, int length) throws IOException {
+			ByteArrayOutputStream out = new ByteArrayOutputStream(length + 32);
+			while (out.size() < length) {
+				if (rnd.nextInt(8) == 0) out.write(BYTES[rnd.nextInt(BYTES.length)]);
+				else out.write(PIECES[rnd.nextInt(PIECES.length)].getBytes("ISO-8859-1"));
+			}
+			return out.toByteArray();
+		}
+
+		//a stream that returns at most a few bytes per read
+		private static InputStream trickle(final byte[] ba, final Random rnd) {
+			return new InputStream() {
+				int pos = 0;
+
+				public int read() {
+					return pos < ba.length ? ba[pos++] & 0xFF : -1;
+				}
+
+				public int read(byte[] b, int off, int len) {
+					if (pos >= ba.length) return -1;
+					len = Math.min(Math.min(len, 1 + rnd.nextInt(7)), ba.length - pos);
+					System.arraycopy(ba, pos, b, off, len);
+					pos += len;
+					return len;
+				}
+			};
+		}
+
+		private static String read(Reader r) throws IOException {
+			StringBuffer sb = new StringBuffer();
+			char[] ca = new char[100];
+			int n;
+			while ((n = r.read(ca)) >= 0) sb.append(ca, 0, n);
+			return sb.toString();
+		}
+
+		//reads the stream by random amounts
+		private static byte[] read(InputStream in, Random rnd) throws IOException {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] ba = new byte[100];
+			while (true) {
+				if (rnd.nextInt(4) == 0) {
+					int b = in.read();
+					if (b < 0) break;
+					out.write(b);
+				} else {
+					int n = in.read(ba, 0, 1 + rnd.nextInt(ba.length));
+					if (n < 0) break;
+					out.write(ba, 0, n);
+				}
+			}
+			return out.toByteArray();
+		}
+
+		//encodes as a ConvertingInputStream does, replacing what cannot be encoded
+		private static byte[] encode(String s, Charset cs) throws IOException {
+			ByteBuffer bb = cs.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE).encode(CharBuffer.wrap(s));
+			byte[] ba = new byte[bb.remaining()];
+			bb.get(ba);
+			return ba;
+		}
+
+		//a readable rendering of bytes, for the failure messages
+		private static String toString(byte[] ba) {
+			StringBuffer sb = new StringBuffer(ba.length * 3);
+			for (int i = 0; i < ba.length; i++) sb.append(Integer.toHexString(ba[i] & 0xFF)).append(' ');
+			return sb.toString();
+		}
+
+		/*
+		 * The former Data.getConvertedData(int), verbatim but for the signature: a byte-oriented pass into a copy of the
+		 * data, decoding as a whole, then a character-oriented pass.
+		 */
+		static StringBuffer formerConvertedData(ByteBuffer buffer, Charset charset, int conversions) {
+
+			boolean CRLFconv = ((conversions % 2) == 1);
+			boolean LFconv = ((conversions % 4) >= 2);
+			boolean oneNewLineAtEnd = ((conversions % 8) >=4);
+			boolean UPPERconv = (conversions % 16) >= 8;
+			boolean sevenBitsConv = (conversions % 32) >= 16;
+			boolean trimNBSP = (conversions % 64) >= 32;
+			boolean no_ctrl_bytes = (conversions % 128) >= 64; //byte-oriented
+			boolean no_crlf_bytes = (conversions % 256) >= 128; //byte-oriented
+			boolean no_blank_line = (conversions % 512) >= 256; //byte-oriented
+			boolean noCtrlChars = (conversions % 1024) >= 512;
+			boolean unfoldPSCRMRemarks = (conversions % 2048) >= 1024;
+
+	        // We start with BYTE-wise operations
+			// ==================================
+			buffer.rewind();
+			byte[] ba = buffer.array(); //which can be longer than the actual buffer limit!!!
+			ByteBuffer bb = ByteBuffer.allocate( buffer.limit() );
+	        boolean is_empty = true; //at the beginning of every new line (i.e. after a LF)
+	        for (int i = 0; i < buffer.limit(); i++) {
+	            // line terminators
+	            if (ba[i] == 0x0D || ba[i] == 0x0A) {
+	                if (no_crlf_bytes || no_blank_line && is_empty) {
+	                    continue;
+	                } else {
+	                    bb.put( ba[i] );
+	                    if (ba[i] == 0x0A) {
+	                        is_empty = true;
+	                    }
+	                    continue;
+	                }
+	            }
+	            // CTRL chars but tab
+	            if (ba[i] >= 0 && ba[i] < ' ' && ba[i] != '\t') {
+	                if (no_ctrl_bytes) {
+	                    continue;
+	                } else {
+	                    bb.put( ba[i] );
+	                    is_empty = false;
+	                    continue;
+	                }
+	            }
+	            // printables
+	            if (ba[i] > ' ' || ba[i] < 0) {
+	                bb.put( ba[i] );
+	                is_empty = false;
+	                continue;
+	            }
+	            // space chars and tabs
+	            if (ba[i] == ' ' || ba[i] == '\t') {
+	                // fix is_empty if there's a printable ahead (up to LF) to prevent suppressing leading space chars
+	                int j = i;
+	            	for (; is_empty && j < buffer.limit(); j++) {
+	                    if (ba[j] > ' ' || ba[j] < 0) {
+	                    	//we have printables
+	                        is_empty = false;
+	                    }
+	                    if (!no_ctrl_bytes && ba[i] >= 0 && ba[i] < ' ' && ba[i] != '\t') {
+	                    	//We have CTRL bytes to preserve
+	                    	is_empty = false;
+	                    }
+	                    if (ba[j] == 0x0A) {
+	                        break;
+	                    }
+	                }
+	            	//at this point, if is_empty is still true, j points on the LF of an empty line, else to the limit
+	                if (no_blank_line && is_empty) {
+	                	i=j;
+	                    continue;
+	                }
+	                bb.put( ba[i] );
+	            }
+	        }
+	        bb.flip();
+
+	        //at this point we have a modified ByteBuffer bb with the buffer limit telling its actual size
+        
+	        // we switch now to CHARACTER-oriented operations
+	        // ==============================================
+		
+			StringBuffer rawsb = new StringBuffer(charset.decode(bb).toString());
+			StringBuffer sb = new StringBuffer((int)(bb.limit()*1.1));
+		
+			if ((conversions & ~Data._NoBlankLine & ~Data._NoCRLFBytes & ~Data._NoCtrlBytes)==0 ) return rawsb;
+		
+			char c,x;
+			boolean foundCR = false;
+			boolean trimIt = trimNBSP;
+		
+			for (int i=0; i<rawsb.length();i++) {
+				c = rawsb.charAt(i);
+			
+				if (trimIt && (c=='\t' || c==' ')) continue;
+			
+				if (c=='\r' || c=='\n') {
+					// > TRIM handling: 
+					//reset TRIM state so that next line will be trimmed as needed
+					trimIt = trimNBSP; 
+					//backtrack all trailing space and tab chars
+					int j = sb.length()-1;
+					while(trimIt && j>=0) {
+						x = sb.charAt(j);
+						if (x!='\t' && x!=' ') break;
+						j--;
+					}
+					//truncate NBSP chars at end of line
+					if ((j+1)<sb.length()) sb.delete(j+1, sb.length());
+				}
+			
+				if (c=='\r')
+					if (CRLFconv||LFconv) continue;
+					else {
+						foundCR = true;
+						sb.append('\r');
+						continue;
+					}
+
+				if (c=='\n')
+					// see if we have to unfold a PSCRM remark extension, i.e. '[<cr>]<lf>.RN/<string remark continuation>'
+					if (unfoldPSCRMRemarks && (i+5)<rawsb.length() &&
+							rawsb.charAt(i+1)=='.' && rawsb.charAt(i+2)=='R' && rawsb.charAt(i+3)=='N' && rawsb.charAt(i+4)=='/' ) {
+						// replace '[<cr>]<lf>.RN/' by a single space char
+						// backtrack all <cr>'s
+						int j = sb.length()-1;
+						while(foundCR && j>=0) {
+							x = sb.charAt(j);
+							if (x!='\r') break;
+							j--;
+						} // j points on the last non-<cr> char in sb
+						//truncate <CR> chars at end of output buffer
+						if ((j+1)<sb.length()) sb.delete(j+1, sb.length());
+						// append a single space char
+						sb.append(' ');
+						// skip the remark extension tag
+						i = i+4;
+						// Now re-insert the new line in front of the previous ' .R/x ' element:
+						j = sb.length()-5;
+						// look max 60 chars backward to find a ' .R/' sequence
+						while(j>=0 && sb.length()-j<=60) {
+							if (sb.charAt(j)==' ' && sb.charAt(j+1)=='.' && sb.charAt(j+2)=='R' && sb.charAt(j+3)=='/' ) {
+								// previous remark element found, insert [<cr>]<lf>
+								sb.setCharAt(j, '\n');
+								if (CRLFconv || (!LFconv && foundCR) ) sb.insert(j, '\r');
+								// remove space chars before the new [<cr>]<lf> sequence
+								for (int k=j-1; k>0 && sb.charAt(k)==' ';k--) sb.deleteCharAt(k);
+								break;
+							}  
+							j--;
+						} 
+						continue;
+					} else
+					// other end of line normalising
+					if (CRLFconv) {sb.append("\r\n"); continue; }
+					else if (LFconv) {sb.append(c); continue; }
+					// no normalising: just echo the input to the output
+					else { sb.append(c); continue; }
+			
+				trimIt = false;
+			
+				if (UPPERconv) c = Character.toUpperCase(c);
+				if (sevenBitsConv && (c>=127)) { sb.append('?'); continue;}
+				if ((noCtrlChars||sevenBitsConv) && (c=='\t')) { sb.append(c); continue;}
+				if ((noCtrlChars||sevenBitsConv) && (c<32)) continue;
+				sb.append(c);
+			}
+		
+			if (oneNewLineAtEnd) {
+				int i = sb.length()-1;
+				int lastLFindex = -1;
+				//trace back to the last printable
+				while(i>=0) {
+					c = sb.charAt(i);
+					if (c=='\n') lastLFindex=i;
+					if (c>32) break;
+					i--;
+				}
+				if (lastLFindex<0) { 
+					//no terminating LF found, add one
+					//any set of trailing empty lines to delete first?
+					if ((i+1)<sb.length()) sb.delete(i+1, sb.length());
+					if (CRLFconv||foundCR) sb.append("\r\n");
+					else  sb.append('\n'); 
+				} else {
+					//keep up to the last LF found
+					//anything left to delete?
+					if ((lastLFindex+1)<sb.length()) sb.delete(lastLFindex+1, sb.length());
+				}
+			}
+			return sb;
+		}
+	}
+
+
+	/**
+	 * {@link Data#sniff(int)} decodes the leading bytes once for the mapping selection and the format identification:
+	 * the identified format must be that of {@link Data#identify()}, which decodes the first 100 bytes only, whatever
+	 * the sniffed range and the charset.
+	 * <p>
+	 * Inputs start with the head of a known format, followed by random pieces among which multibyte characters,
+	 * such that the first 100 bytes and the first 100 characters hold different text.
+	 * </p>
+	 */
+	static class Identification extends RegressionChecks.Check {
+
+		private static final String[] CHARSETS = { "UTF-8", "ISO-8859-1", "UTF-16BE" };
+
+		private static final int[] RANGES = { 0, 5, 60, 99, 100, 101, 150, 1500 };
+
+		private static final String[] HEADS = {
+			"", "h1;h2;", "'a','b',", "a\tb\tc\t", "UNB+UNOA:1+", "UNA:+.? 'UNB+", "ISA*00*          *00*", "{1:F01BANK}",
+			"STX=ANA:1+", "<?xml version=\"1.0\"?> <root>", "<a:b x=\"1\">", "ZCZC 123\nQK BRUFMSN\n", "QD AMSFMKL\n",
+		};
+
+		private static final String[] PIECES = {
+			"a", "Z9", ";", ",", "\t", "'", " ", "\r\n", "\n", ">", "\u00E9", "\u20AC", "\u00E9\u00E9\u00E9\u00E9\u00E9",
+		};
+
+		Identification() {
+			super("data.identification");
+		}
+
+		public void run() throws Exception {
+			StringBuffer sb = new StringBuffer("h1;h2;");
+			for (int i = 0; i < 60; i++) sb.append('\u00E9');
+			verifySame(sb.append(";tail,").toString(), Charset.forName("UTF-8"), 1500);
+			Random rnd = new Random(seed);
+			for (int n = 0; n < count; n++) {
+				sb.setLength(0);
+				sb.append(HEADS[rnd.nextInt(HEADS.length)]);
+				for (int len = rnd.nextInt(200); sb.length() < len;) sb.append(PIECES[rnd.nextInt(PIECES.length)]);
+				Charset cs = Charset.forName(CHARSETS[rnd.nextInt(CHARSETS.length)]);
+				verifySame(sb.toString(), cs, RANGES[rnd.nextInt(RANGES.length)]);
+			}
+		}
+
+		private static void verifySame(String msg, Charset cs, int range) throws Exception {
+			byte[] ba = msg.getBytes(cs.name());
+			Data sniffed = new Data(ba, cs);
+			sniffed.sniff(range);
+			verifyEquals(new Data(ba, cs).identify(), sniffed.getFormat(), "format after sniff(" + range + ") in " + cs + " of ["
+				+ msg + "]");
+		}
+	}
+
+}
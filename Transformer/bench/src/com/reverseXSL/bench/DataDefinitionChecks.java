@@ -0,0 +1,91 @@
+package com.reverseXSL.bench;
+
+import java.util.Random;
+
+import com.reverseXSL.parser.DataCharsets;
+
+/**
+ * Regression checks of the data element definitions.
+ *
+ * @author bernardH
+ */
+class DataDefinitionChecks {
+
+	/**
+	 * The built-in character set validations check each character against a lookup table, in place of the regular
+	 * expressions formerly matched: both must accept exactly the same values, as strings and as other character
+	 * sequences.
+	 * <p>
+	 * Values are random strings over an alphabet that holds every US-ASCII character plus characters beyond, among
+	 * which look-alikes of letters and digits; short strings of the allowed characters only are drawn as often.
+	 * </p>
+	 */
+	static class Charsets extends RegressionChecks.Check {
+
+		//{DEF keyword, former validation regex, characters it allows}
+		private static final String[][] CHARSETS = {
+			{ "UPALPHANUM", "[A-Z0-9]*", "ABCXYZ0189" },
+			{ "UPALPHA", "[A-Z]*", "ABCXYZ" },
+			{ "ALPHANUM", "[A-Za-z0-9]*", "ABYZabyz0189" },
+			{ "ALPHA", "[A-Za-z]*", "ABYZabyz" },
+			{ "IATA", "[A-Z0-9 .-]*", "ABYZ09 .-" },
+			{ "DIGIT", "[0-9]*", "0123456789" },
+			{ "NUMERIC", "[0-9,. +-]*", "0189,. +-" },
+			//the former ASCII validation was a loop over the characters, not its ".*" pattern
+			{ "ASCII", "[\\x20-\\x7E]*", " !09AZaz~" },
+		};
+
+		//beyond US-ASCII: Latin-1 letters, a no-break space, a fullwidth A, an Arabic-Indic digit, a Kelvin sign, a dotless i
+		private static final String BEYOND = "\u00C9\u00E9\u00A0\u00FF\uFF21\u0661\u212A\u0131\uFFFF";
+
+		Charsets() {
+			super("def.charsets");
+		}
+
+		public void run() throws Exception {
+			StringBuffer any = new StringBuffer();
+			for (char c = 0; c < 128; c++) any.append(c);
+			any.append(BEYOND);
+			Random rnd = new Random(seed);
+			for (int i = 0; i < CHARSETS.length; i++) {
+				String keyword = CHARSETS[i][0], regex = CHARSETS[i][1], allowed = CHARSETS[i][2];
+				DataCharsets d = new DataCharsets(
+					"D \"^(.*)$\" Value M 1 1 ACC 1 R W \"Value\" " + keyword);
+				if (!keyword.equals("ASCII"))
+					verifyEquals(regex, d.getValidationPattern(), keyword + " validation pattern, as reported in errors");
+				//every single character
+				for (int c = 0; c < any.length(); c++)
+					verifySame(d, keyword, regex, any.substring(c, c + 1));
+				verifySame(d, keyword, regex, "");
+				for (int n = 0; n < count; n++) {
+					String alphabet = rnd.nextBoolean() ? allowed : any.toString();
+					StringBuffer value = new StringBuffer();
+					for (int len = rnd.nextInt(12); len > 0; len--)
+						value.append(alphabet.charAt(rnd.nextInt(alphabet.length())));
+					//an occasional intruder
+					if (rnd.nextInt(4) == 0 && value.length() > 0)
+						value.setCharAt(rnd.nextInt(value.length()), any.charAt(rnd.nextInt(any.length())));
+					verifySame(d, keyword, regex, value.toString());
+				}
+			}
+		}
+
+		private static void verifySame(DataCharsets d, String keyword, String regex, String value) {
+			boolean expected = value.matches(regex);
+			verify(d.check(value) == expected, keyword + " " + (expected ? "rejects" : "accepts") + " [" + escape(value) + "]");
+			verify(d.check(new StringBuffer(value)) == expected, keyword + " " + (expected ? "rejects" : "accepts")
+				+ " [" + escape(value) + "] as a StringBuffer");
+		}
+
+		private static String escape(String s) {
+			StringBuffer sb = new StringBuffer();
+			for (int i = 0; i < s.length(); i++) {
+				char c = s.charAt(i);
+				if (c < 0x20 || c > 0x7E) sb.append("\\x{").append(Integer.toHexString(c)).append('}');
+				else sb.append(c);
+			}
+			return sb.toString();
+		}
+	}
+
+}
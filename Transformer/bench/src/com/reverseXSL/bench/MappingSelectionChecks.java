@@ -0,0 +1,95 @@
+package com.reverseXSL.bench;
+
+import java.io.StringReader;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import com.reverseXSL.transform.MappingSelection;
+
+/**
+ * Regression checks of the {@link MappingSelection}.
+ *
+ * @author bernardH
+ */
+class MappingSelectionChecks {
+
+	/**
+	 * The literal that a selection pattern necessarily contains is used as a pre-filter of message chunks: an entry
+	 * must be selected by every chunk in which its pattern is found, as told by {@link Pattern#matcher(CharSequence)}
+	 * and find().
+	 * <p>
+	 * Patterns are random sequences of fragments, each with a text that it matches, such that the concatenated texts
+	 * make a chunk in which the pattern is found. Fragments cover literals, quantifiers, groups, classes, and the
+	 * escape sequences with arguments.
+	 * </p>
+	 */
+	static class Prefilter extends RegressionChecks.Check {
+
+		//{pattern, a chunk in which it is found}
+		private static final String[][] CASES = {
+			{ "\\x41BC", "xABCx" },
+			{ "\\x{41}BC", "xABCx" },
+			{ "\\u0041BC", "xABCx" },
+			{ "\\0101BC", "xABCx" },
+			{ "\\07BC", "x\u0007BCx" },
+			{ "\\cAXY", "x\u0001XYx" },
+			{ "\\pLXY", "xaXYx" },
+			{ "\\p{Lu}XY", "xAXYx" },
+			{ "(?<n>A)\\k<n>Z", "xAAZx" },
+			{ "(A)\\1Z", "xAAZx" },
+			{ "(A)\\12Z", "xAA2Zx" },
+			{ "(?m)^FWB/\\d", "ZCZC\nFWB/16\n" },
+			{ "AM++B", "xAMMBx" },
+		};
+
+		//{pattern fragment, a text matched by the fragment}, a % standing for a group name unique within the pattern
+		private static final String[][] FRAGMENTS = {
+			{ "A", "A" }, { "BC", "BC" }, { "9", "9" }, { "/", "/" }, { " ", " " }, { ":", ":" },
+			{ "\\.", "." }, { "\\+", "+" }, { "\\{", "{" }, { "\\\\", "\\" }, { "\\<", "<" },
+			{ "\\x41", "A" }, { "\\x{42}", "B" }, { "\\u0043", "C" }, { "\\0101", "A" }, { "\\0141", "a" },
+			{ "\\07", "\u0007" }, { "\\0477", "'7" }, { "\\cA", "\u0001" }, { "\\cZ", "\u001A" },
+			{ "\\pL", "x" }, { "\\p{Lu}", "Q" }, { "\\PL", "5" }, { "\\P{Digit}", "k" }, { "\\p{IsAlphabetic}", "m" },
+			{ "\\d", "7" }, { "\\w", "w" }, { "\\s", " " }, { "\\t", "\t" }, { "\\n", "\n" },
+			{ "(?<g%>AB)\\k<g%>", "ABAB" }, { "(?:DE)", "DE" }, { "(F|G)", "G" },
+			{ "[A-C]", "B" }, { "[\\]x]", "]" }, { "[^a]", "b" }, { "[a[b]]", "b" },
+			{ "H?", "" }, { "I*", "II" }, { "J{2}", "JJ" }, { "K+", "K" }, { "L{1,2}?", "L" },
+			{ ".", "q" }, { "(?i:m)", "M" }, { "\\Qa.b\\E", "a.b" }, { "(?=N)N", "N" }, { "(?!Q)R", "R" },
+		};
+
+		private static final String NOISE = "AZaz09 .:+/\n";
+
+		Prefilter() {
+			super("mapping.prefilter");
+		}
+
+		public void run() throws Exception {
+			for (int i = 0; i < CASES.length; i++)
+				verifySelected(CASES[i][0], CASES[i][1]);
+			Random rnd = new Random(seed);
+			for (int n = 0; n < count; n++) {
+				StringBuffer regex = new StringBuffer(), chunk = new StringBuffer();
+				noise(rnd, chunk);
+				int fragments = 1 + rnd.nextInt(6);
+				for (int f = 0; f < fragments; f++) {
+					String[] fragment = FRAGMENTS[rnd.nextInt(FRAGMENTS.length)];
+					regex.append(fragment[0].replaceAll("%", Integer.toString(f)));
+					chunk.append(fragment[1]);
+				}
+				noise(rnd, chunk);
+				verifySelected(regex.toString(), chunk.toString());
+			}
+		}
+
+		private static void noise(Random rnd, StringBuffer sb) {
+			for (int i = rnd.nextInt(4); i > 0; i--) sb.append(NOISE.charAt(rnd.nextInt(NOISE.length())));
+		}
+
+		//the pattern is found in the chunk, hence the entry of the pattern shall be selected
+		private static void verifySelected(String regex, String chunk) throws Exception {
+			verify(Pattern.compile(regex).matcher(chunk).find(), "pattern /" + regex + "/ not found in [" + chunk + "]");
+			MappingSelection table = new MappingSelection(new StringReader("`" + regex + "`\n\tName = \"check\"\n"));
+			verify(table.matchEntry(chunk) != null, "pattern /" + regex + "/ found in [" + chunk + "] but not selected");
+		}
+	}
+
+}
@@ -0,0 +1,100 @@
+package com.reverseXSL.bench;
+
+import java.io.LineNumberReader;
+import java.io.StringReader;
+
+import com.reverseXSL.parser.Definition;
+import com.reverseXSL.parser.Parser;
+import com.reverseXSL.parser.ParserException;
+
+/**
+ * Regression checks of the {@link Parser}.
+ *
+ * @author bernardH
+ */
+class ParserChecks {
+
+	/**
+	 * A list cut on new lines: a header line, lines of ;-separated items, and a trailer line.
+	 */
+	private static final String LINES_DEF =
+		"MSG \"^HDR\" LIST M 1 1 ACC 1 R F \"List\" CUT-ON-NL\n"
+		+ "|D \"^HDR;(\\d+)$\" Header M 1 1 ACC 1 R F \"Header\" DIGIT\n"
+		+ "|SEG \"^L;\" Line M 1 99 ACC 99 R W \"Line\" CUT-ON-(;)\n"
+		+ "||D \"^(L)$\" SKIP M 1 1 ACC 1 R W \"Tag\" ASMATCHED\n"
+		+ "||D \"^([A-Z]+)$\" Code M 1 1 ACC 1 R W \"Code\" UPALPHA\n"
+		+ "||D \"^(\\d+)$\" Qty M 1 1 ACC 1 R W \"Quantity\" DIGIT\n"
+		+ "|D \"^TRL;(\\d+)$\" Trailer M 1 1 ACC 1 R F \"Trailer\" DIGIT\n"
+		+ "END\n";
+
+	/**
+	 * The lines of a CUT-ON-NL message are read while the matching progresses; those never reached, because the
+	 * matching stopped on a threshold or before the end of input, must still be output as RAW elements.
+	 * <p>
+	 * Cases are {message, exceptions threshold, expected XML contents}, the expected contents being those of the
+	 * former parser, which loaded every line before matching.
+	 * </p>
+	 */
+	static class Remainder extends RegressionChecks.Check {
+
+		private static final String[][] CASES = {
+			{ "HDR;123\nL;ABC;5\nTRL;3\nZZZ\nYYY\nXXX\n", "0",
+				"<Header>123</Header><Line><Code>ABC</Code><Qty>5</Qty></Line><Trailer>3</Trailer>"
+				+ "<RAW L=\"4\" O=\"0\">ZZZ</RAW><RAW L=\"5\" O=\"0\">YYY</RAW><RAW L=\"6\" O=\"0\">XXX</RAW>" },
+			{ "HDR;123\nL;ABC;5\nTRL;3\nZZZ\nYYY\nXXX\n", "100",
+				"<Header>123</Header><Line><Code>ABC</Code><Qty>5</Qty></Line><Trailer>3</Trailer>"
+				+ "<RAW L=\"4\" O=\"0\">ZZZ</RAW><RAW L=\"5\" O=\"0\">YYY</RAW><RAW L=\"6\" O=\"0\">XXX</RAW>" },
+			{ "HDR;123\nL;ABC;x\nQQ\nTRL;3\nZZZ\nYYY\n", "0",
+				"<Header>123</Header><RAW L=\"2\" O=\"0\">L;ABC;x</RAW><RAW L=\"3\" O=\"0\">QQ</RAW>"
+				+ "<RAW L=\"4\" O=\"0\">TRL;3</RAW><RAW L=\"5\" O=\"0\">ZZZ</RAW><RAW L=\"6\" O=\"0\">YYY</RAW>" },
+			{ "HDR;123\nL;ABC;x\nQQ\nTRL;3\nZZZ\nYYY\n", "100",
+				"<Header>123</Header><Line><Code>ABC</Code><RAW L=\"2\" O=\"6\">x</RAW></Line><RAW L=\"3\" O=\"0\">QQ</RAW>"
+				+ "<Trailer>3</Trailer><RAW L=\"5\" O=\"0\">ZZZ</RAW><RAW L=\"6\" O=\"0\">YYY</RAW>" },
+			{ "HDR;12\nBAD\nWORSE\nL;A;1\nTRL;1\n", "0",
+				"<Header>12</Header><RAW L=\"2\" O=\"0\">BAD</RAW><RAW L=\"3\" O=\"0\">WORSE</RAW>"
+				+ "<RAW L=\"4\" O=\"0\">L;A;1</RAW><RAW L=\"5\" O=\"0\">TRL;1</RAW>" },
+			{ "HDR;12\nBAD\nWORSE\nL;A;1\nTRL;1\n", "100",
+				"<Header>12</Header><RAW L=\"2\" O=\"0\">BAD</RAW><RAW L=\"3\" O=\"0\">WORSE</RAW>"
+				+ "<Line><Code>A</Code><Qty>1</Qty></Line><Trailer>1</Trailer>" },
+		};
+
+		Remainder() {
+			super("parser.remainder");
+		}
+
+		public void run() throws Exception {
+			Definition def = new Definition();
+			def.loadDefinition(new LineNumberReader(new StringReader(LINES_DEF)));
+			for (int i = 0; i < CASES.length; i++) {
+				String msg = CASES[i][0];
+				int max = Integer.parseInt(CASES[i][1]);
+				verifyEquals(CASES[i][2], contents(def, msg, max, false), "RAW elements of case " + i + " from a reader");
+				verifyEquals(CASES[i][2], contents(def, msg, max, true), "RAW elements of case " + i + " from a string");
+			}
+			//a long remainder after the trailer, each line being output as RAW
+			StringBuffer sb = new StringBuffer("HDR;1\nL;A;1\nTRL;1\n");
+			for (int i = 0; i < count; i++) sb.append("JUNK").append(i).append('\n');
+			for (int max = 0; max <= 1; max++) {
+				String xml = contents(def, sb.toString(), max * count, false);
+				int raws = 0;
+				for (int at = xml.indexOf("<RAW "); at >= 0; at = xml.indexOf("<RAW ", at + 1)) raws++;
+				verify(raws == count, raws + " RAW elements instead of " + count + " after the trailer, threshold " + max * count);
+				verify(xml.endsWith(">JUNK" + (count - 1) + "</RAW>"), "last RAW element after the trailer");
+			}
+		}
+
+		//parse, possibly failing on a threshold, and get the XML contents of the message element, with RAW elements
+		private static String contents(Definition def, String msg, int max, boolean fromString) throws Exception {
+			Parser p = new Parser(def, max, max);
+			try {
+				if (fromString) p.parse("check", msg, 1);
+				else p.parse("check", new LineNumberReader(new StringReader(msg)), 1);
+			} catch (ParserException e) {
+				//thresholds exceeded, the XML still holds what was parsed
+			}
+			String xml = p.getXML(true, false).toString();
+			return xml.substring(xml.indexOf('>', xml.indexOf("<LIST ")) + 1, xml.lastIndexOf("</LIST>"));
+		}
+	}
+
+}
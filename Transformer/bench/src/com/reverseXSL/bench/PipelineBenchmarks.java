@@ -0,0 +1,460 @@
+package com.reverseXSL.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.LineNumberReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import com.reverseXSL.message.Data;
+import com.reverseXSL.parser.Definition;
+import com.reverseXSL.parser.DefinitionPatterns;
+import com.reverseXSL.parser.Parser;
+import com.reverseXSL.transform.MappingSelection;
+import com.reverseXSL.transform.Transformer;
+import com.reverseXSL.transform.TransformerFactory;
+
+/**
+ * Benchmarks of the whole transformation pipeline, stage by stage and end-to-end.
+ * <p>
+ * The suites cover:
+ * <ul>
+ * <li>def.load: {@link Definition#loadDefinition(LineNumberReader)}, for every DEF of the sample package;</li>
+ * <li>mapping.match: {@link MappingSelection#matchEntry(String)} over the sample mapping selection table, including
+ * a message matching no entry at all;</li>
+ * <li>mapping.sniff: {@link Data#sniff(int)} of a new Data over the selection range of the table, identification of its
+ * data format and {@link MappingSelection#matchEntry(String)}, i.e. the whole mapping selection step of a transformation;</li>
+ * <li>data.convert: {@link Data#getConvertedData(int)}, with byte-oriented and with character-oriented conversions;</li>
+ * <li>parser.parse.string and parser.parse.reader: both variants of Parser.parse();</li>
+ * <li>parser.getXML: {@link Parser#getXML(boolean, boolean)} of an already parsed message;</li>
+ * <li>parser.patterns: Parser.parse() of the samples, the patterns of the DEF being compiled at load time
+ * (parse), and the compilation of every pattern of the DEF (compile). The latter is the per-message gain of
+ * compiling patterns at load time, if every definition were visited once: the parser formerly compiled the patterns
+ * of a definition on every visit;</li>
+ * <li>parser.scaling: Parser.parse() of synthetic lists of records from 1k to 1M lines, whose MB/s shall stay flat,
+ * i.e. the parsing time be linear with the message size;</li>
+ * <li>parser.release: Parser.parse() of synthetic EDIFACT-like interchanges with a release character, without and
+ * with released separators in the data, the latter from 1k to 100k segments whose MB/s shall stay flat too;</li>
+ * <li>transform: {@link Transformer#transform(InputStream, java.io.OutputStream)}, from raw bytes to output bytes.</li>
+ * </ul>
+ * Inputs are the samples of the package (SWIFT MT101, IATA FWB, VAT declaration), a synthetic IATA PRL message,
+ * and scaled synthetic inputs: MT101 messages with 10 and 100 transactions, PRL messages with 10 and 200 passengers,
+ * and a 1MB mix of all samples.
+ * </p><p>
+ * The sample package must be on the CLASSPATH, i.e. the directory holding resources/ and demo/ (pack01).
+ * </p>
+ * Usage: <code>java com.reverseXSL.bench.PipelineBenchmarks [options]</code> with options:
+ * <ul>
+ * <li>-w n: warm-up iterations (3)</li>
+ * <li>-i n: measured iterations (5)</li>
+ * <li>-t ms: duration of every iteration (1000)</li>
+ * <li>-f regex: only run the cases 'suite/input' that contain a match</li>
+ * <li>-o file: write CSV results to the file, else to standard output</li>
+ * <li>-b file: compare results with a former CSV result, and exit with status 1 upon regressions</li>
+ * <li>-r percent: tolerance of the comparison (10)</li>
+ * </ul>
+ *
+ * @author bernardH
+ * @see BenchmarkRunner
+ */
+public class PipelineBenchmarks {
+
+	private static final Charset RESOURCES_CHARSET = Charset.forName("UTF-8");
+	private static final String TABLE = MappingSelection.INJAR_MAPPING_SELECTION_TABLE;
+
+	private static final int BYTE_CONVERSIONS = Data._NoCtrlBytes + Data._NoBlankLine;
+	private static final int CHAR_CONVERSIONS = Data._ToLF + Data._TrimNBSP + Data._NoCtrlChars + Data._1NewLineAtEnd;
+
+	/**
+	 * DEF of the scaling lists: a header line, then a group of 3 lines per record, and a trailer line. The message is
+	 * not cut with CUT-ON-NL such that it is entirely loaded at once, and every record group is moved out of the
+	 * middle of the message elements list.
+	 */
+	private static final String LIST_DEF =
+		"MSG \"\" LIST M 1 1 ACC 1 R F \"Scaling list\" CUT-ON-\"\\r?\\n\"\n"
+		+ "|D \"^HDR (.*)$\" Header M 1 1 ACC 1 R F \"Header line\" ASMATCHED\n"
+		+ "|GRP \"^REC \" Record M 1 99999999 ACC 99999999 R W \"Record group\"\n"
+		+ "||D \"^REC (.*)$\" Id M 1 1 ACC 1 R W \"Record id\" DIGIT\n"
+		+ "||D \"^NAME (.*)$\" Name M 1 1 ACC 1 R W \"Record name\" ASMATCHED\n"
+		+ "||D \"^QTY (.*)$\" Qty O 0 1 ACC 1 R W \"Record quantity\" DIGIT\n"
+		+ "|D \"^(END)$\" SKIP M 1 1 ACC 1 R F \"Trailer line\" ASMATCHED\n"
+		+ "END\n";
+
+	/**
+	 * DEF of EDIFACT-like interchanges: segments terminated by ', made of elements separated by + and components
+	 * separated by :, with ? as release character. Amounts are extracted from two capturing groups.
+	 */
+	private static final String EDI_DEF =
+		"SET RELEASECHARACTER \"?\"\n"
+		+ "MSG \"^UNH\" EDI M 1 1 ACC 1 R F \"EDIFACT-like interchange\" CUT-ON-(')\n"
+		+ "|SEG \"^UNH\" UNH M 1 1 ACC 1 R F \"Header\" CUT-ON-(+)\n"
+		+ "||D \"^(UNH)$\" SKIP M 1 1 ACC 1 R F \"Tag\" ASMATCHED\n"
+		+ "||D \"^(\\d+)$\" Ref M 1 1 ACC 1 R F \"Reference\" DIGIT\n"
+		+ "|SEG \"^FTX\" FTX M 1 99999999 ACC 99999999 R W \"Free text\" CUT-ON-(+)\n"
+		+ "||D \"^(FTX)$\" SKIP M 1 1 ACC 1 R W \"Tag\" ASMATCHED\n"
+		+ "||D \"^([A-Z]{3})$\" Qualifier M 1 1 ACC 1 R W \"Text qualifier\" UPALPHA\n"
+		+ "||SEG \"\" Text M 1 1 ACC 1 R W \"Text\" CUT-ON-(:)\n"
+		+ "|||D \"^(.*)$\" Line M 1 5 ACC 5 R W \"Text line\" ASMATCHED\n"
+		+ "||D \"^(\\d+),(\\d\\d)$\" Cents O 0 1 ACC 1 R W \"Amount\" DIGIT\n"
+		+ "|SEG \"^UNT\" UNT M 1 1 ACC 1 R F \"Trailer\" CUT-ON-(+)\n"
+		+ "||D \"^(UNT)$\" SKIP M 1 1 ACC 1 R F \"Tag\" ASMATCHED\n"
+		+ "||D \"^(\\d+)$\" Count M 1 1 ACC 1 R F \"Segment count\" DIGIT\n"
+		+ "END\n";
+
+	private final List<BenchmarkRunner.Case> cases = new ArrayList<BenchmarkRunner.Case>();
+	private final MappingSelection table;
+	private final TransformerFactory factory;
+
+	/**
+	 * An input message and what is needed to parse it.
+	 */
+	private final class Input {
+		final String name;
+		final byte[] bytes;
+		final String msgChunk;
+		final MappingSelection.MappingEntry entry;
+		final String data; //after the conversions of the entry, as parsed
+
+		Input(String name, byte[] bytes) {
+			this.name = name;
+			this.bytes = bytes;
+			int l = Math.min(bytes.length, table.getSelectionRange());
+			msgChunk = RESOURCES_CHARSET.decode(ByteBuffer.wrap(bytes, 0, l)).toString();
+			entry = table.matchEntry(msgChunk);
+			data = entry == null ? null : new Data(bytes).getConvertedData(entry.getConversions()).toString();
+		}
+	}
+
+	PipelineBenchmarks() throws Exception {
+		table = new MappingSelection(new StringReader(resource(TABLE)));
+		factory = TransformerFactory.newInstance();
+
+		String mt101 = new String(sample("demo/Sample1_MT101.txt"), "ISO-8859-1");
+		List<Input> samples = new ArrayList<Input>();
+		samples.add(new Input("MT101", sample("demo/Sample1_MT101.txt")));
+		samples.add(new Input("FWB", sample("demo/Sample2_TypeB_FWB.txt")));
+		samples.add(new Input("VATdeclare", sample("demo/Sample3_VATdeclare.csv.txt")));
+		samples.add(new Input("PRL", syntheticPRL(3).getBytes("ISO-8859-1")));
+		List<Input> scaled = new ArrayList<Input>();
+		scaled.add(new Input("MT101x10", scaledMT101(mt101, 10).getBytes("ISO-8859-1")));
+		scaled.add(new Input("MT101x100", scaledMT101(mt101, 100).getBytes("ISO-8859-1")));
+		scaled.add(new Input("PRLx10", syntheticPRL(10).getBytes("ISO-8859-1")));
+		scaled.add(new Input("PRLx200", syntheticPRL(200).getBytes("ISO-8859-1")));
+		List<Input> all = new ArrayList<Input>(samples);
+		all.addAll(scaled);
+
+		// Definition.loadDefinition
+		String[] defs = {"MT101", "FWB15", "VATdeclare", "PRL29"};
+		for (int i = 0; i < defs.length; i++) {
+			final String def = resource("resources/DEF/" + defs[i] + ".def");
+			cases.add(new BenchmarkRunner.Case("def.load", defs[i], def.length()) {
+				public Object run() throws Exception {
+					Definition d = new Definition();
+					d.loadDefinition(new LineNumberReader(new StringReader(def)));
+					return d;
+				}
+			});
+		}
+
+		// MappingSelection.matchEntry
+		List<Input> selected = new ArrayList<Input>(samples);
+		selected.add(new Input("NoMatch", "UNKNOWN MESSAGE TYPE\nNOT IN TABLE\n".getBytes("ISO-8859-1")));
+		for (Iterator<Input> it = selected.iterator(); it.hasNext();) {
+			final Input in = it.next();
+			cases.add(new BenchmarkRunner.Case("mapping.match", in.name, in.msgChunk.length()) {
+				public Object run() {
+					return table.matchEntry(in.msgChunk);
+				}
+			});
+			cases.add(new BenchmarkRunner.Case("mapping.sniff", in.name, in.msgChunk.length()) {
+				public Object run() {
+					Data d = new Data(in.bytes, RESOURCES_CHARSET);
+					String msgChunk = d.sniff(table.getSelectionRange());
+					return d.getFormat() == null ? null : table.matchEntry(msgChunk);
+				}
+			});
+		}
+
+		// Data.getConvertedData
+		List<Input> converted = new ArrayList<Input>(samples);
+		converted.add(new Input("Mix1MB", mix(samples, 1 << 20)));
+		for (Iterator<Input> it = converted.iterator(); it.hasNext();) {
+			final Input in = it.next();
+			final Data d = new Data(in.bytes);
+			cases.add(new BenchmarkRunner.Case("data.convert.bytes", in.name, in.bytes.length) {
+				public Object run() {
+					return d.getConvertedData(BYTE_CONVERSIONS);
+				}
+			});
+			cases.add(new BenchmarkRunner.Case("data.convert.chars", in.name, in.bytes.length) {
+				public Object run() {
+					return d.getConvertedData(CHAR_CONVERSIONS);
+				}
+			});
+		}
+
+		// Parser.parse, both variants, and Parser.getXML
+		for (Iterator<Input> it = all.iterator(); it.hasNext();) {
+			final Input in = it.next();
+			if (in.entry == null) throw new IllegalStateException("No mapping selection entry for input " + in.name);
+			final Definition def = factory.getDefinitionCache().get(in.entry.defResource,
+					new StringReader(resource(in.entry.defResource)));
+			cases.add(new BenchmarkRunner.Case("parser.parse.string", in.name, in.data.length()) {
+				public Object run() throws Exception {
+					Parser p = newParser(def);
+					p.parse("BENCH", in.data, 0);
+					return p;
+				}
+			});
+			cases.add(new BenchmarkRunner.Case("parser.parse.reader", in.name, in.data.length()) {
+				public Object run() throws Exception {
+					Parser p = newParser(def);
+					p.parse("BENCH", new LineNumberReader(new StringReader(in.data)), 0);
+					return p;
+				}
+			});
+			final Parser parsed = newParser(def);
+			parsed.parse("BENCH", in.data, 0);
+			cases.add(new BenchmarkRunner.Case("parser.getXML", in.name, in.data.length()) {
+				public Object run() throws Exception {
+					return parsed.getXML(true, true);
+				}
+			});
+		}
+
+		// Parser.parse with the patterns compiled at load time, against the compilation of all patterns of the DEF
+		for (Iterator<Input> it = samples.iterator(); it.hasNext();) {
+			final Input in = it.next();
+			final Definition def = new Definition();
+			def.loadDefinition(new LineNumberReader(new StringReader(resource(in.entry.defResource))));
+			final String[] patterns = DefinitionPatterns.of(def);
+			cases.add(new BenchmarkRunner.Case("parser.patterns.parse", in.name, in.data.length()) {
+				public Object run() throws Exception {
+					Parser p = newParser(def);
+					p.parse("BENCH", in.data, 0);
+					return p;
+				}
+			});
+			cases.add(new BenchmarkRunner.Case("parser.patterns.compile", in.name, in.data.length()) {
+				public Object run() {
+					Pattern last = null;
+					for (int i = 0; i < patterns.length; i++) last = Pattern.compile(patterns[i]);
+					return last;
+				}
+			});
+		}
+
+		// Parser.parse scaling with the message size
+		final Definition listDef = new Definition();
+		listDef.loadDefinition(new LineNumberReader(new StringReader(LIST_DEF)));
+		for (int lines = 1000; lines <= 1000000; lines *= 10) {
+			final String list = syntheticList(lines);
+			cases.add(new BenchmarkRunner.Case("parser.scaling", "List" + (lines < 1000000 ? lines / 1000 + "k" : lines / 1000000 + "M"),
+					list.length()) {
+				public Object run() throws Exception {
+					Parser p = newParser(listDef);
+					if (p.parse("BENCH", list, 0) > 0) throw new IllegalStateException("Exceptions parsing " + input);
+					return p;
+				}
+			});
+		}
+
+		// Parser.parse with a release character, in the cut functions and in the extracted values
+		final Definition ediDef = new Definition();
+		ediDef.loadDefinition(new LineNumberReader(new StringReader(EDI_DEF)));
+		String[] ediNames = {"Plain1k", "Released1k", "Released10k", "Released100k"};
+		int[] ediSegments = {1000, 1000, 10000, 100000};
+		for (int i = 0; i < ediNames.length; i++) {
+			final String edi = syntheticEDI(ediSegments[i], i > 0);
+			cases.add(new BenchmarkRunner.Case("parser.release", ediNames[i], edi.length()) {
+				public Object run() throws Exception {
+					Parser p = newParser(ediDef);
+					if (p.parse("BENCH", edi, 0) > 0) throw new IllegalStateException("Exceptions parsing " + input);
+					return p;
+				}
+			});
+		}
+
+		// Transformer.transform, end-to-end
+		for (Iterator<Input> it = all.iterator(); it.hasNext();) {
+			final Input in = it.next();
+			final Transformer t = factory.newTransformer();
+			t.setLocalMessageReferences("BENCH", new java.util.Date());
+			cases.add(new BenchmarkRunner.Case("transform", in.name, in.bytes.length) {
+				public Object run() throws Exception {
+					ByteArrayOutputStream out = new ByteArrayOutputStream(in.bytes.length * 2);
+					t.transform(new ByteArrayInputStream(in.bytes), out);
+					return out;
+				}
+			});
+		}
+	}
+
+	/**
+	 * @return a Parser set as by a Transformer with the default factory settings
+	 */
+	private static Parser newParser(Definition def) {
+		Parser p = new Parser(def, 0, 10);
+		p.removeNonRepeatableNilOptionalElements(true);
+		return p;
+	}
+
+	/**
+	 * @return the MT101 sample with its transaction sequence (from the first :21: to the end of block 4)
+	 * repeated n times
+	 */
+	static String scaledMT101(String sample, int n) {
+		int from = sample.indexOf(":21:");
+		int to = sample.lastIndexOf("-}");
+		StringBuffer sb = new StringBuffer(sample.substring(0, from));
+		String transactions = sample.substring(from, to);
+		for (int i = 0; i < n; i += 2)
+			sb.append(transactions); //the sample holds 2 transactions
+		sb.append(sample.substring(to));
+		return sb.toString();
+	}
+
+	/**
+	 * @return a PRL message (Passenger Reconcile List) with the given count of passengers
+	 */
+	static String syntheticPRL(int passengers) {
+		StringBuffer sb = new StringBuffer();
+		sb.append("QD BRUXXSN\r\n.LHRXXBA 151230\r\nPRL\r\nSN2093/15MAR BRU PART1\r\n");
+		sb.append("CFG/180Y\r\nRBD Y/YBMHQVWLSKGTE\r\n");
+		sb.append("-LHR").append(passengers < 10 ? "00" : passengers < 100 ? "0" : "").append(passengers).append("Y\r\n");
+		String[] names = {"SMITH/JOHNMR", "DUPONT/MARIEMRS", "JANSSENS/PIETMR", "MULLER/ANNAMS", "ROSSI/LUCAMSTR"};
+		for (int i = 0; i < passengers; i++) {
+			sb.append("1").append(names[i % names.length]).append(" .L/").append(Integer.toString(100000 + i * 7919, 36).toUpperCase())
+				.append("\r\n.M/SN").append(2000 + i % 100).append("Y15BRULHR\r\n");
+		}
+		sb.append("ENDPRL\r\n");
+		return sb.toString();
+	}
+
+	/**
+	 * @return a list of records as per {@link #LIST_DEF}, with about the given count of lines
+	 */
+	static String syntheticList(int lines) {
+		StringBuffer sb = new StringBuffer(lines * 12);
+		sb.append("HDR SCALING\r\n");
+		for (int i = 0; i < (lines - 2) / 3; i++)
+			sb.append("REC ").append(i).append("\r\nNAME N").append(i).append("\r\nQTY ").append(i % 100).append("\r\n");
+		sb.append("END\r\n");
+		return sb.toString();
+	}
+
+	/**
+	 * @return an interchange as per {@link #EDI_DEF} with the given count of free text segments, whose text holds
+	 * released separators (?+ ?: ?' ??) in every component when so requested
+	 */
+	static String syntheticEDI(int segments, boolean released) {
+		StringBuffer sb = new StringBuffer(segments * 64);
+		sb.append("UNH+1'");
+		String[] texts = released ? new String[] {"NET?+VAT 21?:79", "SHIP TO?: DOCK 4", "5?'10?? MARGIN"}
+			: new String[] {"NET AND VAT 21 79", "SHIP TO DOCK 4", "5 FEET 10 MARGIN"};
+		for (int i = 0; i < segments; i++) {
+			sb.append("FTX+AAA+").append(texts[i % 3]).append(':').append(texts[(i + 1) % 3]).append(':').append(i);
+			sb.append('+').append(i).append(',').append(i % 10).append(i % 7).append('\'');
+		}
+		sb.append("UNT+").append(segments + 2).append('\'');
+		return sb.toString();
+	}
+
+	/**
+	 * @return the samples concatenated up to the given size, separated by blank lines
+	 */
+	static byte[] mix(List<Input> samples, int size) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(size + 8192);
+		while (out.size() < size) {
+			for (Iterator<Input> it = samples.iterator(); it.hasNext();) {
+				byte[] ba = it.next().bytes;
+				out.write(ba, 0, ba.length);
+				out.write('\r');
+				out.write('\n');
+				out.write('\r');
+				out.write('\n');
+			}
+		}
+		return out.toByteArray();
+	}
+
+	private static byte[] sample(String name) throws IOException {
+		InputStream in = PipelineBenchmarks.class.getClassLoader().getResourceAsStream(name);
+		if (in == null) throw new IOException("The resource [" + name + "] is not available from the CLASSPATH!");
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] ba = new byte[8192];
+			int nbin;
+			while ((nbin = in.read(ba)) > 0)
+				out.write(ba, 0, nbin);
+			return out.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+
+	private static String resource(String name) throws IOException {
+		return RESOURCES_CHARSET.decode(ByteBuffer.wrap(sample(name))).toString();
+	}
+
+	/**
+	 * Command line entry point.
+	 * @param args see the class description
+	 */
+	public static void main(String[] args) throws Exception {
+		BenchmarkRunner runner = new BenchmarkRunner();
+		int warmup = 3, iterations = 5;
+		long millis = 1000;
+		String outFile = null, baselineFile = null;
+		double tolerance = 0.10;
+		for (int i = 0; i < args.length; i++) {
+			String opt = args[i];
+			if (i + 1 >= args.length) usage("Missing value of option " + opt);
+			String val = args[++i];
+			if (opt.equals("-w")) warmup = Integer.parseInt(val);
+			else if (opt.equals("-i")) iterations = Integer.parseInt(val);
+			else if (opt.equals("-t")) millis = Long.parseLong(val);
+			else if (opt.equals("-f")) runner.setFilter(val);
+			else if (opt.equals("-o")) outFile = val;
+			else if (opt.equals("-b")) baselineFile = val;
+			else if (opt.equals("-r")) tolerance = Double.parseDouble(val) / 100;
+			else usage("Unknown option " + opt);
+		}
+		runner.setIterations(warmup, iterations, millis);
+
+		PrintWriter log = new PrintWriter(new OutputStreamWriter(System.err));
+		List<BenchmarkRunner.Score> scores = runner.run(new PipelineBenchmarks().cases, log);
+
+		PrintWriter w = new PrintWriter(outFile == null ? (java.io.Writer) new OutputStreamWriter(System.out) : new FileWriter(outFile));
+		BenchmarkRunner.writeCSV(scores, w);
+		if (outFile != null) w.close();
+
+		if (baselineFile != null) {
+			Map<String, Double> baseline = BenchmarkRunner.readBaseline(baselineFile);
+			List<String> regressions = BenchmarkRunner.compare(scores, baseline, tolerance);
+			for (Iterator<String> it = regressions.iterator(); it.hasNext();)
+				log.println("REGRESSION " + it.next());
+			log.flush();
+			if (!regressions.isEmpty()) System.exit(1);
+		}
+	}
+
+	private static void usage(String msg) {
+		System.err.println(msg);
+		System.err.println("usage: java com.reverseXSL.bench.PipelineBenchmarks [-w warmups] [-i iterations] [-t millis] "
+				+ "[-f regex] [-o results.csv] [-b baseline.csv] [-r tolerance%]");
+		System.exit(2);
+	}
+
+}
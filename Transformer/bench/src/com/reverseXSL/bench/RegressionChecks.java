@@ -0,0 +1,122 @@
+package com.reverseXSL.bench;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Self-checking regression tests of the optimized code paths, with no dependency beyond the JRE.
+ * <p>
+ * Every {@link RegressionChecks.Check} compares an optimized code path with the behaviour it shall preserve: an
+ * expected outcome, or the former implementation kept as a reference, over fixed and random inputs. Random inputs
+ * are drawn from a fixed seed, such that a failure can be reproduced.
+ * </p>
+ * Usage: <code>java com.reverseXSL.bench.RegressionChecks [-f regex] [-s seed] [-n count]</code> with options:
+ * <ul>
+ * <li>-f regex: only run the checks whose name contains a match</li>
+ * <li>-s seed: seed of the random inputs (1)</li>
+ * <li>-n count: count of random inputs per check (10000)</li>
+ * </ul>
+ * The exit status is 1 when any check fails.
+ *
+ * @author bernardH
+ */
+public class RegressionChecks {
+
+	/**
+	 * A regression check.
+	 */
+	public static abstract class Check {
+		final String name;
+		protected long seed = 1;
+		protected int count = 10000;
+
+		/**
+		 * @param name	name of the check, e.g. 'parser.remainder'
+		 */
+		protected Check(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Executes the check.
+		 * @throws Exception	a failure, as thrown by {@link #verify(boolean, String)} or unexpected
+		 */
+		public abstract void run() throws Exception;
+
+		/**
+		 * Fails the check unless the condition holds.
+		 * @param condition	the verified condition
+		 * @param msg	description of the failure, with the faulty input
+		 */
+		protected static void verify(boolean condition, String msg) {
+			if (!condition) throw new AssertionError(msg);
+		}
+
+		/**
+		 * Fails the check unless both values are equal.
+		 */
+		protected static void verifyEquals(Object expected, Object actual, String msg) {
+			if (expected == null ? actual != null : !expected.equals(actual))
+				throw new AssertionError(msg + "\n expected: " + expected + "\n   actual: " + actual);
+		}
+	}
+
+	/**
+	 * @return all checks
+	 */
+	static List<Check> checks() {
+		List<Check> checks = new ArrayList<Check>();
+		checks.add(new ParserChecks.Remainder());
+		checks.add(new DataDefinitionChecks.Charsets());
+		checks.add(new DataChecks.Conversions());
+		checks.add(new DataChecks.Identification());
+		checks.add(new MappingSelectionChecks.Prefilter());
+		return checks;
+	}
+
+	/**
+	 * Command line entry point.
+	 * @param args see the class description
+	 */
+	public static void main(String[] args) {
+		Pattern filter = null;
+		long seed = 1;
+		int count = 10000;
+		for (int i = 0; i < args.length; i++) {
+			String opt = args[i];
+			if (i + 1 >= args.length) usage("Missing value of option " + opt);
+			String val = args[++i];
+			if (opt.equals("-f")) filter = Pattern.compile(val);
+			else if (opt.equals("-s")) seed = Long.parseLong(val);
+			else if (opt.equals("-n")) count = Integer.parseInt(val);
+			else usage("Unknown option " + opt);
+		}
+
+		int failures = 0, run = 0;
+		for (Iterator<Check> it = checks().iterator(); it.hasNext();) {
+			Check c = it.next();
+			if (filter != null && !filter.matcher(c.name).find()) continue;
+			c.seed = seed;
+			c.count = count;
+			run++;
+			try {
+				c.run();
+				System.err.println(c.name + ": OK");
+			} catch (Throwable t) {
+				failures++;
+				System.err.println(c.name + ": FAILED " + t);
+			}
+		}
+		System.err.println(run + " checks, " + failures + " failed");
+		if (failures > 0) System.exit(1);
+	}
+
+	private static void usage(String msg) {
+		System.err.println(msg);
+		System.err.println("usage: java com.reverseXSL.bench.RegressionChecks [-f regex] [-s seed] [-n count]");
+		System.exit(2);
+	}
+
+}
@@ -0,0 +1,41 @@
+package com.reverseXSL.parser;
+
+import java.util.HashMap;
+
+/**
+ * The character set validation of a stand-alone data element definition, for the regression checks.
+ * <p>
+ * Lives in the parser package of the benchmark sources, hence reaches the package-private data element
+ * definition without any hook in the library itself.
+ * </p>
+ *
+ * @author bernardH
+ */
+public class DataCharsets {
+
+	private final DataDefinition ddef;
+
+	/**
+	 * @param line	a single D line of a DEF, e.g. <code>D "^(.*)$" Value M 1 1 ACC 1 R W "Value" UPALPHA</code>
+	 * @throws ParserException	when the line is invalid
+	 */
+	public DataCharsets(String line) throws ParserException {
+		ddef = new DataDefinition(1, line, new HashMap(), new Definition());
+	}
+
+	/**
+	 * @return the validation pattern, as reported in the exceptions of invalid values
+	 */
+	public String getValidationPattern() {
+		return ddef.charValidation.vPattern;
+	}
+
+	/**
+	 * @param value	a data element value
+	 * @return true when the value complies with the character set validation
+	 */
+	public boolean check(CharSequence value) {
+		return ddef.charValidation.check(value);
+	}
+
+}
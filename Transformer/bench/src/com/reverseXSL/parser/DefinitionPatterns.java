@@ -0,0 +1,46 @@
+package com.reverseXSL.parser;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Inventory of the patterns of a loaded DEF, for the benchmarks.
+ * <p>
+ * Lives in the parser package of the benchmark sources, hence reaches the package-private element definitions
+ * without any hook in the library itself.
+ * </p>
+ *
+ * @author bernardH
+ */
+public class DefinitionPatterns {
+
+	private DefinitionPatterns() {
+	}
+
+	/**
+	 * @param def	a loaded DEF
+	 * @return the source of every pattern of the DEF, i.e. those compiled at load time: identification, validation,
+	 * evaluation and condition feed patterns of all elements, in tree order, then the named conditions patterns
+	 */
+	public static String[] of(Definition def) {
+		List<String> patterns = new ArrayList<String>();
+		addPatterns(def.msgDef, patterns);
+		for (Iterator<?> it = def.namedCond.values().iterator(); it.hasNext();) {
+			CONDDefinition cond = (CONDDefinition) it.next();
+			if (cond.verifPattern.length() > 0) patterns.add(cond.verifPattern);
+		}
+		return patterns.toArray(new String[patterns.size()]);
+	}
+
+	private static void addPatterns(GSDDefinition gsd, List<String> patterns) {
+		if (gsd instanceof SEGDefinition) patterns.add(((SEGDefinition) gsd).idPattern);
+		else if (gsd instanceof GRPDefinition) patterns.add(((GRPDefinition) gsd).idPattern);
+		else if (gsd instanceof DataDefinition) patterns.add(((DataDefinition) gsd).validPattern);
+		else if (gsd instanceof MARKDefinition) patterns.add(((MARKDefinition) gsd).evalPattern);
+		if (gsd.conditionFeed.length() > 0) patterns.add(gsd.conditionFeed);
+		for (int i = 0; i < gsd.subElts.size(); i++)
+			addPatterns((GSDDefinition) gsd.subElts.get(i), patterns);
+	}
+
+}
@@ -6,9 +6,7 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.LineNumberReader;
-import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
-import java.nio.charset.Charset;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 
@@ -151,16 +149,13 @@ public class Parse {
 	}
 
 	private static String loadFrom(File f) throws Exception {
+		//the file is memory-mapped and decoded in one go, from UTF-8 by default
 		FileInputStream inS = new FileInputStream(f) ;
-		StringBuffer sb = new StringBuffer();
-		byte[] ba = new byte[inS.available()];
-		int nbin;
-		Charset defaultCharset = Charset.forName("UTF-8");
-		do {
-			nbin = inS.read(ba);
-			if (nbin >0) sb.append(defaultCharset.decode(ByteBuffer.wrap(ba,0,nbin)).toString());
-		} while (nbin >0);
-		return sb.toString();
+		try {
+			return new Data(inS.getChannel()).getConvertedData(Data._NONE).toString();
+		} finally {
+			inS.close();
+		}
 	}
 
 }
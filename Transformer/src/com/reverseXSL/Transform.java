@@ -2,7 +2,7 @@ package com.reverseXSL;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 
@@ -90,13 +90,13 @@ public class Transform {
 			return;
 		}
 		
-		FileInputStream fis = new FileInputStream(args[0]);
+		File inFile = new File(args[0]);
 		
 		com.reverseXSL.transform.Transformer t = com.reverseXSL.transform.TransformerFactory.newInstance().newTransformer();
 		StringBuffer out = new StringBuffer();
 		//formally, t.transform(...) shall be used, but here, this is a 
 		//test application with intentionally printable outputs!
-		t.printableTransform(fis, out);
+		t.printableTransform(inFile, out);
 		
 		System.out.print(out.toString());
 		//use error output for logs to prevent mixing outputs on the console
@@ -118,7 +118,7 @@ public class Transform {
 		int conversionFlags = Data._NONE;
 		FileReader myDEFReader, myXSLReader;
 		FileReader mstReader;
-		FileInputStream inStream = null;
+		File inFile = null;
 		ByteArrayOutputStream outStream = null;
 		boolean printableMode = false;
 		boolean removeNRNOElts = false; //remove non repeatable Nil optional elements
@@ -207,7 +207,8 @@ public class Transform {
 		
 		try {
 			//read input data and transform it
-			inStream = new FileInputStream(args[2]);
+			inFile = new File(args[2]);
+			if (!inFile.canRead()) throw new FileNotFoundException("not found or not readable");
 		} catch (Exception e) {
 			throw new Exception("Cannot read the input data file ["+args[2]+"], cause: "+e.getMessage(),e);
 		}
@@ -215,7 +216,7 @@ public class Transform {
 			//PRINTABLE CASE
 			StringBuffer out = new StringBuffer();
 			// Transform NOW!
-			t.printableTransform(inStream, out);
+			t.printableTransform(inFile, out);
 			System.err.println(t.getLog());
 			System.out.println(out.toString());
 			
@@ -223,7 +224,7 @@ public class Transform {
 			//EXACT CASE
 			outStream = new ByteArrayOutputStream();
 			// Transform NOW!
-			t.transform(inStream, outStream);
+			t.transform(inFile, outStream);
 			outStream.close();
 			System.err.println(t.getLog());
 			System.out.println(outStream.toString());
@@ -41,7 +41,24 @@ public class FormattedMessage implements Serializable {
 	 * 
 	 */
 	public String getMessage() {
-		return FormattingService.getMessage(this.messageId, this.arguments);
+		return FormattingService.getMessage(this.messageId, getArguments());
+	}
+
+	/**
+	 * @return the message identifier in messages.properties
+	 */
+	public String getMessageId() {
+		return messageId;
+	}
+
+	/**
+	 * Get the message arguments, as substituted to the message parameters. Subclasses may
+	 * override it to only work out costly arguments when the message is formatted.
+	 * 
+	 * @return the arguments, possibly null
+	 */
+	public Object[] getArguments() {
+		return arguments;
 	}
 
 	/**
@@ -1,8 +1,12 @@
 package com.reverseXSL.exception;
 
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 import java.util.MissingResourceException;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.text.MessageFormat;
 
 /**
@@ -14,6 +18,10 @@ import java.text.MessageFormat;
 * keys to messages.
 * </p><p>
 * NOTE: null arguments are accepted as arguments and yield &quot;null&quot; strings in the formated outputs. 
+* </p><p>
+* Message patterns are looked up and parsed once per locale and message identifier. As 
+* {@link MessageFormat} is not thread-safe, each thread formats with its own copies of the parsed
+* patterns, without any locking.
 * </p>
 *
 */
@@ -21,6 +29,28 @@ final class FormattingService {
 
 	private static final Locale EN = new Locale("en", "US");
 
+	/**
+	 * Marks message identifiers without (valid) pattern in the resource bundle.
+	 */
+	private static final Object NO_PATTERN = new Object();
+
+	/**
+	 * Parsed message patterns per locale and message identifier, shared by all threads.
+	 * They are never used to format, only cloned into {@link #formats}.
+	 */
+	private static final ConcurrentMap<Locale, ConcurrentMap<String, Object>> patterns = 
+		new ConcurrentHashMap<Locale, ConcurrentMap<String, Object>>();
+
+	/**
+	 * Thread-confined copies of the parsed message patterns, per locale and message identifier.
+	 */
+	private static final ThreadLocal<Map<Locale, Map<String, Object>>> formats = 
+		new ThreadLocal<Map<Locale, Map<String, Object>>>() {
+			protected Map<Locale, Map<String, Object>> initialValue() {
+				return new HashMap<Locale, Map<String, Object>>();
+			}
+		};
+
 	private FormattingService() {}
 
 	static ResourceBundle getBundle(Locale locale) {
@@ -62,13 +92,68 @@ final class FormattingService {
 	 */
 	public static String getMessage(String messageId, Object[] arguments) {
 
-		try {
-			return formatMessage(getBundle(Locale.getDefault()), messageId, arguments);
-		} catch (MissingResourceException mre) {
-			// message does not exist in the requested locale or the default locale.
-			// most likely it does exist in our default base class _en, so try that.
+		Object[] shorterArgs = shorten(arguments);
+		MessageFormat format = getFormat(Locale.getDefault(), messageId);
+		if (format != null) {
+			try {
+				return format.format(shorterArgs);
+			}
+			catch (IllegalArgumentException iae) {
+				//arguments not matching the format types
+			}
+		}
+		return failOver(messageId, shorterArgs);
+	}
+
+	/**
+	 * Get the parsed message pattern, for use in the current thread only.
+	 * 
+	 * @param locale
+	 * @param messageId
+	 * @return the message format, or null if there's no valid pattern for that message
+	 */
+	static MessageFormat getFormat(Locale locale, String messageId) {
+		Map<Locale, Map<String, Object>> threadFormats = formats.get();
+		Map<String, Object> localeFormats = threadFormats.get(locale);
+		if (localeFormats == null) {
+			localeFormats = new HashMap<String, Object>();
+			threadFormats.put(locale, localeFormats);
+		}
+		Object format = localeFormats.get(messageId);
+		if (format == null) {
+			format = getPattern(locale, messageId);
+			if (format != NO_PATTERN) format = ((MessageFormat) format).clone();
+			localeFormats.put(messageId, format);
+		}
+		return format == NO_PATTERN ? null : (MessageFormat) format;
+	}
+
+	/**
+	 * Looks up and parses a message pattern, once for all threads.
+	 * 
+	 * @return the shared parsed pattern, not to be used for formatting, else {@link #NO_PATTERN}
+	 */
+	private static Object getPattern(Locale locale, String messageId) {
+		ConcurrentMap<String, Object> localePatterns = patterns.get(locale);
+		if (localePatterns == null) {
+			patterns.putIfAbsent(locale, new ConcurrentHashMap<String, Object>());
+			localePatterns = patterns.get(locale);
+		}
+		Object pattern = localePatterns.get(messageId);
+		if (pattern == null) {
+			pattern = NO_PATTERN;
+			ResourceBundle bundle = getBundle(locale);
+			if (bundle != null) {
+				try {
+					pattern = new MessageFormat(bundle.getString(messageId), locale);
+				} catch (MissingResourceException mre) {
+				} catch (IllegalArgumentException iae) {
+					//invalid pattern
+				}
+			}
+			localePatterns.putIfAbsent(messageId, pattern);
 		}
-		return formatMessage(getBundle(EN), messageId, arguments);
+		return pattern;
 	}
 
 	/**
@@ -82,19 +167,7 @@ final class FormattingService {
 	static String formatMessage(ResourceBundle bundle, String messageId, Object[] arguments) {
 
 		String message = null;
-		Object[] shorterArgs;
-		if (arguments == null)
-			shorterArgs = new Object[0];
-		else {
-			shorterArgs = new Object[arguments.length];
-			//truncate large string arguments! 
-			//	(don't need to test other CharSequence, buffers, etc., because not used here!
-			for (int i=0;i<arguments.length;i++) {
-				if (arguments[i] instanceof String && ((String)arguments[i]).length()>300) {
-					shorterArgs[i]= ((String)arguments[i]).substring(0,300) + "...(more)";
-				} else shorterArgs[i]=arguments[i];
-			}
-		}
+		Object[] shorterArgs = shorten(arguments);
 		if (bundle != null) {
 			
 			try {
@@ -114,7 +187,33 @@ final class FormattingService {
 			} 
 		}
 
-		//fail-over message formatting
+		return failOver(messageId, shorterArgs);
+	}
+
+	/**
+	 * @return a copy of the arguments, with large strings truncated
+	 */
+	private static Object[] shorten(Object[] arguments) {
+		Object[] shorterArgs;
+		if (arguments == null)
+			shorterArgs = new Object[0];
+		else {
+			shorterArgs = new Object[arguments.length];
+			//truncate large string arguments! 
+			//	(don't need to test other CharSequence, buffers, etc., because not used here!
+			for (int i=0;i<arguments.length;i++) {
+				if (arguments[i] instanceof String && ((String)arguments[i]).length()>300) {
+					shorterArgs[i]= ((String)arguments[i]).substring(0,300) + "...(more)";
+				} else shorterArgs[i]=arguments[i];
+			}
+		}
+		return shorterArgs;
+	}
+
+	/**
+	 * fail-over message formatting, when there's no valid message pattern.
+	 */
+	private static String failOver(String messageId, Object[] shorterArgs) {
 		StringBuffer sb = new StringBuffer(messageId);
 		sb.append(" : ");
 		int len = shorterArgs.length;
@@ -0,0 +1,198 @@
+package com.reverseXSL.message;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Filters a byte stream with the same conversions as {@link Data#getConvertedData(int)}, yielding the
+ * converted data as bytes in the very same charset.
+ * <p>
+ * This is the InputStream counterpart of {@link ConvertingReader}, and can thus be chained in front
+ * of any byte-oriented consumer, including another converting stream. Data is converted as it is read,
+ * chunk by chunk.
+ * </p><p>
+ * When only the byte-oriented conversions {@link Data#_NoCtrlBytes}, {@link Data#_NoCRLFBytes}
+ * and {@link Data#_NoBlankLine} are requested, the bytes are filtered without being decoded at all.
+ * Else, the converted characters are encoded back into the charset, in which case characters
+ * that cannot be encoded are replaced (e.g. by '?').
+ * </p><p>Mark and reset are not supported.</p>
+ *
+ * @author bernardH
+ * @see ConvertingReader
+ */
+public class ConvertingInputStream extends FilterInputStream {
+
+	private final ConvertingReader reader; //null for byte-oriented conversions only
+	private final Data.ByteFilter filter;
+	private final CharsetEncoder encoder;
+	private final CharBuffer cb;
+	private final ByteBuffer out = ByteBuffer.allocate(Data.CHUNK_SIZE+32);
+	private byte[] inBuf;
+	private int inPos = 0;
+	private int inEnd = 0;
+	private boolean eof = false;
+	private boolean flushed = false;
+
+	/**
+	 * Wraps an input stream with data conversions.
+	 *
+	 * @param in	the source of byte-oriented data
+	 * @param cs	the charset used to interpret bytes into characters, and to encode converted characters
+	 * back into bytes, if null defaults back to UTF-8
+	 * @param conversions	either the value {@link Data#_NONE}, else the addition of one or more of the
+	 * conversion constants defined in {@link Data}
+	 */
+	public ConvertingInputStream(InputStream in, Charset cs, int conversions) {
+		super(in);
+		if (cs==null) cs = Charset.forName("UTF-8");
+		if (Data.CharConverter.isActive(conversions)) {
+			reader = new ConvertingReader(in, cs, conversions);
+			encoder = cs.newEncoder()
+					.onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			cb = CharBuffer.allocate(Data.CHUNK_SIZE);
+			filter = null;
+		} else {
+			reader = null;
+			encoder = null;
+			cb = null;
+			filter = new Data.ByteFilter(conversions);
+			inBuf = new byte[Data.CHUNK_SIZE];
+		}
+		out.flip(); //initially empty, in read mode
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.FilterInputStream#read()
+	 */
+	public int read() throws IOException {
+		byte[] b = new byte[1];
+		int n;
+		while ((n = read(b, 0, 1))==0);
+		return n<0? -1 : b[0] & 0xFF;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.FilterInputStream#read(byte[], int, int)
+	 */
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (off<0 || len<0 || off+len>b.length) throw new IndexOutOfBoundsException();
+		if (len==0) return 0;
+		while (!out.hasRemaining()) {
+			if (!fill()) return -1;
+		}
+		int n = Math.min(len, out.remaining());
+		out.get(b, off, n);
+		return n;
+	}
+
+	/**
+	 * Refills the output buffer with at least one byte, unless at end of data.
+	 * @return false at end of data
+	 */
+	private boolean fill() throws IOException {
+		out.clear();
+		if (reader!=null) {
+			// convert and encode characters
+			int nc;
+			while (!flushed && out.position()==0) {
+				nc = reader.read(cb.array(), cb.position(), cb.remaining());
+				if (nc>0) cb.position(cb.position()+nc);
+				cb.flip();
+				CoderResult cr = encoder.encode(cb, out, nc<0);
+				if (nc<0 && cr.isUnderflow()) {
+					cr = encoder.flush(out);
+					flushed = cr.isUnderflow();
+				}
+				cb.compact();
+			}
+		} else {
+			// filter bytes
+			boolean blocked = false;
+			while (out.position()==0 && !(eof && inPos>=inEnd)) {
+				if (!eof && (inPos>=inEnd || blocked)) {
+					if (inPos>0) {
+						//keep the bytes not yet filtered
+						System.arraycopy(inBuf, inPos, inBuf, 0, inEnd-inPos);
+						inEnd -= inPos;
+						inPos = 0;
+					}
+					if (inEnd==inBuf.length) {
+						//a very long run of blanks, still not known to be a blank line or not
+						byte[] ba = new byte[inBuf.length*2];
+						System.arraycopy(inBuf, 0, ba, 0, inEnd);
+						inBuf = ba;
+					}
+					int nbin = in.read(inBuf, inEnd, inBuf.length-inEnd);
+					if (nbin<0) eof = true;
+					else inEnd += nbin;
+				}
+				int next = filter.filter(inBuf, inPos, Math.min(inEnd, inPos+out.remaining()), inEnd, eof, out);
+				blocked = (next==inPos);
+				inPos = next;
+			}
+		}
+		out.flip();
+		return out.hasRemaining();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.FilterInputStream#skip(long)
+	 */
+	public long skip(long n) throws IOException {
+		long skipped = 0;
+		while (skipped<n) {
+			if (!out.hasRemaining() && !fill()) break;
+			int k = (int) Math.min(n-skipped, out.remaining());
+			out.position(out.position()+k);
+			skipped += k;
+		}
+		return skipped;
+	}
+
+	/**
+	 * @return the count of converted bytes ready to be read without blocking
+	 * @see java.io.FilterInputStream#available()
+	 */
+	public int available() throws IOException {
+		return out.remaining();
+	}
+
+	/**
+	 * @return false, mark and reset are not supported
+	 * @see java.io.FilterInputStream#markSupported()
+	 */
+	public boolean markSupported() {
+		return false;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.FilterInputStream#mark(int)
+	 */
+	public void mark(int readlimit) {
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.FilterInputStream#reset()
+	 */
+	public void reset() throws IOException {
+		throw new IOException("mark/reset not supported");
+	}
+
+	/**
+	 * Closes this stream and the underlying input stream.
+	 * @see java.io.FilterInputStream#close()
+	 */
+	public void close() throws IOException {
+		if (reader!=null) reader.close();
+		else in.close();
+	}
+
+}
@@ -0,0 +1,130 @@
+package com.reverseXSL.message;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+
+/**
+ * Reads characters from a byte stream while applying the same filtering and normalizing
+ * conversions as {@link Data#getConvertedData(int)}.
+ * <p>
+ * Bytes are read, filtered, decoded and converted chunk by chunk, as the characters are read from this
+ * Reader. Neither the raw data nor the converted data are ever held in memory as a whole, such that large
+ * interchanges can be cleaned on their way to a streaming consumer. The characters produced are exactly
+ * those of {@link Data#getConvertedData(int)} on the same bytes and charset.
+ * </p><p>
+ * Buffering is limited to one chunk of data, plus the few characters that are still subject to change by
+ * the next ones, e.g. trailing spaces that {@link Data#_TrimNBSP} would remove at end of line, or the
+ * last line that {@link Data#_UnfoldPSCRMRemarks} may break anew.
+ * </p>
+ *
+ * @author bernardH
+ * @see ConvertingInputStream
+ */
+public class ConvertingReader extends Reader {
+
+	private final InputStream in;
+	private final Data.ByteFilter filter;
+	private final Data.CharConverter conv;
+	private final CharsetDecoder decoder;
+	private final ByteBuffer bb = ByteBuffer.allocate(Data.CHUNK_SIZE+32);
+	private final CharBuffer cb = CharBuffer.allocate(Data.CHUNK_SIZE);
+	private byte[] inBuf = new byte[Data.CHUNK_SIZE];
+	private int inPos = 0;
+	private int inEnd = 0;
+	private boolean eof = false;
+	private boolean finished = false;
+	private boolean closed = false;
+
+	/**
+	 * Wraps an input stream with character conversions.
+	 *
+	 * @param in	the source of byte-oriented data
+	 * @param cs	the charset used to interpret bytes into characters, if null defaults back to UTF-8
+	 * @param conversions	either the value {@link Data#_NONE}, else the addition of one or more of the
+	 * conversion constants defined in {@link Data}
+	 */
+	public ConvertingReader(InputStream in, Charset cs, int conversions) {
+		super(in);
+		this.in = in;
+		filter = new Data.ByteFilter(conversions);
+		conv = new Data.CharConverter(conversions, new StringBuffer(Data.CHUNK_SIZE+Data.CHUNK_SIZE/8));
+		decoder = Data.newDecoder(cs==null?Charset.forName("UTF-8"):cs);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Reader#read(char[], int, int)
+	 */
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		synchronized (lock) {
+			if (closed) throw new IOException("Stream closed");
+			if (off<0 || len<0 || off+len>cbuf.length) throw new IndexOutOfBoundsException();
+			if (len==0) return 0;
+			int n;
+			while ((n = conv.releasable())==0) {
+				if (finished) return -1;
+				fill();
+			}
+			n = Math.min(n, len);
+			conv.sb.getChars(0, n, cbuf, off);
+			conv.release(n);
+			return n;
+		}
+	}
+
+	/**
+	 * Reads the next chunk of input bytes, if any, and converts as much as possible.
+	 */
+	private void fill() throws IOException {
+		if (!eof) {
+			if (inPos>0) {
+				//keep the bytes not yet filtered
+				System.arraycopy(inBuf, inPos, inBuf, 0, inEnd-inPos);
+				inEnd -= inPos;
+				inPos = 0;
+			}
+			if (inEnd==inBuf.length) {
+				//a very long run of blanks, still not known to be a blank line or not
+				byte[] ba = new byte[inBuf.length*2];
+				System.arraycopy(inBuf, 0, ba, 0, inEnd);
+				inBuf = ba;
+			}
+			int nbin = in.read(inBuf, inEnd, inBuf.length-inEnd);
+			if (nbin<0) eof = true;
+			else inEnd += nbin;
+		}
+		inPos = filter.filter(inBuf, inPos, Math.min(inEnd, inPos+bb.remaining()), inEnd, eof, bb);
+		if (eof && inPos>=inEnd) {
+			Data.decode(decoder, bb, cb, conv, true);
+			conv.finish();
+			finished = true;
+		} else Data.decode(decoder, bb, cb, conv, false);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Reader#ready()
+	 */
+	public boolean ready() throws IOException {
+		synchronized (lock) {
+			if (closed) throw new IOException("Stream closed");
+			return conv.releasable()>0;
+		}
+	}
+
+	/**
+	 * Closes this reader and the underlying input stream.
+	 * @see java.io.Reader#close()
+	 */
+	public void close() throws IOException {
+		synchronized (lock) {
+			if (closed) return;
+			closed = true;
+			in.close();
+		}
+	}
+
+}
@@ -2,8 +2,15 @@ package com.reverseXSL.message;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
 import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.regex.Pattern;
 
 import com.reverseXSL.types.DataFormat;
 
@@ -29,9 +36,21 @@ public class Data {
 
 	private static final int MSG_IDENTIFICATION_RANGE = 100; //tells how much bytes to look-up for an identification pattern
 
+	//identification patterns compiled once; EDIFACT, X12, SWIFT and TRADACOMS are recognized by hand-coded checks
+	private static final Pattern _XML_ID = Pattern.compile("\\s*(?:<\\?xml .*\\?>)?\\s*<(\\w+:)?(\\w+)(?: |>).*"); //root element local name is in matching group 2
+	//private static final Pattern _SDK_ID = Pattern.compile("(ZCZC.*?\\s)?\\s*=(HEADER|PRIORITY|DESTINATION).*");
+	private static final Pattern _TYPEB_ID = Pattern.compile("(ZCZC.*?\\s)?\\s*\\cA?(Q.\\s)?[A-Z0-9]{7,8}\\s.*");
+	private static final Pattern _EDIFACT_ID = Pattern.compile("UN(A:|B)\\+.*");
+	private static final Pattern _X12_ID = Pattern.compile("ISA(.).{2}\\1.{10}\\1.*");
+	private static final Pattern _SWIFT_ID = Pattern.compile("\\{1:[FAL]\\d\\d.*");
+	private static final Pattern _TRADACOMS_ID = Pattern.compile("STX=ANA.*");
+	private static final Pattern _CSV_ID = Pattern.compile("(['\"]?)[^,;	'\"]*?\\1([,;	])((['\"]?)[^,;	'\"]*?\\4?\\2)+[^,;	]*");
+
 	private ByteBuffer buffer = null;
 	private Charset charset = Charset.forName( "UTF-8" );
-	private DataFormat dataformat = DataFormat.ANY;
+	private DataFormat dataformat = null; //identified on demand, see getFormat()
+	private String leadingChars = null; //as decoded by sniff(int)
+	private int leadingRange = -1; //count of bytes decoded into leadingChars
 	
 	/**
 	 * Instantiate a Data object from a byte buffer, assuming UTF-8 as charset
@@ -57,7 +76,6 @@ public class Data {
 	public Data(ByteBuffer bb,Charset cs) {
 		buffer = bb;
 		charset = cs==null?Charset.forName("UTF-8"):cs;
-		identify();
 	}
 
 	/**
@@ -69,7 +87,6 @@ public class Data {
 	 */
 	public Data(byte[] ba) {
 		buffer = ByteBuffer.wrap(ba==null?new byte[0]:ba);
-		identify();
 	}
 
 	/**
@@ -83,7 +100,6 @@ public class Data {
 	public Data(byte[] ba,Charset cs) {
 		buffer = ByteBuffer.wrap(ba==null?new byte[0]:ba);
 		charset = cs==null?Charset.forName("UTF-8"):cs;
-		identify();
 	}
 
 	/**
@@ -117,7 +133,39 @@ public class Data {
 			}
 		} while (nbin >0);
 		charset = cs==null?Charset.forName("UTF-8"):cs;
-		identify();
+	}
+
+	/**
+	 * Instantiate a Data object from a file, assuming UTF-8 as charset
+	 * for character oriented operations on this data.
+	 * 
+	 * @param fc	an open channel on the file, which is memory-mapped (not read)
+	 * @throws IOException as would result from mapping errors
+	 * @see #Data(FileChannel, Charset)
+	 */
+	public Data(FileChannel fc) throws IOException {
+		this(fc, null);
+	}
+
+	/**
+	 * Instantiate a Data object from a file, with the explicit charset
+	 * that must be assumed for character oriented operations on this data.
+	 * <p>
+	 * The file is memory-mapped rather than read in the Java heap: the operating system loads pages 
+	 * of the file only when they are actually used, e.g. looking at the very first bytes for 
+	 * {@link #identify()} or {@link #getBytes(int, int)} does not touch the rest of the file. The mapping remains 
+	 * valid after the channel is closed. The file must not be modified while in use.
+	 * </p>
+	 * 
+	 * @param fc	an open channel on the file, which is memory-mapped (not read)
+	 * @param cs	if null defaults back to UTF-8
+	 * @throws IOException as would result from mapping errors, notably for files above 2Gbytes
+	 */
+	public Data(FileChannel fc, Charset cs) throws IOException {
+		long size = fc.size();
+		if (size > Integer.MAX_VALUE) throw new IOException("The file is too large to be mapped ("+size+" bytes)");
+		buffer = fc.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		charset = cs==null?Charset.forName("UTF-8"):cs;
 	}
 	
 	//Data cleansing facilities
@@ -334,175 +382,337 @@ public class Data {
 	 * _NoCtrlBytes, _NoCRLFBytes, _NoBlankLine, _NoCtrlChars. 
 	 * 
 	 * @return string buffer
+	 * @see ConvertingReader
+	 * @see ConvertingInputStream
 	 */
 	public StringBuffer getConvertedData(int conversions) {
 
-		boolean CRLFconv = ((conversions % 2) == 1);
-		boolean LFconv = ((conversions % 4) >= 2);
-		boolean oneNewLineAtEnd = ((conversions % 8) >=4);
-		boolean UPPERconv = (conversions % 16) >= 8;
-		boolean sevenBitsConv = (conversions % 32) >= 16;
-		boolean trimNBSP = (conversions % 64) >= 32;
-		boolean no_ctrl_bytes = (conversions % 128) >= 64; //byte-oriented
-		boolean no_crlf_bytes = (conversions % 256) >= 128; //byte-oriented
-		boolean no_blank_line = (conversions % 512) >= 256; //byte-oriented
-		boolean noCtrlChars = (conversions % 1024) >= 512;
-		boolean unfoldPSCRMRemarks = (conversions % 2048) >= 1024;
-
-        // We start with BYTE-wise operations
-		// ==================================
+		// Byte filtering, decoding and character conversions are chained in a single pass
+		// over the data: filtered bytes are decoded by chunks, and every chunk of characters is
+		// converted right away into the output buffer, thus without intermediate copies of the whole data.
 		buffer.rewind();
+		if (!buffer.hasArray()) return getConvertedDirectData(conversions);
 		byte[] ba = buffer.array(); //which can be longer than the actual buffer limit!!!
-		ByteBuffer bb = ByteBuffer.allocate( buffer.limit() );
-        boolean is_empty = true; //at the beginning of every new line (i.e. after a LF)
-        for (int i = 0; i < buffer.limit(); i++) {
-            // line terminators
-            if (ba[i] == 0x0D || ba[i] == 0x0A) {
-                if (no_crlf_bytes || no_blank_line && is_empty) {
-                    continue;
-                } else {
-                    bb.put( ba[i] );
-                    if (ba[i] == 0x0A) {
-                        is_empty = true;
-                    }
-                    continue;
-                }
-            }
-            // CTRL chars but tab
-            if (ba[i] >= 0 && ba[i] < ' ' && ba[i] != '\t') {
-                if (no_ctrl_bytes) {
-                    continue;
-                } else {
-                    bb.put( ba[i] );
-                    is_empty = false;
-                    continue;
-                }
-            }
-            // printables
-            if (ba[i] > ' ' || ba[i] < 0) {
-                bb.put( ba[i] );
-                is_empty = false;
-                continue;
-            }
-            // space chars and tabs
-            if (ba[i] == ' ' || ba[i] == '\t') {
-                // fix is_empty if there's a printable ahead (up to LF) to prevent suppressing leading space chars
-                int j = i;
-            	for (; is_empty && j < buffer.limit(); j++) {
-                    if (ba[j] > ' ' || ba[j] < 0) {
-                    	//we have printables
-                        is_empty = false;
-                    }
-                    if (!no_ctrl_bytes && ba[i] >= 0 && ba[i] < ' ' && ba[i] != '\t') {
-                    	//We have CTRL bytes to preserve
-                    	is_empty = false;
-                    }
-                    if (ba[j] == 0x0A) {
-                        break;
-                    }
-                }
-            	//at this point, if is_empty is still true, j points on the LF of an empty line, else to the limit
-                if (no_blank_line && is_empty) {
-                	i=j;
-                    continue;
-                }
-                bb.put( ba[i] );
-            }
-        }
-        bb.flip();
-
-        //at this point we have a modified ByteBuffer bb with the buffer limit telling its actual size
-        
-        // we switch now to CHARACTER-oriented operations
-        // ==============================================
-		
-		StringBuffer rawsb = new StringBuffer(charset.decode(bb).toString());
-		StringBuffer sb = new StringBuffer((int)(bb.limit()*1.1));
-		
-		if ((conversions & ~_NoBlankLine & ~_NoCRLFBytes & ~_NoCtrlBytes)==0 ) return rawsb;
-		
-		char c,x;
-		boolean foundCR = false;
-		boolean trimIt = trimNBSP;
-		
-		for (int i=0; i<rawsb.length();i++) {
-			c = rawsb.charAt(i);
-			
-			if (trimIt && (c=='\t' || c==' ')) continue;
-			
-			if (c=='\r' || c=='\n') {
-				// > TRIM handling: 
-				//reset TRIM state so that next line will be trimmed as needed
-				trimIt = trimNBSP; 
-				//backtrack all trailing space and tab chars
-				int j = sb.length()-1;
-				while(trimIt && j>=0) {
-					x = sb.charAt(j);
-					if (x!='\t' && x!=' ') break;
-					j--;
-				}
-				//truncate NBSP chars at end of line
-				if ((j+1)<sb.length()) sb.delete(j+1, sb.length());
+		int limit = buffer.limit();
+		ByteFilter filter = new ByteFilter(conversions);
+		CharConverter conv = new CharConverter(conversions, 
+				new StringBuffer(CharConverter.isActive(conversions)? (int)(limit*1.1) : limit+16));
+		ByteBuffer bb = ByteBuffer.allocate(CHUNK_SIZE+32);
+		CharBuffer cb = CharBuffer.allocate(CHUNK_SIZE);
+		CharsetDecoder decoder = newDecoder(charset);
+
+		int i = 0;
+		while (i < limit) {
+			i = filter.filter(ba, i, Math.min(i+bb.remaining(), limit), limit, true, bb);
+			decode(decoder, bb, cb, conv, false);
+		}
+		decode(decoder, bb, cb, conv, true);
+		conv.finish();
+		return conv.sb;
+	}
+
+	/**
+	 * Variant of {@link #getConvertedData(int)} for buffers without a backing array, such as a memory-mapped file,
+	 * that are streamed through a {@link ConvertingReader}.
+	 */
+	private StringBuffer getConvertedDirectData(int conversions) {
+		final ByteBuffer bb = buffer.duplicate();
+		StringBuffer sb = new StringBuffer(CharConverter.isActive(conversions)? (int)(bb.limit()*1.1) : bb.limit()+16);
+		Reader r = new ConvertingReader(new InputStream() {
+			public int read() {
+				return bb.hasRemaining()? bb.get() & 0xFF : -1;
+			}
+			public int read(byte[] b, int off, int len) {
+				if (!bb.hasRemaining()) return -1;
+				len = Math.min(len, bb.remaining());
+				bb.get(b, off, len);
+				return len;
 			}
-			
-			if (c=='\r')
-				if (CRLFconv||LFconv) continue;
-				else {
-					foundCR = true;
-					sb.append('\r');
-					continue;
+		}, charset, conversions);
+		char[] ca = new char[CHUNK_SIZE];
+		int n;
+		try {
+			while ((n = r.read(ca)) >= 0) sb.append(ca, 0, n);
+		} catch (IOException e) {
+			//not thrown when reading from memory
+			throw new IllegalStateException(e.toString());
+		}
+		return sb;
+	}
+
+	static final int CHUNK_SIZE = 8192; //bytes or chars decoded and converted at once
+
+	/**
+	 * @return a decoder that replaces malformed and unmappable input, as Charset.decode() does
+	 */
+	static CharsetDecoder newDecoder(Charset cs) {
+		return cs.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+	/**
+	 * Decodes the filtered bytes accumulated so far and feeds the resulting characters to the converter.
+	 * Bytes of an incomplete multibyte sequence are kept in the byte buffer, ready for the next chunk.
+	 * 
+	 * @param decoder	obtained from {@link #newDecoder(Charset)}
+	 * @param bb	byte buffer in write mode, left in write mode
+	 * @param cb	char buffer in write mode, left in write mode
+	 * @param conv	character conversions
+	 * @param endOfInput	true on the last call, which also flushes the decoder and converts all remaining chars
+	 */
+	static void decode(CharsetDecoder decoder, ByteBuffer bb, CharBuffer cb, CharConverter conv, boolean endOfInput) {
+		CoderResult cr;
+		bb.flip();
+		do {
+			cr = decoder.decode(bb, cb, endOfInput);
+			if (endOfInput && cr.isUnderflow()) cr = decoder.flush(cb);
+			cb.flip();
+			conv.convert(cb, endOfInput && cr.isUnderflow());
+			cb.compact();
+		} while (cr.isOverflow());
+		bb.compact();
+	}
+
+	/**
+	 * The byte-oriented conversions _NoCtrlBytes, _NoCRLFBytes, and _NoBlankLine, applied to successive 
+	 * chunks of bytes.
+	 */
+	static final class ByteFilter {
+		private final boolean no_ctrl_bytes, no_crlf_bytes, no_blank_line;
+		private boolean is_empty = true; //at the beginning of every new line (i.e. after a LF)
+
+		ByteFilter(int conversions) {
+			no_ctrl_bytes = (conversions % 128) >= 64;
+			no_crlf_bytes = (conversions % 256) >= 128;
+			no_blank_line = (conversions % 512) >= 256;
+		}
+
+		/**
+		 * @return true when some bytes may be discarded, false when all bytes would pass as is
+		 */
+		static boolean isActive(int conversions) {
+			return (conversions & (_NoBlankLine | _NoCRLFBytes | _NoCtrlBytes))!=0;
+		}
+
+		/**
+		 * Filters the bytes ba[from] to ba[to-1].
+		 * <p>Suppressing blank lines requires to look beyond a space or tab at the beginning of a line, possibly
+		 * up to the next LF. The look-ahead goes up to the limit, which is then the end of input or else the end 
+		 * of the bytes available so far, in which case filtering stops on that space or tab.</p>
+		 * 
+		 * @param ba	source bytes
+		 * @param from	index of the first byte to filter
+		 * @param to	index after the last byte to filter
+		 * @param limit	index after the last available byte, not below 'to'
+		 * @param endOfInput	no bytes will ever follow ba[limit-1]
+		 * @param out	receives the filtered bytes, with room for at least to-from bytes
+		 * @return the index of the next byte to filter, which may be above 'to' after a blank line was skipped, or
+		 * below 'to' when the look-ahead was stopped by the limit
+		 */
+		int filter(byte[] ba, int from, int to, int limit, boolean endOfInput, ByteBuffer out) {
+			int blankUpTo = -1; //when is_empty, there is no printable from the current space or tab up to this index (a LF or the limit)
+			byte b;
+			int i = from;
+			for (; i < to; i++) {
+				b = ba[i];
+	            // line terminators
+				if (b == 0x0D || b == 0x0A) {
+					if (no_crlf_bytes || no_blank_line && is_empty) continue;
+					if (b == 0x0A) is_empty = true;
+				}
+	            // CTRL chars but tab
+				else if (b >= 0 && b < ' ' && b != '\t') {
+					if (no_ctrl_bytes) continue;
+					is_empty = false;
+				}
+	            // printables
+				else if (b > ' ' || b < 0) {
+					is_empty = false;
+				}
+	            // space chars and tabs, of concern only when suppressing blank lines
+				else if (no_blank_line && is_empty) {
+	                // fix is_empty if there's a printable ahead (up to LF) to prevent suppressing leading space chars;
+					// once a blank line end is found, it stays valid for all following spaces and tabs on that line
+					if (i > blankUpTo) {
+						int j = i;
+						for (; j < limit; j++) {
+							if (ba[j] > ' ' || ba[j] < 0) break;
+							if (ba[j] == 0x0A) break;
+						}
+						if (j == limit && !endOfInput) break; //cannot tell yet
+						if (j < limit && ba[j] != 0x0A) {
+							//we have printables
+							is_empty = false;
+							blankUpTo = -1;
+						}
+						else blankUpTo = j;
+					}
+					//at this point, if is_empty is still true, blankUpTo points on the LF of an empty line, else to the limit
+					if (is_empty) {
+						i = blankUpTo;
+						continue;
+					}
 				}
+				out.put(b);
+			}
+			return i;
+		}
+	}
+
+	/**
+	 * The character-oriented conversions of {@link Data#getConvertedData(int)}, applied to successive chunks
+	 * of decoded characters and appending results to the output buffer.
+	 * <p>
+	 * Converted characters can still be modified by the conversion of the next ones, namely the end of the 
+	 * output buffer. When streaming, characters are taken from the beginning of the output buffer only once 
+	 * {@link #releasable()}, and then {@link #release(int) released}.
+	 * </p>
+	 */
+	static final class CharConverter {
+		// a LF followed by '.RN/' is only detected when at least 5 more chars are known
+		private static final int LOOKAHEAD = 5;
+		// characters > 32 are never removed; the last 60 chars may be modified by a PSCRM remark unfolding
+		private static final int KEEP = 64;
 
-			if (c=='\n')
-				// see if we have to unfold a PSCRM remark extension, i.e. '[<cr>]<lf>.RN/<string remark continuation>'
-				if (unfoldPSCRMRemarks && (i+5)<rawsb.length() &&
-						rawsb.charAt(i+1)=='.' && rawsb.charAt(i+2)=='R' && rawsb.charAt(i+3)=='N' && rawsb.charAt(i+4)=='/' ) {
-					// replace '[<cr>]<lf>.RN/' by a single space char
-					// backtrack all <cr>'s
+		private final boolean CRLFconv, LFconv, oneNewLineAtEnd, UPPERconv, sevenBitsConv, trimNBSP, noCtrlChars, unfoldPSCRMRemarks;
+		private final boolean active; //false when only byte-oriented operations apply
+		final StringBuffer sb;
+		private boolean foundCR = false;
+		private boolean trimIt;
+		private boolean finished = false;
+		private int released = 0; //count of chars already taken from the beginning of the output buffer
+
+		CharConverter(int conversions, StringBuffer sb) {
+			CRLFconv = ((conversions % 2) == 1);
+			LFconv = ((conversions % 4) >= 2);
+			oneNewLineAtEnd = ((conversions % 8) >=4);
+			UPPERconv = (conversions % 16) >= 8;
+			sevenBitsConv = (conversions % 32) >= 16;
+			trimNBSP = (conversions % 64) >= 32;
+			noCtrlChars = (conversions % 1024) >= 512;
+			unfoldPSCRMRemarks = (conversions % 2048) >= 1024;
+			this.sb = sb;
+			this.active = isActive(conversions);
+			trimIt = trimNBSP;
+		}
+
+		/**
+		 * @return true when some character-oriented conversions apply, false when the decoded chars pass as is
+		 */
+		static boolean isActive(int conversions) {
+			return (conversions & ~_NoBlankLine & ~_NoCRLFBytes & ~_NoCtrlBytes)!=0;
+		}
+
+		/**
+		 * Converts the chars of the buffer, but the last few ones that are kept for look-ahead unless at end of input.
+		 * @param cb	char buffer in read mode, which position is moved past the converted chars
+		 * @param endOfInput	no more chars will follow
+		 */
+		void convert(CharBuffer cb, boolean endOfInput) {
+			char[] ca = cb.array();
+			int i = cb.position();
+			int end = cb.limit();
+			if (!active) {
+				sb.append(ca, i, end-i);
+				cb.position(end);
+				return;
+			}
+			int stop = endOfInput? end : end-LOOKAHEAD;
+			char c,x;
+			for (; i<stop; i++) {
+				c = ca[i];
+
+				if (trimIt && (c=='\t' || c==' ')) continue;
+
+				if (c=='\r' || c=='\n') {
+					// > TRIM handling: 
+					//reset TRIM state so that next line will be trimmed as needed
+					trimIt = trimNBSP; 
+					//backtrack all trailing space and tab chars
 					int j = sb.length()-1;
-					while(foundCR && j>=0) {
+					while(trimIt && j>=0) {
 						x = sb.charAt(j);
-						if (x!='\r') break;
+						if (x!='\t' && x!=' ') break;
 						j--;
-					} // j points on the last non-<cr> char in sb
-					//truncate <CR> chars at end of output buffer
-					if ((j+1)<sb.length()) sb.delete(j+1, sb.length());
-					// append a single space char
-					sb.append(' ');
-					// skip the remark extension tag
-					i = i+4;
-					// Now re-insert the new line in front of the previous ' .R/x ' element:
-					j = sb.length()-5;
-					// look max 60 chars backward to find a ' .R/' sequence
-					while(j>=0 && sb.length()-j<=60) {
-						if (sb.charAt(j)==' ' && sb.charAt(j+1)=='.' && sb.charAt(j+2)=='R' && sb.charAt(j+3)=='/' ) {
-							// previous remark element found, insert [<cr>]<lf>
-							sb.setCharAt(j, '\n');
-							if (CRLFconv || (!LFconv && foundCR) ) sb.insert(j, '\r');
-							// remove space chars before the new [<cr>]<lf> sequence
-							for (int k=j-1; k>0 && sb.charAt(k)==' ';k--) sb.deleteCharAt(k);
-							break;
-						}  
-						j--;
-					} 
-					continue;
-				} else
-				// other end of line normalising
-				if (CRLFconv) {sb.append("\r\n"); continue; }
-				else if (LFconv) {sb.append(c); continue; }
-				// no normalising: just echo the input to the output
-				else { sb.append(c); continue; }
-			
-			trimIt = false;
-			
-			if (UPPERconv) c = Character.toUpperCase(c);
-			if (sevenBitsConv && (c>=127)) { sb.append('?'); continue;}
-			if ((noCtrlChars||sevenBitsConv) && (c=='\t')) { sb.append(c); continue;}
-			if ((noCtrlChars||sevenBitsConv) && (c<32)) continue;
-			sb.append(c);
+					}
+					//truncate NBSP chars at end of line
+					if ((j+1)<sb.length()) sb.setLength(j+1);
+				}
+
+				if (c=='\r')
+					if (CRLFconv||LFconv) continue;
+					else {
+						foundCR = true;
+						sb.append('\r');
+						continue;
+					}
+
+				if (c=='\n')
+					// see if we have to unfold a PSCRM remark extension, i.e. '[<cr>]<lf>.RN/<string remark continuation>'
+					if (unfoldPSCRMRemarks && (i+LOOKAHEAD)<end &&
+							ca[i+1]=='.' && ca[i+2]=='R' && ca[i+3]=='N' && ca[i+4]=='/' ) {
+						unfoldRemark();
+						// skip the remark extension tag
+						i = i+4;
+						continue;
+					} else
+					// other end of line normalising
+					if (CRLFconv) {sb.append("\r\n"); continue; }
+					// no normalising: just echo the input to the output
+					else { sb.append(c); continue; }
+
+				trimIt = false;
+
+				if (UPPERconv) c = Character.toUpperCase(c);
+				if (sevenBitsConv && (c>=127)) { sb.append('?'); continue;}
+				if ((noCtrlChars||sevenBitsConv) && (c=='\t')) { sb.append(c); continue;}
+				if ((noCtrlChars||sevenBitsConv) && (c<32)) continue;
+				sb.append(c);
+			}
+			cb.position(i);
 		}
-		
-		if (oneNewLineAtEnd) {
+
+		/**
+		 * Replaces '[&lt;cr&gt;]&lt;lf&gt;.RN/' by a single space char, and re-inserts the new line in front of the
+		 * previous ' .R/x ' element.
+		 */
+		private void unfoldRemark() {
+			char x;
+			// backtrack all <cr>'s
+			int j = sb.length()-1;
+			while(foundCR && j>=0) {
+				x = sb.charAt(j);
+				if (x!='\r') break;
+				j--;
+			} // j points on the last non-<cr> char in sb
+			//truncate <CR> chars at end of output buffer
+			if ((j+1)<sb.length()) sb.setLength(j+1);
+			// append a single space char
+			sb.append(' ');
+			// Now re-insert the new line in front of the previous ' .R/x ' element:
+			j = sb.length()-5;
+			// look max 60 chars backward to find a ' .R/' sequence
+			while(j>=0 && sb.length()-j<=60) {
+				if (sb.charAt(j)==' ' && sb.charAt(j+1)=='.' && sb.charAt(j+2)=='R' && sb.charAt(j+3)=='/' ) {
+					// previous remark element found, insert [<cr>]<lf>
+					sb.setCharAt(j, '\n');
+					if (CRLFconv || (!LFconv && foundCR) ) sb.insert(j, '\r');
+					// remove space chars before the new [<cr>]<lf> sequence (but never the very first output char)
+					for (int k=j-1; k>=0 && k+released>0 && sb.charAt(k)==' ';k--) sb.deleteCharAt(k);
+					break;
+				}  
+				j--;
+			} 
+		}
+
+		/**
+		 * Completes conversions once all chars are converted, i.e. ensures one new line at end if requested.
+		 */
+		void finish() {
+			finished = true;
+			if (!active || !oneNewLineAtEnd) return;
+			char c;
 			int i = sb.length()-1;
 			int lastLFindex = -1;
 			//trace back to the last printable
@@ -524,23 +734,66 @@ public class Data {
 				if ((lastLFindex+1)<sb.length()) sb.delete(lastLFindex+1, sb.length());
 			}
 		}
-		return sb;
+
+		/**
+		 * @return how many chars at the beginning of the output buffer are final, i.e. won't change with the conversion of next chars
+		 */
+		int releasable() {
+			if (finished || !active) return sb.length();
+			// keep enough printables to hold a PSCRM remark look-back, and everything after them
+			int i = sb.length();
+			int n = 0;
+			while (n<KEEP && i>0) if (sb.charAt(--i)>32) n++;
+			if (n<KEEP) return 0;
+			// as well as spaces in front of them, which may be removed when unfolding
+			while (i>0 && sb.charAt(i-1)==' ') i--;
+			return i;
+		}
+
+		/**
+		 * Removes chars from the beginning of the output buffer.
+		 * @param n	count of chars, at most {@link #releasable()}
+		 */
+		void release(int n) {
+			sb.delete(0, n);
+			released += n;
+		}
 	}
 
 	public byte[] getBytes() {
+		return getBytes(0, length());
+	}
+
+	/**
+	 * Get a copy of a range of data bytes, without accessing the rest of the data.
+	 * 
+	 * @param start	index of the first byte
+	 * @param length	count of bytes, truncated at the end of data
+	 * @return a new array of bytes
+	 */
+	public byte[] getBytes(int start, int length) {
 		buffer.rewind();
-		byte[] ba = new byte[buffer.limit()]; 
-		System.arraycopy(buffer.array(),0,ba,0,ba.length); //the backing array may actually be longer than the present limit		
+		byte[] ba = new byte[Math.max(0, Math.min(length, buffer.limit()-start))];
+		if (ba.length==0) return ba;
+		if (buffer.hasArray()) 
+			System.arraycopy(buffer.array(),start,ba,0,ba.length); //the backing array may actually be longer than the present limit		
+		else {
+			ByteBuffer bb = buffer.duplicate();
+			bb.position(start);
+			bb.get(ba);
+		}
 		return ba;
 	}
 
 	/**
 	 * Get the backing byte array. Note that its size is often greater than the actual data.
+	 * When the data is not backed by an array, e.g. a memory-mapped file, a copy of the data bytes is returned.
 	 * 
 	 * @return backing array of bytes.
 	 */
 	public byte[] getArray() {
 		buffer.rewind();
+		if (!buffer.hasArray()) return getBytes();
 		return buffer.array();
 	}
 
@@ -559,9 +812,44 @@ public class Data {
 	 * @return one of ANY, IATA, CSV, TEXT, XML, EDIFACT, X12, TRADACOMS, SWIFT, PROPRIETARY, BINARY
 	 */
 	public DataFormat getFormat() {
+		if (dataformat==null) identify();
 		return dataformat;
 	}
 	
+	/**
+	 * Decodes the leading bytes of the data once, for all the look-ups that inspect the start of a message only:
+	 * the data format is identified too (unless the range is shorter than the identification range), and the 
+	 * chunk is then typically searched for mapping selection patterns.
+	 * <p>
+	 * As with {@link #identify()}, the format is identified from the characters decoded out of the first 
+	 * MSG_IDENTIFICATION_RANGE bytes, and not from as many characters of the chunk: both differ with multibyte
+	 * charsets. When the range is larger, these few bytes are decoded apart.
+	 * </p>
+	 * <p>
+	 * Nothing beyond the range is accessed, which leaves the rest of a memory-mapped file untouched.
+	 * </p>
+	 * 
+	 * @param range	count of leading bytes to decode, truncated at the end of data
+	 * @return the decoded chunk
+	 */
+	public String sniff(int range) {
+		int l = Math.max(0, Math.min(range, buffer.limit()));
+		if (leadingChars==null || leadingRange!=l) {
+			ByteBuffer bb = buffer.duplicate();
+			bb.rewind();
+			bb.limit(l);
+			leadingChars = charset.decode(bb).toString();
+			leadingRange = l;
+			if (l==Math.min(buffer.limit(), MSG_IDENTIFICATION_RANGE)) dataformat = identify(leadingChars);
+			else if (l>MSG_IDENTIFICATION_RANGE) {
+				bb.rewind();
+				bb.limit(MSG_IDENTIFICATION_RANGE);
+				dataformat = identify(charset.decode(bb).toString());
+			}
+		}
+		return leadingChars;
+	}
+	
 	/**
 	 * Inspect data and set the data format type.
 	 * 
@@ -586,15 +874,6 @@ public class Data {
 	 * @return one of ANY, IATA, CSV, TEXT, XML, EDIFACT, X12, TRADACOMS, SWIFT, PROPRIETARY, BINARY
 	 */
 	public static DataFormat identify(String msg) {
-		final String _XML_ID = "\\s*(?:<\\?xml .*\\?>)?\\s*<(\\w+:)?(\\w+)(?: |>).*"; //root element local name is in matching group 2
-		//final String _SDK_ID = "(ZCZC.*?\\s)?\\s*=(HEADER|PRIORITY|DESTINATION).*";
-		final String _TYPEB_ID = "(ZCZC.*?\\s)?\\s*\\cA?(Q.\\s)?[A-Z0-9]{7,8}\\s.*";
-		final String _EDIFACT_ID = "UN(A:|B)\\+.*";
-		final String _X12_ID = "ISA(.).{2}\\1.{10}\\1.*";
-		final String _SWIFT_ID = "\\{1:[FAL]\\d\\d.*";
-		final String _TRADACOMS_ID = "STX=ANA.*";
-		final String _CSV_ID = "(['\"]?)[^,;	'\"]*?\\1([,;	])((['\"]?)[^,;	'\"]*?\\4?\\2)+[^,;	]*";
-		
 		if (msg==null || msg.length()<5) return DataFormat.ANY; 
 		String msgChunk = msg;
 		if (msgChunk.length() >MSG_IDENTIFICATION_RANGE) {
@@ -603,15 +882,48 @@ public class Data {
 		}
 	   	// replace all CR and LF by spaces, to facilitate
 		msgChunk = msgChunk.replace( '\r', ' ' ).replace( '\n', ' ' );
-    	if (msgChunk.matches( _XML_ID )) return DataFormat.XML;
-    	if (msgChunk.matches( _TYPEB_ID )) return DataFormat.IATA;
-    	if (msgChunk.matches( _EDIFACT_ID )) return DataFormat.EDIFACT;
-    	if (msgChunk.matches( _X12_ID )) return DataFormat.X12;
-    	if (msgChunk.matches( _SWIFT_ID )) return DataFormat.SWIFT;
-    	if (msgChunk.matches( _TRADACOMS_ID )) return DataFormat.TRADACOMS;
-    	if (msgChunk.matches( _CSV_ID )) return DataFormat.CSV;
+    	if (startsWithTag(msgChunk) && _XML_ID.matcher(msgChunk).matches()) return DataFormat.XML;
+    	if (_TYPEB_ID.matcher(msgChunk).matches()) return DataFormat.IATA;
+    	if (isSingleLine(msgChunk)) {
+    		//the patterns below end with .* that merely requires a single line, hence only their head is checked
+    		if (msgChunk.startsWith("UNB+") || msgChunk.startsWith("UNA:+")) return DataFormat.EDIFACT;
+    		if (msgChunk.startsWith("ISA") && msgChunk.length()>17 
+    				&& msgChunk.charAt(6)==msgChunk.charAt(3) && msgChunk.charAt(17)==msgChunk.charAt(3)) return DataFormat.X12;
+    		if (msgChunk.startsWith("{1:") && "FAL".indexOf(msgChunk.charAt(3))>=0 
+    				&& isDigit(msgChunk.charAt(4)) && isDigit(msgChunk.charAt(5))) return DataFormat.SWIFT;
+    		if (msgChunk.startsWith("STX=ANA")) return DataFormat.TRADACOMS;
+    	} else {
+    		if (_EDIFACT_ID.matcher(msgChunk).matches()) return DataFormat.EDIFACT;
+    		if (_X12_ID.matcher(msgChunk).matches()) return DataFormat.X12;
+    		if (_SWIFT_ID.matcher(msgChunk).matches()) return DataFormat.SWIFT;
+    		if (_TRADACOMS_ID.matcher(msgChunk).matches()) return DataFormat.TRADACOMS;
+    	}
+    	if (_CSV_ID.matcher(msgChunk).matches()) return DataFormat.CSV;
     	     	
 		return DataFormat.ANY;
 	}
 
+	//tells whether the first non-blank char is a '<', as required by the XML identification pattern
+	private static boolean startsWithTag(String s) {
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c!=' ' && c!='\t' && c!='\n' && c!=0x0B && c!='\f' && c!='\r') return c=='<';
+		}
+		return false;
+	}
+
+	//tells whether a regex '.' matches every char of s one by one, i.e. no line terminator nor surrogate pair
+	private static boolean isSingleLine(String s) {
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c=='\n' || c=='\r' || c=='\u0085' || c=='\u2028' || c=='\u2029' 
+					|| (c>=Character.MIN_SURROGATE && c<=Character.MAX_SURROGATE)) return false;
+		}
+		return true;
+	}
+
+	private static boolean isDigit(char c) {
+		return c>='0' && c<='9';
+	}
+
 }
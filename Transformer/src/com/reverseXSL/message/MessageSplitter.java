@@ -0,0 +1,314 @@
+package com.reverseXSL.message;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits a stream of concatenated messages (e.g. a file containing thousands of IATA Type-B or SWIFT
+ * messages) into individual messages, incrementally, as the stream is read.
+ * <p>
+ * Message boundaries are detected with regular expressions, in one of three manners:
+ * <ul>
+ * <li>{@link #startingWith(String)}: every match starts a new message, e.g. the SWIFT basic header block '{1:';</li>
+ * <li>{@link #separatedBy(String)}: matches are separators, removed from the messages, e.g. one or more blank lines;</li>
+ * <li>{@link #enveloped(String, String)}: each message runs from a match of the start pattern up to and including a
+ * match of the end pattern, e.g. the 'ZCZC' and 'NNNN' telex envelope of Type-B messages; data in-between
+ * envelopes is skipped.</li>
+ * </ul>
+ * Patterns are matched against the raw bytes viewed as ISO-8859-1 characters, such that message bytes are passed
+ * on unchanged whatever their actual charset, provided it is ASCII-compatible (ISO-8859-x, UTF-8, windows-125x...).
+ * A pattern may not match an empty string, and a match may not exceed {@value #MAX_MATCH_LENGTH} chars.
+ * </p><p>
+ * Blank pieces (made only of spaces and control characters) are never reported as messages, but counted as skipped bytes.
+ * A MessageSplitter is immutable and can be shared; each call to {@link #split(InputStream)} returns a new
+ * {@link MessageSplitter.Pieces} iteration.
+ * </p>
+ *
+ * @author bernardH
+ */
+public final class MessageSplitter {
+
+	/** longest pattern match that is guaranteed to be detected across successive stream reads */
+	public static final int MAX_MATCH_LENGTH = 1024;
+	private static final int READ_SIZE = 65536;
+
+	private static final int _START = 1;
+	private static final int _SEPARATOR = 2;
+	private static final int _ENVELOPE = 3;
+
+	/**
+	 * IATA Type-B messages in a telex envelope, starting with 'ZCZC' and ending with 'NNNN'.
+	 */
+	public static final MessageSplitter TYPEB_ENVELOPES = enveloped("ZCZC", "NNNN");
+
+	/**
+	 * SWIFT FIN messages, each starting with a basic header block '{1:'.
+	 */
+	public static final MessageSplitter SWIFT_BLOCKS = startingWith("\\{1:");
+
+	private final int mode;
+	private final Pattern start;
+	private final Pattern end;
+
+	private MessageSplitter(int mode, Pattern start, Pattern end) {
+		if (start.matcher("").matches() || (end!=null && end.matcher("").matches()))
+			throw new IllegalArgumentException("A message boundary pattern may not match an empty string");
+		this.mode = mode;
+		this.start = start;
+		this.end = end;
+	}
+
+	/**
+	 * @param regex	the pattern matching the beginning of every message, in MULTILINE mode
+	 * @return a splitter where each message begins with a match of the pattern; the data ahead of the
+	 * first match, if not blank, makes a message too
+	 */
+	public static MessageSplitter startingWith(String regex) {
+		return new MessageSplitter(_START, Pattern.compile(regex, Pattern.MULTILINE), null);
+	}
+
+	/**
+	 * @param regex	the pattern matching the separator between messages, in MULTILINE mode
+	 * @return a splitter where messages are delimited by separators that are not part of the messages
+	 */
+	public static MessageSplitter separatedBy(String regex) {
+		return new MessageSplitter(_SEPARATOR, Pattern.compile(regex, Pattern.MULTILINE), null);
+	}
+
+	/**
+	 * @param startRegex	the pattern matching the beginning of a message envelope, in MULTILINE mode
+	 * @param endRegex	the pattern matching the end of a message envelope, in MULTILINE mode
+	 * @return a splitter where messages are enclosed in envelopes, including the envelope start and end; an
+	 * envelope that is not terminated at the end of the stream still makes a message
+	 */
+	public static MessageSplitter enveloped(String startRegex, String endRegex) {
+		return new MessageSplitter(_ENVELOPE, Pattern.compile(startRegex, Pattern.MULTILINE),
+				Pattern.compile(endRegex, Pattern.MULTILINE));
+	}
+
+	/**
+	 * Starts splitting a stream. The stream is read in chunks, as pieces are requested, and is not closed.
+	 *
+	 * @param in	the source of concatenated messages
+	 * @return the successive pieces of the stream
+	 */
+	public Pieces split(InputStream in) {
+		return new Pieces(in);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		switch (mode) {
+		case _START: return "messages starting with /"+start.pattern()+"/";
+		case _SEPARATOR: return "messages separated by /"+start.pattern()+"/";
+		default: return "messages enveloped in /"+start.pattern()+"/ ... /"+end.pattern()+"/";
+		}
+	}
+
+	/**
+	 * A single message cut from the stream.
+	 */
+	public static final class Piece {
+		private final byte[] bytes;
+		private final long offset;
+
+		Piece(byte[] bytes, long offset) {
+			this.bytes = bytes;
+			this.offset = offset;
+		}
+
+		/**
+		 * @return the message bytes, exactly as read from the stream
+		 */
+		public byte[] getBytes() {
+			return bytes;
+		}
+
+		/**
+		 * @return the position of the first message byte in the stream
+		 */
+		public long getOffset() {
+			return offset;
+		}
+	}
+
+	/**
+	 * The iteration over the messages of a stream.
+	 */
+	public final class Pieces {
+		private final InputStream in;
+		private byte[] buf = new byte[READ_SIZE];
+		private final Latin1 chars = new Latin1();
+		private int pos = 0; //start of the data not yet reported nor skipped
+		private int lim = 0; //end of the data read so far
+		private long base = 0; //stream offset of buf[0]
+		private int resume = 0; //no match found below this index for the current search
+		private boolean started = false; //a message start, or an envelope start, was found at pos
+		private boolean eof = false;
+		private long skipped = 0;
+		private Matcher m = null;
+
+		Pieces(InputStream in) {
+			this.in = in;
+		}
+
+		/**
+		 * @return the next message, or null when the stream is exhausted
+		 * @throws IOException	as would result from read errors from the input stream
+		 */
+		public Piece next() throws IOException {
+			Piece p;
+			while (true) {
+				switch (mode) {
+				case _START:
+					if (!started) {
+						if (find(start, pos)) {
+							p = cut(pos, m.start(), m.start());
+							started = true;
+							if (p!=null) return p;
+							continue;
+						}
+					} else if (find(start, pos+1)) {
+						return cut(pos, m.start(), m.start());
+					}
+					break;
+				case _SEPARATOR:
+					if (find(start, pos)) {
+						skipped += m.end() - m.start();
+						p = cut(pos, m.start(), m.end());
+						if (p!=null) return p;
+						continue;
+					}
+					break;
+				default: //_ENVELOPE
+					if (!started) {
+						if (find(start, pos)) {
+							skip(m.start());
+							started = true;
+							continue;
+						}
+						//no need to keep data outside envelopes
+						if (lim - pos > MAX_MATCH_LENGTH) skip(lim - MAX_MATCH_LENGTH);
+					} else if (find(end, pos+1)) {
+						started = false;
+						return cut(pos, m.end(), m.end());
+					}
+				}
+				//no complete piece in the buffer
+				if (eof) {
+					if (mode==_ENVELOPE && !started) {
+						skip(lim);
+						return null;
+					}
+					return cut(pos, lim, lim);
+				}
+				read();
+			}
+		}
+
+		/**
+		 * @return count of bytes that did not belong to any message, e.g. blank lines, separators, or any data
+		 * outside envelopes
+		 */
+		public long getSkippedBytes() {
+			return skipped;
+		}
+
+		/**
+		 * Looks for the next pattern match, which must also be stable, i.e. not affected by more data to come.
+		 * @return true when found, with the match in m
+		 */
+		private boolean find(Pattern p, int from) {
+			from = Math.max(from, resume - MAX_MATCH_LENGTH);
+			if (from > lim) return false;
+			chars.length = lim;
+			m = p.matcher(chars);
+			m.useTransparentBounds(true);
+			m.useAnchoringBounds(false);
+			m.region(from, lim);
+			if (m.find() && (eof || !m.hitEnd())) return true;
+			resume = lim;
+			return false;
+		}
+
+		/**
+		 * Reports buf[from] to buf[to-1] as a message, unless blank, and moves on to 'next'.
+		 * @return the message or null if blank
+		 */
+		private Piece cut(int from, int to, int next) {
+			Piece p = null;
+			if (isBlank(from, to)) skipped += to - from;
+			else {
+				byte[] ba = new byte[to-from];
+				System.arraycopy(buf, from, ba, 0, ba.length);
+				p = new Piece(ba, base+from);
+			}
+			pos = next;
+			resume = 0;
+			return p;
+		}
+
+		private void skip(int to) {
+			skipped += to - pos;
+			pos = to;
+			resume = 0;
+		}
+
+		private boolean isBlank(int from, int to) {
+			for (int i=from; i<to; i++) if (buf[i] > ' ' || buf[i] < 0) return false;
+			return true;
+		}
+
+		private void read() throws IOException {
+			int drop = pos - MAX_MATCH_LENGTH; //keep some data ahead, for look-behind and line anchors
+			if (drop > 0) {
+				//drop the data already reported
+				System.arraycopy(buf, drop, buf, 0, lim-drop);
+				lim -= drop;
+				base += drop;
+				resume = Math.max(0, resume-drop);
+				pos -= drop;
+			}
+			if (buf.length - lim < READ_SIZE/2) {
+				byte[] ba = new byte[buf.length*2];
+				System.arraycopy(buf, 0, ba, 0, lim);
+				buf = ba;
+			}
+			int nbin = in.read(buf, lim, buf.length-lim);
+			if (nbin < 0) eof = true;
+			else lim += nbin;
+		}
+
+		/**
+		 * The bytes read so far, as ISO-8859-1 characters.
+		 */
+		private final class Latin1 implements CharSequence {
+			int length = 0;
+
+			public char charAt(int index) {
+				if (index >= length) throw new IndexOutOfBoundsException();
+				return (char) (buf[index] & 0xFF);
+			}
+
+			public int length() {
+				return length;
+			}
+
+			public CharSequence subSequence(int start, int end) {
+				if (end > length) throw new IndexOutOfBoundsException();
+				char[] ca = new char[end-start];
+				for (int i=start; i<end; i++) ca[i-start] = (char) (buf[i] & 0xFF);
+				return new String(ca);
+			}
+
+			public String toString() {
+				return subSequence(0, length).toString();
+			}
+		}
+	}
+
+}
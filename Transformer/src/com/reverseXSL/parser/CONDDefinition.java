@@ -92,6 +92,11 @@ final class CONDDefinition {
 	 */
 	String verifPattern = "";
 
+	/**
+	 * The {@link #verifPattern} compiled once at DEF load time.
+	 */
+	Pattern verifRegex = null;
+
 	/**
 	 * Tells whether to Record or Throw exceptions bound to the verification of
 	 * this condition.
@@ -151,6 +156,12 @@ final class CONDDefinition {
 		this.name = m.group(1);
 		this.verifPattern = m.group(2);
 		String restOfLine = m.group(3);
+		//compile the verification pattern once for all parsings
+		try {
+			this.verifRegex = Pattern.compile(this.verifPattern);
+		} catch (Exception e) {
+			throw new ParserException.DEFErrorInvalidRegex(this.verifPattern,_linenb,e.getLocalizedMessage());
+		}
 
 		p = Pattern.compile(_DEPTH_level);
 		m = p.matcher(restOfLine);
@@ -77,6 +77,11 @@ final class DataDefinition extends GSDDefinition {
 	 */
 	String validPattern = "";
 	
+	/**
+	 * The {@link #validPattern} compiled once at DEF load time.
+	 */
+	Pattern validRegex = null;
+	
 	
 	/**
 	 * The expected minimum character count of the data element value.
@@ -121,14 +126,32 @@ final class DataDefinition extends GSDDefinition {
 			fname = n; vPattern = vp;
 		}
 		
+		/**
+		 * Single pass check of each character against a lookup table of allowed US-ASCII characters,
+		 * such as built by {@link DataDefinition#charTable(String)}; yields exactly the same 
+		 * outcome as <code>in.matches("[...]*")</code> with the equivalent character class.
+		 * 
+		 * @param in	the input data element value (a String or a Slice)
+		 * @param allowed	lookup table indexed by character value
+		 * @return	true when all characters are allowed (also true on the empty string)
+		 */
+		boolean checkTable(CharSequence in, boolean[] allowed) {
+			char c;
+			for (int i=0; i<in.length(); i++ ) {
+				c = in.charAt(i);
+				if (c>=allowed.length || !allowed[c]) return false;
+			}
+			return true;
+		}
+
 		/**
 		 * Validates compliance of each character in the data element value 
 		 * against a named character set.
 		 * 
-		 * @param in	the input data element value (as String)
+		 * @param in	the input data element value (a String or a Slice)
 		 * @return	true when complying.
 		 */
-		public abstract boolean check(String in);
+		public abstract boolean check(CharSequence in);
 		
 		/**
 		 * Default rendering as string must be implemented by sub-classes
@@ -149,6 +172,29 @@ final class DataDefinition extends GSDDefinition {
 	 */
 	CharValidation charValidation = null;
 	
+	//lookup tables of the built-in character sets, shared by all definitions (read-only)
+	private static final String _UPPER = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+	private static final String _LOWER = "abcdefghijklmnopqrstuvwxyz";
+	private static final String _DIGITS = "0123456789";
+	private static final boolean[] UPALPHANUM_TABLE = charTable(_UPPER+_DIGITS);
+	private static final boolean[] UPALPHA_TABLE = charTable(_UPPER);
+	private static final boolean[] ALPHANUM_TABLE = charTable(_UPPER+_LOWER+_DIGITS);
+	private static final boolean[] ALPHA_TABLE = charTable(_UPPER+_LOWER);
+	private static final boolean[] IATA_TABLE = charTable(_UPPER+_DIGITS+" .-");
+	private static final boolean[] DIGIT_TABLE = charTable(_DIGITS);
+	private static final boolean[] NUMERIC_TABLE = charTable(_DIGITS+",. +-");
+	
+	/**
+	 * Builds a lookup table over US-ASCII where allowed characters are flagged true.
+	 * @param chars	the exhaustive list of allowed characters (all below U+0080)
+	 * @return	a table of 128 booleans indexed by character value
+	 */
+	static boolean[] charTable(String chars) {
+		boolean[] t = new boolean[128];
+		for (int i=0; i<chars.length(); i++) t[chars.charAt(i)] = true;
+		return t;
+	}
+	
 	
 	DataDefinition(Definition refDef) {
 		super(refDef);
@@ -190,8 +236,10 @@ final class DataDefinition extends GSDDefinition {
 		this.xmltag = m.group(3);
 		restOfLine = m.group(4);
 		
+		//compile the validation pattern once for all parsings
+		this.validRegex = Pattern.compile(this.validPattern);
 		//must ensure that there is at least one capturing group within the validation pattern
-		if (Pattern.compile(this.validPattern).matcher("").groupCount()<1)
+		if (this.validRegex.matcher("").groupCount()<1)
 			throw new ParserException.DEFErrorMissingCapturingGroup(_linenb,line,this.validPattern);
 //		Generalised use of NOTAG (sept 2009)
 //		//must ensure that the xmltag is not 'NOTAG'
@@ -225,8 +273,8 @@ final class DataDefinition extends GSDDefinition {
 				throw new ParserException.DEFErrorBadDepthVersusCOND("D (Data)",_linenb,line,this.depth,this.conditionName,((CONDDefinition)nCond.get(this.conditionName)).depthScope);			
 			//m.group(2) is the character used for the quote
 			this.conditionFeed = m.group(3);
-			//ensure that the feed can be compiled
-			Pattern.compile(this.conditionFeed).matcher("");
+			//compile the feed once for all parsings
+			this.conditionFeedRegex = Pattern.compile(this.conditionFeed);
 			restOfLine = m.group(4);
 		}
 		else {
@@ -261,8 +309,8 @@ final class DataDefinition extends GSDDefinition {
 			if (m.matches()) {
 				charValidation = new CharValidation("UpperCase-AlphaNumerical","[A-Z0-9]*") {
 
-					public boolean check(String in) {
-						return in.matches(vPattern);
+					public boolean check(CharSequence in) {
+						return checkTable(in, UPALPHANUM_TABLE);
 					}
 
 					public String toString() {
@@ -280,8 +328,8 @@ final class DataDefinition extends GSDDefinition {
 			if (m.matches()) {
 				charValidation = new CharValidation("UpperCase-Alphabetical","[A-Z]*") {
 
-					public boolean check(String in) {
-						return in.matches(vPattern);
+					public boolean check(CharSequence in) {
+						return checkTable(in, UPALPHA_TABLE);
 					}
 
 					public String toString() {
@@ -299,8 +347,8 @@ final class DataDefinition extends GSDDefinition {
 			if (m.matches()) {
 				charValidation = new CharValidation("AlphaNumerical","[A-Za-z0-9]*") {
 
-					public boolean check(String in) {
-						return in.matches(vPattern);
+					public boolean check(CharSequence in) {
+						return checkTable(in, ALPHANUM_TABLE);
 					}
 
 					public String toString() {
@@ -318,8 +366,8 @@ final class DataDefinition extends GSDDefinition {
 			if (m.matches()) {
 				charValidation = new CharValidation("Alphabetical","[A-Za-z]*") {
 
-					public boolean check(String in) {
-						return in.matches(vPattern);
+					public boolean check(CharSequence in) {
+						return checkTable(in, ALPHA_TABLE);
 					}
 
 					public String toString() {
@@ -337,8 +385,8 @@ final class DataDefinition extends GSDDefinition {
 			if (m.matches()) {
 				charValidation = new CharValidation("IATA-CharacterSet","[A-Z0-9 .-]*") {
 
-					public boolean check(String in) {
-						return in.matches(vPattern);
+					public boolean check(CharSequence in) {
+						return checkTable(in, IATA_TABLE);
 					}
 
 					public String toString() {
@@ -356,8 +404,8 @@ final class DataDefinition extends GSDDefinition {
 			if (m.matches()) {
 				charValidation = new CharValidation("Numerical-Digit","[0-9]*") {
 
-					public boolean check(String in) {
-						return in.matches(vPattern);
+					public boolean check(CharSequence in) {
+						return checkTable(in, DIGIT_TABLE);
 					}
 
 					public String toString() {
@@ -375,8 +423,8 @@ final class DataDefinition extends GSDDefinition {
 			if (m.matches()) {
 				charValidation = new CharValidation("Numerical","[0-9,. +-]*") {
 
-					public boolean check(String in) {
-						return in.matches(vPattern);
+					public boolean check(CharSequence in) {
+						return checkTable(in, NUMERIC_TABLE);
 					}
 
 					public String toString() {
@@ -394,9 +442,12 @@ final class DataDefinition extends GSDDefinition {
 			if (m.matches()) {
 				charValidation = new CharValidation("ASCII-CharacterSet",".*") {
 
-					public boolean check(String in) {
-						for (int i=0; i<in.length(); i++ )
-							if ((in.charAt(i)<'\u0020')||(in.charAt(i)>'\u007E')) return false;
+					public boolean check(CharSequence in) {
+						char c;
+						for (int i=0; i<in.length(); i++ ) {
+							c = in.charAt(i);
+							if ((c<'\u0020')||(c>'\u007E')) return false;
+						}
 						return true;
 					}
 
@@ -415,7 +466,7 @@ final class DataDefinition extends GSDDefinition {
 			if (m.matches()) {
 				charValidation = new CharValidation("As-Matched",validPattern) {
 
-					public boolean check(String in) {
+					public boolean check(CharSequence in) {
 						return true; //validation already occured while cutting the data element value
 					}
 
@@ -432,16 +483,27 @@ final class DataDefinition extends GSDDefinition {
 			p = Pattern.compile("^REPEATED-([^\\s]{1})(.*?)\\1\\s*(.*)$");
 			m = p.matcher(restOfLine);
 			if (m.matches()) {
+				//compile the repeated pattern once for all parsings
+				final Pattern repeatedRegex;
+				try {
+					repeatedRegex = Pattern.compile(m.group(2));
+				} catch (Exception e) {
+					throw new ParserException.DEFErrorInvalidRegex(m.group(2),_linenb,e.getLocalizedMessage());
+				}
 				charValidation = new CharValidation("Repeated-Pattern",m.group(2)) {
 
-					public boolean check(String in) {
+					public boolean check(CharSequence in) {
 						if (in.length()<=0) return true; //repeated 0 times is valid
-						Pattern p = Pattern.compile(vPattern);
-						Matcher m = p.matcher(in);
-						StringBuffer val = new StringBuffer();
-						while (m.find()) val = val.append(m.group()); //concatenating all pattern repetitions
-						if (val.toString().equals(in)) return true; //...must yield again the original string
-						return false;
+						Matcher m = repeatedRegex.matcher(in);
+						//all pattern repetitions must tile the original string, i.e. each non-empty
+						//match must start exactly where the previous one ended, till the very end
+						int covered = 0;
+						while (m.find()) {
+							if (m.end()==m.start()) continue; //empty matches do not contribute
+							if (m.start()!=covered) return false; //a gap with unmatched chars
+							covered = m.end();
+						}
+						return (covered==in.length());
 					}
 
 					public String toString() {
@@ -457,18 +519,33 @@ final class DataDefinition extends GSDDefinition {
 			p = Pattern.compile("^DATE-([^\\s]{1})(.*?)\\1\\s*(.*)$");
 			m = p.matcher(restOfLine);
 			if (m.matches()) {
+				//build the strict date formatter once; a wrong simple date format pattern
+				//leaves it null and then every value fails the validation
+				SimpleDateFormat df = null;
+				try {
+					df = new SimpleDateFormat(m.group(2));
+					df.setLenient(false);
+				} catch (IllegalArgumentException e) {
+					// The simple date format pattern is wrong
+					df = null;
+				}
+				final SimpleDateFormat prototype = df;
 				charValidation = new CharValidation("DATE",m.group(2)) {
 
-					public boolean check(String in) {
+					//SimpleDateFormat is not thread-safe whereas Definitions are shared by parallel Parsers:
+					//each thread works with its own clone of the prototype formatter
+					private final ThreadLocal formatter = new ThreadLocal() {
+						protected Object initialValue() {
+							return prototype==null? null : prototype.clone();
+						}
+					};
+
+					public boolean check(CharSequence in) {
 						// A date pattern is required
-						if (in.length()>0) {
+						if (in.length()>0 && prototype!=null) {
 							try {
-								SimpleDateFormat formatter = new SimpleDateFormat(vPattern);
-								formatter.setLenient(false);
-								Date date = (Date)formatter.parse(in);
+								Date date = ((SimpleDateFormat)formatter.get()).parse(in.toString());
 								if (date != null) return true;
-							} catch (IllegalArgumentException e) {
-								// The simple date format pattern is wrong
 							} catch (ParseException e) {
 								// The given string does not match the simple date format pattern
 							}
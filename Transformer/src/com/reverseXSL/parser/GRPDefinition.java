@@ -54,6 +54,11 @@ final class GRPDefinition extends GSDDefinition {
 	 */
 	String idPattern = "";
 	
+	/**
+	 * The {@link #idPattern} compiled once at DEF load time.
+	 */
+	Pattern idRegex = null;
+
 
 	GRPDefinition(Definition refDef) {
 		super(refDef);
@@ -90,8 +95,8 @@ final class GRPDefinition extends GSDDefinition {
 		this.idPattern = m.group(1);
 		this.xmltag = m.group(2);
 		restOfLine = m.group(3);
-		//ensure that the id-pattern can be compiled
-		Pattern.compile(this.idPattern).matcher("");
+		//compile the id-pattern once for all parsings
+		this.idRegex = Pattern.compile(this.idPattern);
 
 		p = Pattern.compile(_MOC_min_max_ACC_acc);
 		m = p.matcher(restOfLine);
@@ -120,8 +125,8 @@ final class GRPDefinition extends GSDDefinition {
 			if (this.depth<((CONDDefinition)nCond.get(this.conditionName)).depthScope)
 				throw new ParserException.DEFErrorBadDepthVersusCOND("GRP",_linenb,line,this.depth,this.conditionName,((CONDDefinition)nCond.get(this.conditionName)).depthScope);				
 			this.conditionFeed = m.group(2);
-			//ensure that the feed can be compiled
-			Pattern.compile(this.conditionFeed).matcher("");
+			//compile the feed once for all parsings
+			this.conditionFeedRegex = Pattern.compile(this.conditionFeed);
 			restOfLine = m.group(3);
 		}
 		else {
@@ -6,6 +6,7 @@ import java.io.LineNumberReader;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.ListIterator;
+import java.util.regex.Pattern;
 
 import com.reverseXSL.types.Cardinality;
 import com.reverseXSL.types.Handling;
@@ -148,6 +149,12 @@ abstract class GSDDefinition {
 	 */
 	String conditionFeed = "";
 
+	/**
+	 * The {@link #conditionFeed} compiled once at DEF load time, or null when the
+	 * element is not conditional. Only used by the Parser when the feed contains a '('.
+	 */
+	Pattern conditionFeedRegex = null;
+
 	/**
 	 * Contains the ordered list of sub-elements within the segment or group definition.
 	 * <p>
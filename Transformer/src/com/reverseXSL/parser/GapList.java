@@ -0,0 +1,120 @@
+package com.reverseXSL.parser;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * A list backed by a gap buffer: an array with a free gap that follows the place of the latest
+ * insertion or removal.
+ * <p>
+ * Inserting or removing elements at (or near) the same place as the previous edit costs a constant time,
+ * whereas an ArrayList shifts the entire remainder of the list each time. This is precisely the pattern of
+ * the Parser, which moves a list iterator forward (and marginally backward) over the sub-elements of a
+ * segment or message, removes matched elements into groups and inserts groups and marks in their place.
+ * The total cost of gap moves is bounded by the distance traveled by the iterator, hence linear over the
+ * parsing of a list.
+ * </p><p>
+ * Indexed access is a constant time as with an ArrayList. Implements the same semantics as the ArrayList,
+ * including the fail-fast iterators, minus the capacity tuning methods.
+ * </p>
+ *
+ * @author bernardH
+ */
+final class GapList<E> extends AbstractList<E> implements RandomAccess {
+
+	private Object[] elts;
+	private int gapStart = 0; //index of the first slot in the gap, i.e. also the count of elements before the gap
+	private int gapEnd; //index of the first element after the gap
+
+	GapList() {
+		this(16);
+	}
+
+	GapList(int capacity) {
+		elts = new Object[Math.max(4, capacity)];
+		gapEnd = elts.length;
+	}
+
+	public int size() {
+		return gapStart + elts.length - gapEnd;
+	}
+
+	//array slot of the element at the given index
+	private int slot(int index) {
+		return (index < gapStart) ? index : index + gapEnd - gapStart;
+	}
+
+	private void checkIndex(int index, int max) {
+		if (index < 0 || index > max)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+	}
+
+	@SuppressWarnings("unchecked")
+	public E get(int index) {
+		checkIndex(index, size() - 1);
+		return (E) elts[slot(index)];
+	}
+
+	@SuppressWarnings("unchecked")
+	public E set(int index, E elt) {
+		checkIndex(index, size() - 1);
+		int s = slot(index);
+		E old = (E) elts[s];
+		elts[s] = elt;
+		return old;
+	}
+
+	public void add(int index, E elt) {
+		checkIndex(index, size());
+		moveGap(index);
+		if (gapStart == gapEnd) grow();
+		elts[gapStart++] = elt;
+		modCount++;
+	}
+
+	@SuppressWarnings("unchecked")
+	public E remove(int index) {
+		checkIndex(index, size() - 1);
+		moveGap(index);
+		E old = (E) elts[gapEnd];
+		elts[gapEnd++] = null; //let gc do its work
+		modCount++;
+		return old;
+	}
+
+	public void clear() {
+		Arrays.fill(elts, null);
+		gapStart = 0;
+		gapEnd = elts.length;
+		modCount++;
+	}
+
+	//move the gap such that it starts at the given index
+	private void moveGap(int index) {
+		if (index < gapStart) {
+			int n = gapStart - index;
+			System.arraycopy(elts, index, elts, gapEnd - n, n);
+			Arrays.fill(elts, index, Math.min(gapStart, gapEnd - n), null);
+			gapStart = index;
+			gapEnd -= n;
+		} else if (index > gapStart) {
+			int n = index - gapStart;
+			System.arraycopy(elts, gapEnd, elts, gapStart, n);
+			Arrays.fill(elts, Math.max(gapEnd, gapStart + n), gapEnd + n, null);
+			gapStart += n;
+			gapEnd += n;
+		}
+	}
+
+	//double the capacity, the gap taking all of the new space
+	private void grow() {
+		int tail = elts.length - gapEnd;
+		Object[] larger = new Object[elts.length * 2];
+		System.arraycopy(elts, 0, larger, 0, gapStart);
+		System.arraycopy(elts, gapEnd, larger, larger.length - tail, tail);
+		gapEnd = larger.length - tail;
+		elts = larger;
+	}
+
+}
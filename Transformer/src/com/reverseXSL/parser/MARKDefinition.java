@@ -64,6 +64,11 @@ final class MARKDefinition extends GSDDefinition {
 	 */
 	String evalPattern = "";
 	
+	/**
+	 * The {@link #evalPattern} compiled once at DEF load time.
+	 */
+	Pattern evalRegex = null;
+	
 	/**
 	 * The yes-string is generated as XML element value when 
 	 * the {@link #evalPattern evaluation} yields TRUE.
@@ -130,8 +135,8 @@ final class MARKDefinition extends GSDDefinition {
 				throw new ParserException.DEFErrorBadCONDName("MARK",_linenb,line,this.conditionName);
 			//m.group(2) is the character used for the quote
 			this.evalPattern = m.group(3);
-			//ensure that the pattern can be compiled
-			Pattern.compile(this.evalPattern).matcher("");
+			//compile the pattern once for all parsings
+			this.evalRegex = Pattern.compile(this.evalPattern);
 			restOfLine = m.group(4);
 
 			p = Pattern.compile(_yesString_noString);
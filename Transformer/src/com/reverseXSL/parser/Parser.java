@@ -1,34 +1,42 @@
 package com.reverseXSL.parser;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.LineNumberReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.FactoryConfigurationError;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.TransformerFactoryConfigurationError;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.sax.SAXSource;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.XMLFilterImpl;
 
 import com.reverseXSL.types.Cardinality;
 import com.reverseXSL.types.Handling;
@@ -109,6 +117,12 @@ public final class Parser {
 	
 	private boolean removeNonRepeatNilOptElts = false; 
 
+	//executor of the parallel verification of occurences and conditions, null for sequential verification
+	private ExecutorService verificationExecutor = null;
+
+	//count of recorded occurences verified by one parallel task
+	private static final int VERIFICATION_CHUNK = 4096;
+
 	//recorded exceptions list
 	private ArrayList<ParserException> recExceptions;  //is ArrayList<BrokerException>
 
@@ -220,7 +234,7 @@ public final class Parser {
 
 	//aggregated data pieces used as item in the collection 'taggedMessage' before tagging!
 	private class UnTaggedElement {
-		String data;
+		CharSequence data; //a slice of the input message, or the extracted value; see Slice
 		int atLine = 0;
 		int atOffset = 0;
 		
@@ -228,12 +242,19 @@ public final class Parser {
 		UnTaggedElement() {
 			super();
 		}
-		UnTaggedElement(String s, int lin, int off) {
+		UnTaggedElement(CharSequence s, int lin, int off) {
 			data = s;
 			atLine = lin;
 			atOffset = off;
 		}
 
+		//the data as a String, for exception arguments; a slice is then replaced by its copy, 
+		//such that all exceptions about the same element share it
+		String text() {
+			if (data!=null && !(data instanceof String)) data = data.toString();
+			return (String)data;
+		}
+
 		public String toString() {
 			return ("L:"+atLine+" O:"+atOffset+" RAW:'"+data+"'\n");
 		}
@@ -249,7 +270,7 @@ public final class Parser {
 	private class TaggedElement extends UnTaggedElement {
 		String tag = "";
 		String suffix = null;
-		ArrayList<UnTaggedElement> subElts = null; 
+		List<UnTaggedElement> subElts = null; 
 		Parser.Token token = null; //temporary storage for the collected namedCondition token of this element
 		
 		TaggedElement() {
@@ -297,7 +318,8 @@ public final class Parser {
 		TaggedSegment(String tg, UnTaggedElement utelt,String nsSuffix) {
 			super(tg, utelt);
 			suffix = nsSuffix;
-			subElts = new ArrayList<UnTaggedElement>();
+			//edited in place through the matchSGList() cursor, see GapList
+			subElts = new GapList<UnTaggedElement>();
 		}
 		public String toString() {
 			return ("L:"+atLine+" O:"+atOffset+" SEGMENT:'"+data+"' as <"+tag+">\n");
@@ -312,7 +334,8 @@ public final class Parser {
 			suffix = nsSuffix;
 			tag = tg;
 			data = "...entire message...";
-			subElts = new ArrayList<UnTaggedElement>();
+			//edited in place through the matchSGList() cursor, see GapList
+			subElts = new GapList<UnTaggedElement>();
 			atLine = lin;
 			atOffset = off;
 		}
@@ -349,7 +372,95 @@ public final class Parser {
 		public String toString(int indent) {
 			return(INDENT.substring(0, indent*3)+this.toString());
 		}
-	
+
+	}
+
+	//unchecked carrier of an IOException raised while the LineCursor pulls lines from its reader
+	private static class LineReadFailure extends RuntimeException {
+		private static final long serialVersionUID = -5004612236904316185L;
+		LineReadFailure(IOException cause) {
+			super(cause);
+		}
+	}
+
+	//list iterator over the message sub-elements that pulls the source lines on demand from a LineNumberReader.
+	//Lines are appended to the list only when the cursor reaches its end, such that the matching proceeds in step
+	//with the reading: the un-matched tail of the list never exceeds the one element of look-ahead, and the
+	//look-back required by matchSGList() (one element, plus MARKs inserted since the last match) always stays
+	//within the list. Consequently, inserting a tagged group or removing a grouped element (cursor.add/remove)
+	//costs no longer a shift of the entire remainder of the message, and the raw input is never held twice.
+	//Once the matching stops, be it complete or not, drain() appends the lines never reached, such that they
+	//still appear as un-matched (RAW) data in the message.
+	//Implements the same semantics as the ArrayList list iterator (minus concurrent modification checks).
+	private class LineCursor implements ListIterator<UnTaggedElement> {
+		private final List<UnTaggedElement> list;
+		private LineNumberReader reader;
+		private int next = 0; //index of the element returned by next()
+		private int lastRet = -1; //index of the last element returned by next() or previous(), -1 after add/remove
+
+		LineCursor(List<UnTaggedElement> lst, LineNumberReader dataIn) {
+			list = lst;
+			reader = dataIn;
+		}
+
+		//read the next source line into the list, return false at end of input
+		private boolean pull() {
+			if (reader==null) return false;
+			String lineIn;
+			try {
+				lineIn = reader.readLine();
+			} catch (IOException e) {
+				throw new LineReadFailure(e);
+			}
+			if (lineIn==null) {
+				reader = null;
+				return false;
+			}
+			list.add(new UnTaggedElement(lineIn,reader.getLineNumber(),0));
+			return true;
+		}
+
+		//read all remaining source lines into the list, without moving the cursor
+		void drain() {
+			while (pull()) ;
+		}
+
+		public boolean hasNext() {
+			return (next<list.size()) || pull();
+		}
+		public UnTaggedElement next() {
+			if (!hasNext()) throw new java.util.NoSuchElementException();
+			lastRet = next++;
+			return list.get(lastRet);
+		}
+		public boolean hasPrevious() {
+			return next>0;
+		}
+		public UnTaggedElement previous() {
+			if (next<=0) throw new java.util.NoSuchElementException();
+			lastRet = --next;
+			return list.get(lastRet);
+		}
+		public int nextIndex() {
+			return next;
+		}
+		public int previousIndex() {
+			return next-1;
+		}
+		public void remove() {
+			if (lastRet<0) throw new IllegalStateException();
+			list.remove(lastRet);
+			next = lastRet;
+			lastRet = -1;
+		}
+		public void set(UnTaggedElement elt) {
+			if (lastRet<0) throw new IllegalStateException();
+			list.set(lastRet,elt);
+		}
+		public void add(UnTaggedElement elt) {
+			list.add(next++,elt);
+			lastRet = -1;
+		}
 	}
 
 	//------------------------methods-------------------------------------------
@@ -471,6 +582,25 @@ public final class Parser {
 	}
 	
 	
+	/**
+	 * This method must be called before parsing in itself and would cause (if set non-null)
+	 * the verification of occurences (min/max cardinalities) and named conditions, that takes 
+	 * place after matching the whole message, to be run in parallel: occurences in chunks, and
+	 * every named condition apart.
+	 * <p>
+	 * This is only worth for very large messages, with numerous occurences and named condition
+	 * tokens. Exceptions are anyway recorded in the same order as with the sequential verification, 
+	 * such that the results are identical. 
+	 * <p>
+	 * The executor is not shut down by the Parser. The default value is null, i.e. sequential verification.
+	 * 
+	 * @param executor	the executor running the verification tasks, or null
+	 */
+	public void setVerificationExecutor(ExecutorService executor) {
+		verificationExecutor = executor;
+	}
+
+
 	/**
 	 * Supporting method providing a clean starting point for a new parsing
 	 */
@@ -629,18 +759,152 @@ public final class Parser {
 
 	}
 
-	private void verifyOccurences() throws ParserException {
+	/**
+	 * An exception found while verifying occurences or conditions, kept aside to be recorded
+	 * later on, in the very same order as with a sequential verification.
+	 */
+	private final class Finding {
+		final ParserException e;
+		final Occurence occElt;
+		final CONDDefinition cond;
+		final String bits;
+		final int atLine, atOffset;
+
+		Finding(ParserException e, Occurence occElt, CONDDefinition cond, String bits, int ln, int lo) {
+			this.e = e;
+			this.occElt = occElt;
+			this.cond = cond;
+			this.bits = bits;
+			this.atLine = ln;
+			this.atOffset = lo;
+		}
+
+		void record() throws ParserException {
+			if (occElt!=null) recordException(e, occElt);
+			else if (cond!=null) recordException(e, cond, bits, atLine, atOffset);
+			else throw e.thrown();
+		}
+	}
+
+	/**
+	 * Records the finding right away, else adds it to the findings to record later on.
+	 */
+	private void found(List<Finding> findings, Finding f) throws ParserException {
+		if (findings==null) f.record();
+		else findings.add(f);
+	}
+
+	/**
+	 * A parallel verification task: either a chunk of occurences, or one named condition.
+	 */
+	private final class Verification implements Callable<List<Finding>> {
+		final int from, to;
+		final String name;
+		final CONDDefinition condDef;
+
+		Verification(int from, int to) {
+			this.from = from;
+			this.to = to;
+			this.name = null;
+			this.condDef = null;
+		}
+
+		Verification(String name, CONDDefinition condDef) {
+			this.from = 0;
+			this.to = 0;
+			this.name = name;
+			this.condDef = condDef;
+		}
+
+		/**
+		 * @return the findings, in order
+		 */
+		List<Finding> verify() throws ParserException {
+			List<Finding> findings = new ArrayList<Finding>();
+			if (condDef==null) verifyOccurences(from, to, findings);
+			else verifyCondition(name, condDef, findings);
+			return findings;
+		}
+
+		public List<Finding> call() throws ParserException {
+			//exceptions are recorded, not thrown, in this thread too
+			ParserException.beginRecording();
+			try {
+				return verify();
+			} finally {
+				ParserException.endRecording();
+			}
+		}
+	}
+
+	/**
+	 * Verifies occurences, then named conditions, sequentially or in parallel with the verification executor.
+	 */
+	private void verify() throws ParserException {
+		if (verificationExecutor==null) {
+			verifyOccurences(0, this.recMinMax.size(), null);
+			verifyConditions();
+			return;
+		}
+		//occurences in chunks, the first one being verified by this thread, then every named condition apart
+		List<Verification> tasks = new ArrayList<Verification>();
+		for (int i=VERIFICATION_CHUNK; i<this.recMinMax.size(); i+=VERIFICATION_CHUNK)
+			tasks.add(new Verification(i, Math.min(i+VERIFICATION_CHUNK, this.recMinMax.size())));
+		Iterator iset = refDef.namedCond.entrySet().iterator();
+		while (iset.hasNext()) {
+			Map.Entry men = (Map.Entry)iset.next();
+			if (recNamedCond.containsKey(men.getKey())) 
+				tasks.add(new Verification((String)men.getKey(), (CONDDefinition)men.getValue()));
+		}
+		List<Future<List<Finding>>> futures = new ArrayList<Future<List<Finding>>>(tasks.size());
+		for (int i=0; i<tasks.size(); i++) futures.add(verificationExecutor.submit(tasks.get(i)));
+		List<Finding> findings = new ArrayList<Finding>();
+		try {
+			verifyOccurences(0, Math.min(VERIFICATION_CHUNK, this.recMinMax.size()), findings);
+			for (int i=0; i<findings.size(); i++) findings.get(i).record();
+			//then record the findings of every task, in order
+			for (int i=0; i<tasks.size(); i++) {
+				findings = collect(futures.get(i), tasks.get(i));
+				for (int j=0; j<findings.size(); j++) findings.get(j).record();
+			}
+		} finally {
+			//tasks left are useless once an exception is thrown
+			for (int i=0; i<futures.size(); i++) futures.get(i).cancel(true);
+		}
+	}
+
+	/**
+	 * Waits for the findings of a verification task, or else works them out in this thread if interrupted.
+	 */
+	private List<Finding> collect(Future<List<Finding>> future, Verification task) throws ParserException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+			if (e.getCause() instanceof Error) throw (Error) e.getCause();
+		}
+		return task.verify();
+	}
+
+	/**
+	 * Verifies the min/max occurences of recorded elements.
+	 * 
+	 * @param from	index of the first element in recMinMax
+	 * @param to	index after the last element
+	 * @param findings	where to add the exceptions found, else null to record them right away
+	 */
+	private void verifyOccurences(int from, int to, List<Finding> findings) throws ParserException {
 		Occurence occElt;
 		int occ;
-		if (this.recMinMax.size()==0) return; //nothing to check
-		ListIterator<Occurence> iter = this.recMinMax.listIterator();
-		while (iter.hasNext()){
-			occElt=iter.next();
+		for (int i=from; i<to; i++) {
+			occElt=this.recMinMax.get(i);
 			occ=occElt.loop[occElt.depth];
 			if (occ<occElt.definition.occMin) 
-				recordException(new ParserException.ParserErrorOccBelowMin(occ,occElt.definition.occMin), occElt);
+				found(findings, new Finding(new ParserException.ParserErrorOccBelowMin(occ,occElt.definition.occMin), occElt, null, null, 0, 0));
 			if (occ>occElt.definition.occMax) 
-				recordException(new ParserException.ParserErrorOccOverMax(occ,occElt.definition.occMax), occElt);
+				found(findings, new Finding(new ParserException.ParserErrorOccOverMax(occ,occElt.definition.occMax), occElt, null, null, 0, 0));
 		}
 	}
 	
@@ -655,65 +919,75 @@ public final class Parser {
 	private void verifyConditions() throws ParserException {
 		//loop on the named conditions
 		Iterator iset;
-		ListIterator ilst;
 		Map.Entry men;
-		CONDDefinition condDef;
-		String name, tokString, bits;
-		String currentOcc; //like -1-1-2-1-3 so that all levels are included up to depthScope
-		Parser.Token tok = null;
-		Parser.Token firstTok = null;
 
 		Set defSet = (Set) refDef.namedCond.entrySet();
 		
 		iset = defSet.iterator();
 		while (iset.hasNext()) {
 			men = (Map.Entry)iset.next();
-			name = (String) men.getKey();
-			condDef = (CONDDefinition) men.getValue();
-			//set the context for the first scope check
-			tokString=""; bits="";
-			currentOcc="";
-			if (recNamedCond.containsKey(name)) {
-				//tokens were collected
-				firstTok=null;
-				//extract the ArrayList and concatenate tokens in order at the specified level and above
-				ilst = recNamedCond.get(name).listIterator();
-				while (ilst.hasNext()) {
-					tok = (Parser.Token)ilst.next();
-					if (firstTok==null) firstTok=tok;
-					if (tok.depth<condDef.depthScope) throw new ParserException.ParserErrorDepthBelowCOND(name);
-					//Above test is potentially useless test because this test is performed at DEF load time!
-					//tok.depth>=condDef.depthScope is implied
-					if (currentOcc.length()<1) currentOcc = occurenceOf(tok.loop,condDef.depthScope); //first time
-					if (currentOcc.equals(occurenceOf(tok.loop,condDef.depthScope))) {
-						tokString = tokString.concat(tok.collected);
-						bits = bits.concat("<"+tok.sourceTag+">");
-						continue;
-					}
-					//scope break taking place:
-					//1. verify condition
-					if (!tokString.matches(condDef.verifPattern)) recordException(new ParserException.ParserFailedCOND(name, condDef.verifPattern, tokString),condDef, bits, firstTok.atLine, firstTok.atOffset);
-					//2. set the context for the next scope check
-					firstTok=tok;
-					tokString = new String(tok.collected);
-					bits = new String("<"+tok.sourceTag+">");
-					currentOcc = occurenceOf(tok.loop,condDef.depthScope);
-				}
-				//implicit scope break at end of while
-				//verify condition
-				if (!tokString.matches(condDef.verifPattern)) {
-					if (firstTok==null) firstTok=new Token("","",(new int[]{0}),0,"",0,0);
-					recordException(new ParserException.ParserFailedCOND(name, condDef.verifPattern, tokString),condDef, bits, firstTok.atLine, firstTok.atOffset );
-				}
-			} 
-			//ELSE: no tokens were collected. 
-			//In this case, the condition must NOT be checked (for instance, it can be an interdependency 
-			//entirely inside an optional structure)
+			verifyCondition((String) men.getKey(), (CONDDefinition) men.getValue(), null);
 		}
 
 		//we looped on every condition
 		return;
 	}
+
+	/**
+	 * Verifies one named condition.
+	 * 
+	 * @param findings	where to add the exceptions found, else null to record them right away
+	 */
+	private void verifyCondition(String name, CONDDefinition condDef, List<Finding> findings) throws ParserException {
+		ListIterator ilst;
+		String tokString, bits;
+		String currentOcc; //like -1-1-2-1-3 so that all levels are included up to depthScope
+		Parser.Token tok = null;
+		Parser.Token firstTok = null;
+
+		//set the context for the first scope check
+		tokString=""; bits="";
+		currentOcc="";
+		if (recNamedCond.containsKey(name)) {
+			//tokens were collected
+			firstTok=null;
+			//extract the ArrayList and concatenate tokens in order at the specified level and above
+			ilst = recNamedCond.get(name).listIterator();
+			while (ilst.hasNext()) {
+				tok = (Parser.Token)ilst.next();
+				if (firstTok==null) firstTok=tok;
+				if (tok.depth<condDef.depthScope) {
+					found(findings, new Finding(new ParserException.ParserErrorDepthBelowCOND(name), null, null, null, 0, 0));
+					return;
+				}
+				//Above test is potentially useless test because this test is performed at DEF load time!
+				//tok.depth>=condDef.depthScope is implied
+				if (currentOcc.length()<1) currentOcc = occurenceOf(tok.loop,condDef.depthScope); //first time
+				if (currentOcc.equals(occurenceOf(tok.loop,condDef.depthScope))) {
+					tokString = tokString.concat(tok.collected);
+					bits = bits.concat("<"+tok.sourceTag+">");
+					continue;
+				}
+				//scope break taking place:
+				//1. verify condition
+				if (!condDef.verifRegex.matcher(tokString).matches()) found(findings, new Finding(new ParserException.ParserFailedCOND(name, condDef.verifPattern, tokString),null, condDef, bits, firstTok.atLine, firstTok.atOffset));
+				//2. set the context for the next scope check
+				firstTok=tok;
+				tokString = new String(tok.collected);
+				bits = new String("<"+tok.sourceTag+">");
+				currentOcc = occurenceOf(tok.loop,condDef.depthScope);
+			}
+			//implicit scope break at end of while
+			//verify condition
+			if (!condDef.verifRegex.matcher(tokString).matches()) {
+				if (firstTok==null) firstTok=new Token("","",(new int[]{0}),0,"",0,0);
+				found(findings, new Finding(new ParserException.ParserFailedCOND(name, condDef.verifPattern, tokString),null, condDef, bits, firstTok.atLine, firstTok.atOffset ));
+			}
+		} 
+		//ELSE: no tokens were collected. 
+		//In this case, the condition must NOT be checked (for instance, it can be an interdependency 
+		//entirely inside an optional structure)
+	}
 	
 	/**
 	 * Supporting method for recording exceptions.
@@ -751,13 +1025,15 @@ public final class Parser {
 		String sctxt="--context not set--";
 		if (ctxt instanceof TaggedGroup) sctxt = "GROUP<"+((TaggedGroup)ctxt).tag+">";
 		else if (ctxt instanceof TaggedSegment) sctxt = "SEG<"+((TaggedSegment)ctxt).tag+">";
-		else sctxt=ctxt.data;
+		else sctxt=ctxt.text();
 		ParserException prex = new ParserException.ParserDataError(def.xmltag,def.description,e,sctxt,ctxt.atLine,ctxt.atOffset, def.impact);
 		recordException(prex,def.impact,def.handling);
 	}
 	
 	/**
 	 * Supporting method for recording exceptions.
+	 * <p>Exceptions created while parsing have no stack trace (see {@link ParserException#fillInStackTrace()}),
+	 * such that recording is cheap; the stack trace is only captured for the one that is actually thrown.</p>
 	 * 
 	 * @throws ParserException 
 	 */
@@ -766,11 +1042,11 @@ public final class Parser {
 		//then check handling and exceptions counts versus impact and throw as applicable
 		if (imp==Impact.FATAL) this.fatalCount++;
 		this.allExceptionsCount++;
-		if (handl==Handling.THROW) throw prex;
+		if (handl==Handling.THROW) throw prex.thrown();
 		if (fatalCount>maxFatal)
-			throw new ParserException.ParserExceededFATALExceptions(maxFatal,prex);
+			throw new ParserException.ParserExceededFATALExceptions(maxFatal,prex).thrown();
 		if (allExceptionsCount>maxAllExceptions)
-			throw new ParserException.ParserExceededAllExceptions(maxAllExceptions,prex);
+			throw new ParserException.ParserExceededAllExceptions(maxAllExceptions,prex).thrown();
 		return;
 	}
 
@@ -783,33 +1059,16 @@ public final class Parser {
 	 * @param def	looked up element Definition
 	 * @param parElt	parent element in the tagged structure under construction
 	 */
-	private void recordCondition(int[] lp, int dep, String d, GSDDefinition def, TaggedElement elt) {
-		String s; StringBuffer sb;
+	private void recordCondition(int[] lp, int dep, CharSequence d, GSDDefinition def, TaggedElement elt) {
+		String s;
 		if (!def.cardinality.equals(Cardinality.CONDITIONAL)) return;
 		if (def.conditionFeed.indexOf('(')<0) {
 			//simple plain text not containing any bracket
 			s = def.conditionFeed;
 		} else {
-			//conditionFeed is a regex used to extract value from original data
-			Pattern ptrn = Pattern.compile(def.conditionFeed);
-			sb = new StringBuffer(d);
-			extractCompositeValue(sb, ptrn);
-			//if a release char is defined and exists within the extracted value, 
-			// then clean-up the extracted value!
-			if (def.parentDef!=null && def.parentDef.releaseChar!=null 
-					&& sb.indexOf(def.parentDef.releaseChar.toString())>=0) {
-				// clean-up: restore released chars in their UN-released state
-				char r = def.parentDef.releaseChar.charValue();
-				StringBuffer sbClean = new StringBuffer(sb.length());
-				for (int i=0;i<sb.length();i++) 
-					if (sb.charAt(i)==r) {
-						i++; //skip this one and always take the next
-						if (i<sb.length()) sbClean.append(sb.charAt(i));
-					}
-					else sbClean.append(sb.charAt(i));
-				s = sbClean.toString();
-			} 
-			else s = sb.toString(); //no release char interference, just the plain extracted value
+			//conditionFeed is a regex used to extract value from original data, released chars restored
+			s = extractValue(def.conditionFeedRegex.matcher(d), d, 
+					(def.parentDef!=null)? def.parentDef.releaseChar:null, null).toString();
 		}
 		elt.token = new Token(def.conditionName,s,lp,dep,elt.tag,elt.atLine, elt.atOffset);
 	}
@@ -864,6 +1123,72 @@ public final class Parser {
 		return extractCompositeValue (sb, ptrn,null);
 	}
 	
+	/**
+	 * Extracts the value of a data element or condition feed in a single pass: the concatenated value of 
+	 * all capturing groups, as {@link #extractCompositeValue(StringBuffer, Pattern)}, in which released 
+	 * characters are restored in their un-released state (i.e. the release characters are removed).
+	 * <p>
+	 * In the common case, the groups yield one contiguous range of the data (e.g. a single top-level 
+	 * capturing group, matching once) that contains no release character: the value is then a slice of 
+	 * the data, and nothing is copied nor allocated besides the slice. Else the value is built in a single 
+	 * buffer and returned as a String.
+	 * 
+	 * @param matcher	a matcher of the pattern on the data, reset by this method
+	 * @param d		the data
+	 * @param rel	the release character, or null
+	 * @param elt	the element whose offset is moved to the first char of the extracted part, or null
+	 * @return	the extracted value
+	 */
+	private CharSequence extractValue(Matcher matcher, CharSequence d, Character rel, UnTaggedElement elt) {
+		int mEnd = 0; //current right-most matcher group end - used to exclude capturing sub-groups
+		int from = -1; //start of the contiguous range extracted so far
+		int to = -1; //end of the contiguous range extracted so far
+		StringBuffer sb = null; //only when extracted pieces are not contiguous
+		int gc = matcher.groupCount();
+		matcher.reset();
+		while (matcher.find()) {
+			for (int gn = 1; gn <= gc; gn++) {
+				int s = matcher.start(gn);
+				if (s < mEnd) continue; //a nested group, or an (optional?)group that is null in which case .start==-1
+				int e = matcher.end(gn);
+				if (from < 0) from = s;
+				else if (sb != null || s != to) {
+					//not adjacent to the range extracted so far: concatenate
+					if (sb == null) sb = new StringBuffer(d.length()).append(d, from, to);
+					sb.append(d, s, e);
+				}
+				to = e;
+				mEnd = e;
+			}
+		}
+		if (elt != null) elt.atOffset += (from < 0)? d.length():from;
+		if (from < 0) return "";
+		if (sb == null) {
+			if (rel == null || indexOf(d, rel.charValue(), from, to) < 0) 
+				return (from == 0 && to == d.length())? d : Slice.of(d, from, to);
+			sb = new StringBuffer(to-from).append(d, from, to);
+		}
+		if (rel == null) return sb.toString();
+		//restore released chars in their UN-released state, in place
+		char r = rel.charValue();
+		int w = 0;
+		for (int i = 0; i < sb.length(); i++) {
+			if (sb.charAt(i) == r) {
+				i++; //skip this one and always take the next
+				if (i >= sb.length()) break;
+			}
+			sb.setCharAt(w++, sb.charAt(i));
+		}
+		sb.setLength(w);
+		return sb.toString();
+	}
+	
+	private static int indexOf(CharSequence cs, char c, int from, int to) {
+		for (int i = from; i < to; i++)
+			if (cs.charAt(i) == c) return i;
+		return -1;
+	}
+	
 	
 
 	/**
@@ -883,14 +1208,14 @@ public final class Parser {
 		TaggedSegment seg = new TaggedSegment(sDef.xmltag,utelt,sDef.suffix); //created with an empty subElts list
 		SEGDefinition.CutFunction.CutContext cc = sDef.cutFunction.cut(seg.data, seg.atLine, seg.atOffset);
 		while (sDef.cutFunction.hasNext(cc)) {
-			String s = sDef.cutFunction.getNext(cc); //there's a possibility of optional capturing groups returning null string pieces
+			CharSequence s = sDef.cutFunction.getNext(cc); //there's a possibility of optional capturing groups returning null string pieces
 			if (s==null) continue;
 			seg.subElts.add(new UnTaggedElement(s,sDef.cutFunction.getLineNb(cc),sDef.cutFunction.getOffset(cc)));
 		}
 
 		if (seg.subElts.size()<=0) {
 			recordException(new ParserException.ParserUnableTo(sDef.cutFunction.fname,
-					sDef.cutFunction.cutPattern,seg.data), utelt, sDef);
+					sDef.cutFunction.cutPattern,seg.text()), utelt, sDef);
 			return null;
 		}
 		//attempt to match the whole segment contents
@@ -981,7 +1306,7 @@ public final class Parser {
 				} else
 					s = "";
 				//4. check against pattern
-				if (s.matches(((MARKDefinition)lookElt).evalPattern))
+				if (((MARKDefinition)lookElt).evalRegex.matcher(s).matches())
 				mrk.data = ((MARKDefinition)lookElt).yesString;
 				else mrk.data = ((MARKDefinition)lookElt).noString;
 				
@@ -1026,11 +1351,11 @@ public final class Parser {
 					//we enter here for TaggedSegment and child classes, i.e. TaggedMessage!!!
 
 					if (backToUnmatchedLookElt==null) { 
-						recordException(new ParserException.ParserNoMatchingDef(cursElt.data), cursElt, gsDef);
+						recordException(new ParserException.ParserNoMatchingDef(cursElt.text()), cursElt, gsDef);
 						return (subEltCount>0?true:false); //no need to try
 					}
 					//ELSE
-					recordException(new ParserException.ParserTryingToSkip(cursElt.data), cursElt, gsDef);
+					recordException(new ParserException.ParserTryingToSkip(cursElt.text()), cursElt, gsDef);
 					//if we are still here (recording above did not escalate in a throw Exception)
 					//we shall try to skip the bad input data and attempt to resume parsing on the last good DEF
 					
@@ -1087,7 +1412,7 @@ public final class Parser {
 			//E.1. The definition is a Data Element
 			if (lookElt instanceof DataDefinition) {
 				// D-A-T-A   E-L-E-M-E-N-T
-				pattern = Pattern.compile(((DataDefinition)lookElt).validPattern);
+				pattern = ((DataDefinition)lookElt).validRegex;
 				occ=0;
 				
 				while(true) { //DATA ELEMENT
@@ -1105,32 +1430,15 @@ public final class Parser {
 					if (matcher.matches()) {
 						//we have a matching element and definition
 						if (occ==lookElt.occAccept) backToUnmatchedLookElt = null;
-						matcher.reset();
 						//extract the data element value, tag the element, and update with extracted value
+						//(released chars restored), mostly as a slice of the message
 				        TaggedData elt = new TaggedData(lookElt.xmltag,cursElt);
-				        StringBuffer sb = new StringBuffer(cursElt.data);
-						elt.atOffset += extractCompositeValue(sb,pattern);
-						//sb is updated by the method above to contain the extracted value
-						//if a release char is defined and exists within the extracted value, 
-						// then clean-up the extracted value!
-						if (lookElt.parentDef!=null && lookElt.parentDef.releaseChar!=null 
-								&& sb.indexOf(lookElt.parentDef.releaseChar.toString())>=0) {
-							// clean-up: restore released chars in their UN-released state
-							char r = lookElt.parentDef.releaseChar.charValue();
-							StringBuffer sbClean = new StringBuffer(sb.length());
-							for (int i=0;i<sb.length();i++) 
-								if (sb.charAt(i)==r) {
-									i++; //skip this one and always take the next
-									if (i<sb.length()) sbClean.append(sb.charAt(i));
-								}
-								else sbClean.append(sb.charAt(i));
-							elt.data = sbClean.toString();
-						} 
-						else elt.data = sb.toString(); //no release char interference, just the plain extracted value
+						elt.data = extractValue(matcher, cursElt.data, 
+								(lookElt.parentDef!=null)? lookElt.parentDef.releaseChar:null, elt);
 						//validate the character set
 						if (!((DataDefinition)lookElt).charValidation.check(elt.data)) {
 							recordException(new ParserException.ParserInvalidValue(((DataDefinition)lookElt).charValidation.fname,
-									((DataDefinition)lookElt).charValidation.vPattern,elt.data), cursElt, lookElt);
+									((DataDefinition)lookElt).charValidation.vPattern,elt.text()), cursElt, lookElt);
 						}
 						
 						//test whether removeNonRepeatableNilOptionalElement is applicable to this one
@@ -1158,11 +1466,11 @@ public final class Parser {
 						//ELSE, back to the normal case
 						//validate the min/max length
 						if (elt.data.length()<((DataDefinition)lookElt).lengthMin) {
-							recordException(new ParserException.ParserDataUnderSized(((DataDefinition)lookElt).lengthMin,elt.data), 
+							recordException(new ParserException.ParserDataUnderSized(((DataDefinition)lookElt).lengthMin,elt.text()), 
 									cursElt, lookElt);
 						}
 						if ((((DataDefinition)lookElt).lengthMax>=0)&&(elt.data.length()>((DataDefinition)lookElt).lengthMax)) {
-							recordException(new ParserException.ParserDataOverSized(((DataDefinition)lookElt).lengthMax,elt.data), 
+							recordException(new ParserException.ParserDataOverSized(((DataDefinition)lookElt).lengthMax,elt.text()), 
 									cursElt, lookElt);
 						}
 						
@@ -1208,13 +1516,13 @@ public final class Parser {
 							//push for backtracking if too many successive failures
 							if ((++successiveMissMatches)>= maxSuccessiveMisMatches) {
 								recordException(new ParserException.ParserNowBacktracking(maxSuccessiveMisMatches,pattern.pattern(),
-										cursElt.data), cursElt, lookElt);
+										cursElt.text()), cursElt, lookElt);
 								//skip to the end of DEFs for current group or segment
 								while (lookup.hasNext()) lookElt = (GSDDefinition)lookup.next();
 							}
 							else
 								recordException(new ParserException.ParserMissingMandatoryElt(lookElt.xmltag,pattern.pattern(),
-										cursElt.data), cursElt, lookElt);
+										cursElt.text()), cursElt, lookElt);
 							//still here? means the exception was recorded, so go on
 							
 						} else {
@@ -1254,7 +1562,7 @@ public final class Parser {
 			//E.2. The definition is a Segment
 			if (lookElt instanceof SEGDefinition) {
 				//S-E-G-M-E-N-T
-				pattern = Pattern.compile(((SEGDefinition)lookElt).idPattern);
+				pattern = ((SEGDefinition)lookElt).idRegex;
 				occ=0;
 				while(true) { //SEGMENT
 					occ++;
@@ -1352,13 +1660,13 @@ public final class Parser {
 							//push for backtracking if too many successive failures
 							if ((++successiveMissMatches)>= maxSuccessiveMisMatches) {
 								recordException(new ParserException.ParserNowBacktracking(maxSuccessiveMisMatches,pattern.pattern(),
-										cursElt.data), cursElt, lookElt);
+										cursElt.text()), cursElt, lookElt);
 								//skip to the end of DEFs for current group or segment
 								while (lookup.hasNext()) lookElt = (GSDDefinition)lookup.next();
 							}
 							else
 								recordException(new ParserException.ParserMissingMandatorySeg(lookElt.xmltag,pattern.pattern(),
-										cursElt.data), cursElt, lookElt);
+										cursElt.text()), cursElt, lookElt);
 							//still here? means the exception was recorded, so go on
 
 						} else {
@@ -1399,7 +1707,7 @@ public final class Parser {
 			//E.3. The definition is a Group
 			if (lookElt instanceof GRPDefinition) {
 				//G-R-O-U-P
-				pattern = Pattern.compile(((GRPDefinition)lookElt).idPattern);
+				pattern = ((GRPDefinition)lookElt).idRegex;
 				occ=0;
 				while(true) { //GROUP
 					occ++;
@@ -1492,13 +1800,13 @@ public final class Parser {
 							//push for backtracking if too many successive failures
 							if ((++successiveMissMatches)>= maxSuccessiveMisMatches) {
 								recordException(new ParserException.ParserNowBacktracking(maxSuccessiveMisMatches,pattern.pattern(),
-										cursElt.data), cursElt, lookElt);
+										cursElt.text()), cursElt, lookElt);
 								//skip to the end of DEFs for current group or segment
 								while (lookup.hasNext()) lookElt = (GSDDefinition)lookup.next();
 							}
 							else
 								recordException(new ParserException.ParserMissingMandatoryGroup(lookElt.xmltag,pattern.pattern(),
-										cursElt.data), cursElt, lookElt);
+										cursElt.text()), cursElt, lookElt);
 							//still here? means the exception was recorded, so go on
 
 						} else {
@@ -1537,7 +1845,7 @@ public final class Parser {
 			}			
 			
 			//E.4. The definition is nothing else that we know about
-			throw new ParserException.ParserInternalError(lookElt.getName(), Impact.FATAL);
+			throw new ParserException.ParserInternalError(lookElt.getName(), Impact.FATAL).thrown();
 			//block of unreachable code
 			
 		} //END of external while(true) loop
@@ -1566,6 +1874,15 @@ public final class Parser {
 	 * @throws ParserException
 	 */
 	public int parse(final String msgID, LineNumberReader dataIn, final int startLineNb) throws IOException, ParserException {
+		ParserException.beginRecording();
+		try {
+			return parseLines(msgID, dataIn, startLineNb);
+		} finally {
+			ParserException.endRecording();
+		}
+	}
+
+	private int parseLines(final String msgID, LineNumberReader dataIn, final int startLineNb) throws IOException, ParserException {
 		
 		this.reset();
 		messageID = msgID;
@@ -1580,68 +1897,71 @@ public final class Parser {
 
 			message = new TaggedMessage(refDef.msgDef.xmltag,atLineNb,0,refDef.msgDef.suffix);
 			//check MSG identification match against first line
-			if ((refDef.msgDef.idPattern.length()>0) && (!Pattern.compile(refDef.msgDef.idPattern).matcher(lineIn).find())) 
+			if ((refDef.msgDef.idPattern.length()>0) && (!refDef.msgDef.idRegex.matcher(lineIn).find())) 
 				recordException(new ParserException.ParserMessageIdentificationFailure(refDef.msgDef.idPattern,lineIn),
 						message, refDef.msgDef);
-			//do the first level cut and load in message
-			//SUGG consider optimised implementations for large messages by not 
-			//entirely loading the message here below but building an intelligent cursor that loads on demand...
-			//(TIP: sub-class the ListIterator in an anonymous inner class that extend the next() method)
-			while (lineIn!=null) {
-				message.subElts.add(new UnTaggedElement(lineIn,atLineNb,0));
-				lineIn = dataIn.readLine();
-				atLineNb = dataIn.getLineNumber();
-			}
+			//do the first level cut: only the first line is loaded in message here, the next ones 
+			//are pulled on demand by the cursor as the matching progresses (see LineCursor)
+			if (lineIn!=null) message.subElts.add(new UnTaggedElement(lineIn,atLineNb,0));
 			//launch the matching at depth 1 (for the whole message contents)
-			ListIterator<UnTaggedElement> cursor = message.subElts.listIterator();
-			//stupid case but...if there's nothing available at the cursor, always throw! an exception (MSG is always MANDATORY)
-			if (!cursor.hasNext()) {
-				ParserException prex = new ParserException.ParserInternalErrorEmptyDEF(Impact.FATAL);
-				recordException(prex, Impact.FATAL, Handling.THROW);
-				throw prex; //shall never get here because thrown while recorded just above...
-			}
-			int[] loopMSG = { 1 };
-			if (matchSGList(loopMSG, 1, refDef.msgDef, cursor,message)) {
-				//matching done, but is there anything left unmatched in the source message?
-				if (cursor.hasNext()) {
-					//oooups, there's source data left after the message
-					UnTaggedElement before = cursor.previous();
-					cursor.next();
-					UnTaggedElement after = cursor.next();
-					recordException(new ParserException.ParserInputNotExhausted(after.data), 
-							before, refDef.msgDef);
-					//if we arrive here (no exception thrown) the rest of the processing 
-					//is identical to steps just next 
+			LineCursor cursor = new LineCursor(message.subElts,dataIn);
+			try {
+				//stupid case but...if there's nothing available at the cursor, always throw! an exception (MSG is always MANDATORY)
+				if (!cursor.hasNext()) {
+					ParserException prex = new ParserException.ParserInternalErrorEmptyDEF(Impact.FATAL);
+					recordException(prex, Impact.FATAL, Handling.THROW);
+					throw prex; //shall never get here because thrown while recorded just above...
 				}
-				compileConditions(message,recNamedCond); //group them in recNamedCond hash table
-				filterOccurences();
-				verifyOccurences();
-				verifyConditions();
-				return allExceptionsCount; //so far, this is the one exit point when everything went fine
-			}
-			else
-			{ //MSG(segment) matching failed. Exceptions have been already recorded (and not thrown 
-				//because we got here!) Just ensure we return a non-zero Exceptions Count
-				if (allExceptionsCount>0) {
+				int[] loopMSG = { 1 };
+				boolean matched;
+				try {
+					matched = matchSGList(loopMSG, 1, refDef.msgDef, cursor,message);
+				} finally {
+					//whatever the outcome, even thrown, the lines not reached yet are part of the message
+					cursor.drain();
+				}
+				if (matched) {
+					//matching done, but is there anything left unmatched in the source message?
+					if (cursor.hasNext()) {
+						//oooups, there's source data left after the message
+						UnTaggedElement before = cursor.previous();
+						cursor.next();
+						UnTaggedElement after = cursor.next();
+						recordException(new ParserException.ParserInputNotExhausted(after.text()), 
+								before, refDef.msgDef);
+						//if we arrive here (no exception thrown) the rest of the processing 
+						//is identical to steps just next 
+					}
 					compileConditions(message,recNamedCond); //group them in recNamedCond hash table
 					filterOccurences();
-					verifyOccurences();
-					verifyConditions();
-					return allExceptionsCount;
+					verify();
+					return allExceptionsCount; //so far, this is the one exit point when everything went fine
 				}
-				//ELSE, we haven't been able to match any bit of the message DEF itself
-				UnTaggedElement last = message.subElts.get(0);
-				if (cursor.hasPrevious()) last = cursor.previous();
-				if (last!=null) {
+				else
+				{ //MSG(segment) matching failed. Exceptions have been already recorded (and not thrown 
+					//because we got here!) Just ensure we return a non-zero Exceptions Count
+					if (allExceptionsCount>0) {
+						compileConditions(message,recNamedCond); //group them in recNamedCond hash table
+						filterOccurences();
+						verify();
+						return allExceptionsCount;
+					}
+					//ELSE, we haven't been able to match any bit of the message DEF itself
+					UnTaggedElement last = message.subElts.get(0);
+					if (cursor.hasPrevious()) last = cursor.previous();
+					if (last!=null) {
+						ParserException prex = new ParserException.ParserNoMsgEletsFound("MSG",
+							"Entire Message",last.text(),last.atLine, last.atOffset,Impact.FATAL);
+						recordException(prex, Impact.FATAL, Handling.THROW);
+						throw prex; //shall never get here because thrown while recorded just above...					
+					}
 					ParserException prex = new ParserException.ParserNoMsgEletsFound("MSG",
-						"Entire Message",last.data,last.atLine, last.atOffset,Impact.FATAL);
+							"Entire Message","?????",0,0,Impact.FATAL);
 					recordException(prex, Impact.FATAL, Handling.THROW);
 					throw prex; //shall never get here because thrown while recorded just above...					
 				}
-				ParserException prex = new ParserException.ParserNoMsgEletsFound("MSG",
-						"Entire Message","?????",0,0,Impact.FATAL);
-				recordException(prex, Impact.FATAL, Handling.THROW);
-				throw prex; //shall never get here because thrown while recorded just above...					
+			} catch (LineReadFailure lrf) {
+				throw (IOException) lrf.getCause();
 			}
 			
 		} 
@@ -1659,7 +1979,7 @@ public final class Parser {
 				readCnt = dataIn.read(cbuf,0,MAX);
 			}
 			//fall back onto the alternative parsing method
-			return parse(messageID, sbuf.toString(),startLineNb);
+			return parseString(messageID, sbuf.toString(),startLineNb);
 		}
 
 	}
@@ -1681,6 +2001,15 @@ public final class Parser {
 	 * @throws ParserException
 	 */
 	public int parse(final String msgID, String dataIn, final int startLineNb) throws IOException, ParserException {
+		ParserException.beginRecording();
+		try {
+			return parseString(msgID, dataIn, startLineNb);
+		} finally {
+			ParserException.endRecording();
+		}
+	}
+
+	private int parseString(final String msgID, String dataIn, final int startLineNb) throws IOException, ParserException {
 		
 		this.reset();
 		messageID = msgID;
@@ -1695,7 +2024,7 @@ public final class Parser {
 		if (refDef.msgDef.cutFunction.fname.equals("Cut-on-NewLine")) {
 			//convert the input string to a LineNumber Reader and fall back on the alternative
 			//optimised method featuring line offset tracking
-			return parse(messageID,new LineNumberReader(new StringReader(dataIn)), startLineNb);
+			return parseLines(messageID,new LineNumberReader(new StringReader(dataIn)), startLineNb);
 		}
 		else
 		{
@@ -1706,7 +2035,7 @@ public final class Parser {
 			//entirely loading the message here below but building an intelligent cursor that loads on demand...
 			SEGDefinition.CutFunction.CutContext cc = refDef.msgDef.cutFunction.cut(dataIn, startLineNb);
 			while (refDef.msgDef.cutFunction.hasNext(cc)) {
-				String s = refDef.msgDef.cutFunction.getNext(cc); //there's a possibility of optional capturing groups returning null string pieces
+				CharSequence s = refDef.msgDef.cutFunction.getNext(cc); //there's a possibility of optional capturing groups returning null string pieces
 				if (s==null) continue;
 				message.subElts.add(new UnTaggedElement(s,refDef.msgDef.cutFunction.getLineNb(cc),refDef.msgDef.cutFunction.getOffset(cc)));
 			}
@@ -1714,15 +2043,15 @@ public final class Parser {
 			//if the cut failed for the message itself, too bad: always throw! an exception
 			if (message.subElts.size()<=0) {
 				ParserException prex = new ParserException.ParserDataError(refDef.msgDef.xmltag,refDef.msgDef.description, new ParserException.ParserUnableTo(refDef.msgDef.cutFunction.fname,
-						refDef.msgDef.cutFunction.cutPattern,message.data), "--NO CUT PIECE--", startLineNb, 0, Impact.FATAL);
+						refDef.msgDef.cutFunction.cutPattern,message.text()), "--NO CUT PIECE--", startLineNb, 0, Impact.FATAL);
 				recordException(prex, Impact.FATAL, Handling.THROW);
 				throw prex; //shall never get here because thrown while recorded just above...
 			}
 				
 			//check MSG identification match against first segmented piece
-			String fsp = message.subElts.get(0).data;
-			if ((refDef.msgDef.idPattern.length()>0) && (!Pattern.compile(refDef.msgDef.idPattern).matcher(fsp).find()))
-				recordException(new ParserException.ParserMessageIdentificationFailure(refDef.msgDef.idPattern,fsp),
+			CharSequence fsp = message.subElts.get(0).data;
+			if ((refDef.msgDef.idPattern.length()>0) && (!refDef.msgDef.idRegex.matcher(fsp).find()))
+				recordException(new ParserException.ParserMessageIdentificationFailure(refDef.msgDef.idPattern,fsp.toString()),
 						message, refDef.msgDef);
 
 			//launch the matching at depth 1 (for the whole message contents)
@@ -1735,15 +2064,14 @@ public final class Parser {
 					UnTaggedElement before = cursor.previous();
 					cursor.next();
 					UnTaggedElement after = cursor.next();
-					recordException(new ParserException.ParserInputNotExhausted(after.data), 
+					recordException(new ParserException.ParserInputNotExhausted(after.text()), 
 							before, refDef.msgDef);
 					//if we arrive here (no exception thrown) the rest of the processing 
 					//is identical to steps just next 
 				}
 				compileConditions(message,recNamedCond); //group them in recNamedCond hash table
 				filterOccurences();
-				verifyOccurences();
-				verifyConditions();
+				verify();
 				return allExceptionsCount; //so far, this is the one exit point when everything went fine
 			}
 			else
@@ -1752,8 +2080,7 @@ public final class Parser {
 				if (allExceptionsCount>0) {
 					compileConditions(message,recNamedCond); //group them in recNamedCond hash table
 					filterOccurences();
-					verifyOccurences();
-					verifyConditions();
+					verify();
 					return allExceptionsCount;
 				}
 				//ELSE, we haven't been able to match any bit of the message DEF itself
@@ -1761,7 +2088,7 @@ public final class Parser {
 				if (cursor.hasPrevious()) last = cursor.previous();
 				if (last!=null) {
 					ParserException brex = new ParserException.ParserNoMsgEletsFound("MSG",
-							"Entire Message",last.data,last.atLine, last.atOffset,Impact.FATAL);
+							"Entire Message",last.text(),last.atLine, last.atOffset,Impact.FATAL);
 					recordException(brex, Impact.FATAL, Handling.THROW);
 					throw brex; //shall never get here because thrown while recorded just above...					
 				}
@@ -1776,101 +2103,269 @@ public final class Parser {
 	}
 
 	/**
-	 * Supporting method that fills up structures at a given depth.<br>
-	 * Recursively invoked.
+	 * Supporting method that lists the XML contents of a tagged element (or of the whole message), 
+	 * as a sequence of text strings and child elements, at a given depth.<br>
+	 * Recursively invoked through NOTAG groups and segments, whose contents are merged in the parent.
+	 * <p>Data and Marks elements whose names start with the special character @ are collected
+	 * as attributes instead, in name order (the later value wins).</p>
 	 * 
 	 * @param withRAW	tells to generate RAW element or not;
 	 * 					i.e. either UnTagged elements else those explicitly tagged as 'RAW'
-	 * @param doc
-	 * @param fillIt
-	 * @param withElt
+	 * @param ofElt		the element whose sub-elements are listed
+	 * @param content	the list to fill with String and UnTaggedElement items
+	 * @param attributes	the map to fill with promoted attributes
 	 */
-	private void fillDOM (Document doc, Element fillIt, UnTaggedElement withElt ,final boolean withRaw) {
-		Element xmlElt;
-		Element fillThis = fillIt;
-		
-		if (withElt instanceof TaggedMessage) {
-			for (int i=0; i<((TaggedMessage)withElt).subElts.size();i++) {
-				fillDOM(doc,fillThis,((TaggedMessage)withElt).subElts.get(i),withRaw);
-				}
-			return;
-		}
-		if (withElt instanceof TaggedData) {
-			if (((TaggedData)withElt).tag.equals("SKIP")) return;
-			if (((TaggedData)withElt).tag.equals("RAW")&&!withRaw) return;
-			if (((TaggedData)withElt).tag.equals("NOTAG")) {
-				//insert as text node directly within parent
-				fillThis.appendChild(doc.createTextNode(withElt.data));
-				return;
+	private void listXMLContent(TaggedElement ofElt, ArrayList<Object> content, TreeMap<String, String> attributes, final boolean withRaw) {
+		UnTaggedElement withElt;
+		String tag;
+		for (int i=0; i<ofElt.subElts.size();i++) {
+			withElt = ofElt.subElts.get(i);
+			if ((withElt instanceof TaggedData)||(withElt instanceof TaggedMark)) {
+				if ((withElt instanceof TaggedMark)&&withElt.data.equals("NULL")) continue;
+				tag = ((TaggedElement)withElt).tag;
+				if (tag.equals("SKIP")) continue;
+				if (tag.equals("RAW")&&!withRaw) continue;
+				if (tag.equals("NOTAG")) content.add(withElt.data.toString()); //as text directly within parent
+				else if (tag.charAt(0)=='@') attributes.put(tag.substring(1),withElt.data.toString()); //promote as attribute to parent element
+				else content.add(withElt); //regular child element
+				continue;
 			}
-			if (((TaggedData)withElt).tag.charAt(0)=='@') {
-				//promote as attribute to parent element
-				fillThis.setAttribute(((TaggedData)withElt).tag.substring(1),withElt.data);
-			} 
-			else {
-				//regular child element
-				xmlElt = doc.createElement(((TaggedData)withElt).tag);
-				xmlElt.appendChild(doc.createTextNode(withElt.data));
-				//xmlElt.setAttribute("L", Integer.toString(withElt.atLine));
-				//xmlElt.setAttribute("O", Integer.toString(withElt.atOffset));
-				fillThis.appendChild(xmlElt);
+			if ((withElt instanceof TaggedGroup)||(withElt instanceof TaggedSegment)) {
+				tag = ((TaggedElement)withElt).tag;
+				if (tag.equals("SKIP")) continue;
+				if (tag.equals("RAW")&&!withRaw) continue;
+				//the withElt itself unless NOTAG is specified, else just its contents
+				if (!tag.equals("NOTAG")) content.add(withElt);
+				else listXMLContent((TaggedElement)withElt, content, attributes, withRaw);
+				continue;
 			}
+			//one case left: withElt is instanceof UnTaggedElement
+			if (withRaw) content.add(withElt);
+		}
+	}
+
+	/**
+	 * Supporting method that outputs an element with the given attributes and contents, at a given depth.<br>
+	 * Recursively invoked.
+	 * <p>Text is kept inline within elements that have no child element, else each text piece and 
+	 * child element starts on a new line when indenting. A namespace equal to the one in scope 
+	 * is not repeated.</p>
+	 * 
+	 * @param out		the XML output
+	 * @param tag		element name
+	 * @param attributes	attribute values by name, including any 'xmlns' namespace declaration
+	 * @param content	String and UnTaggedElement items as listed by listXMLContent()
+	 * @param depth		element depth, 0 for the root
+	 * @param inScopeNS	the namespace declared by the ancestors
+	 * @throws IOException
+	 * @throws SAXException
+	 */
+	private void writeXMLElement(XMLOutput out, String tag, TreeMap<String, String> attributes, ArrayList<Object> content, 
+			int depth, String inScopeNS, final boolean withRaw) throws IOException, SAXException {
+		
+		if (depth>0) out.newLine(depth);
+		String nsDecl = attributes.remove("xmlns");
+		if (nsDecl!=null && nsDecl.equals(inScopeNS)) nsDecl = null;
+		String ns = (nsDecl!=null)?nsDecl:inScopeNS;
+		
+		boolean hasChildElt = false;
+		for (int i=0; i<content.size() && !hasChildElt; i++) hasChildElt = !(content.get(i) instanceof String);
+		if (!hasChildElt) {
+			//text only, possibly nothing at all
+			StringBuffer sb = new StringBuffer();
+			for (int i=0; i<content.size(); i++) sb.append((String)content.get(i));
+			out.startElement(tag, nsDecl, ns, attributes, sb.length()<=0);
+			if (sb.length()<=0) return;
+			out.text(sb.toString());
+			out.endElement(tag, nsDecl, ns);
 			return;
 		}
-		if (withElt instanceof TaggedMark) {
-			if (withElt.data.equals("NULL")) return;
-			//rest is identical to TaggedData case
-			if (((TaggedMark)withElt).tag.equals("SKIP")) return;
-			if (((TaggedMark)withElt).tag.equals("RAW")&&!withRaw) return;
-			if (((TaggedMark)withElt).tag.equals("NOTAG")) {
-				//insert as text node directly within parent
-				fillThis.appendChild(doc.createTextNode(withElt.data));
-				return;
+		
+		out.startElement(tag, nsDecl, ns, attributes, false);
+		StringBuffer text = new StringBuffer();
+		Object item;
+		UnTaggedElement elt;
+		for (int i=0; i<content.size(); i++) {
+			item = content.get(i);
+			if (item instanceof String) {
+				text.append((String)item); //adjacent text pieces make a single text node
+				continue;
 			}
-			if (((TaggedMark)withElt).tag.charAt(0)=='@') {
-				//promote as attribute to parent element
-				fillThis.setAttribute(((TaggedMark)withElt).tag.substring(1),withElt.data);
-			} 
-			else {
-				//regular child element
-				xmlElt = doc.createElement(((TaggedMark)withElt).tag);
-				xmlElt.appendChild(doc.createTextNode(withElt.data));
-				//xmlElt.setAttribute("L", Integer.toString(withElt.atLine));
-				//xmlElt.setAttribute("O", Integer.toString(withElt.atOffset));
-				fillThis.appendChild(xmlElt);
+			if (text.length()>0) {
+				out.newLine(depth+1);
+				out.text(text.toString());
+				text.setLength(0);
 			}
-			return;
-		}
-		if ((withElt instanceof TaggedGroup)||(withElt instanceof TaggedSegment)) {
-			if (((TaggedElement)withElt).tag.equals("SKIP")) return;
-			if (((TaggedElement)withElt).tag.equals("RAW")&&!withRaw) return;
-			//add the withElt itself unless NOTAG is specified
-			if (!((TaggedElement)withElt).tag.equals("NOTAG")) {
-				xmlElt = doc.createElement(((TaggedElement)withElt).tag);
-				//xmlElt.setAttribute("L", Integer.toString(withElt.atLine));
-				//xmlElt.setAttribute("O", Integer.toString(withElt.atOffset));
-				if (((TaggedElement)withElt).suffix!=null && ((TaggedElement)withElt).suffix.length()>0) {
-					namespace = getNamespace(((TaggedElement)withElt).suffix);
-					xmlElt.setAttribute("xmlns",namespace);
+			elt = (UnTaggedElement)item;
+			if ((elt instanceof TaggedData)||(elt instanceof TaggedMark)) {
+				//regular child element
+				out.newLine(depth+1);
+				boolean empty = (elt.data==null || elt.data.length()<=0);
+				out.startElement(((TaggedElement)elt).tag, null, ns, null, empty);
+				if (!empty) {
+					out.text(elt.text()); //the only copy of a data value that is a slice of the message
+					out.endElement(((TaggedElement)elt).tag, null, ns);
 				}
-				fillThis.appendChild(xmlElt);
-				fillThis = xmlElt; //the trick is here!
-			}
-			//in all cases fill up contents
-			for (int i=0; i<((TaggedElement)withElt).subElts.size();i++) {
-				fillDOM(doc,fillThis,((TaggedElement)withElt).subElts.get(i), withRaw);
+			} else if (elt instanceof TaggedElement) {
+				//tagged group or segment
+				TreeMap<String, String> subAttributes = new TreeMap<String, String>();
+				ArrayList<Object> subContent = new ArrayList<Object>();
+				if (((TaggedElement)elt).suffix!=null && ((TaggedElement)elt).suffix.length()>0) {
+					namespace = getNamespace(((TaggedElement)elt).suffix);
+					subAttributes.put("xmlns", namespace);
 				}
-			return;
+				listXMLContent((TaggedElement)elt, subContent, subAttributes, withRaw);
+				writeXMLElement(out, ((TaggedElement)elt).tag, subAttributes, subContent, depth+1, ns, withRaw);
+			} else {
+				//untagged source data
+				out.newLine(depth+1);
+				TreeMap<String, String> lo = new TreeMap<String, String>();
+				lo.put("L", Integer.toString(elt.atLine));
+				lo.put("O", Integer.toString(elt.atOffset));
+				boolean empty = (elt.data==null || elt.data.length()<=0);
+				out.startElement("RAW", null, ns, lo, empty);
+				if (!empty) {
+					out.text(elt.text()); //the only copy of a data value that is a slice of the message
+					out.endElement("RAW", null, ns);
+				}
+			}
 		}
-		//one case left: withElt is instanceof UnTaggedElement
-		if (!withRaw) return;
-		xmlElt = doc.createElement("RAW");
-		xmlElt.appendChild(doc.createTextNode(withElt.data));
-		xmlElt.setAttribute("L", Integer.toString(withElt.atLine));
-		xmlElt.setAttribute("O", Integer.toString(withElt.atOffset));
-		fillThis.appendChild(xmlElt);
-		
-		return;
+		if (text.length()>0) {
+			out.newLine(depth+1);
+			out.text(text.toString());
+		}
+		out.newLine(depth);
+		out.endElement(tag, nsDecl, ns);
+	}
+
+	/**
+	 * Supporting method that outputs the whole XML document, from the declaration to the root element end.
+	 * 
+	 * @param out		the XML output
+	 * @param encodingName	the encoding name to state in the XML declaration
+	 * @param withRAW	tells to generate RAW element or not
+	 * @throws IOException
+	 * @throws SAXException
+	 */
+	private void writeXMLDocument(XMLOutput out, String encodingName, final boolean withRaw) throws IOException, SAXException {
+		TreeMap<String, String> attributes = new TreeMap<String, String>();
+		ArrayList<Object> content = new ArrayList<Object>();
+		namespace = getNamespace(message.suffix);
+		if (namespace!=null && namespace.length()>0 && !namespace.equalsIgnoreCase("NoNamespace")) attributes.put("xmlns",namespace);
+		attributes.put("messageID", messageID);
+		listXMLContent(message, content, attributes, withRaw);
+		out.startDocument(encodingName);
+		writeXMLElement(out, message.tag, attributes, content, 0, "", withRaw);
+		out.endDocument();
+	}
+	
+	/**
+	 * Writes an XML rendering of the tagged message as resulting from parsing, i.e. 
+	 * next to a {@link #parse(String, LineNumberReader, int)} method call.
+	 * <p>The XML text is directly generated from the tagged message into the Writer, without any 
+	 * intermediate document tree or buffer: this is the method of choice for large messages.
+	 * The output is the same as from {@link #getXML(boolean, boolean)}.</p>
+	 * <p>The Writer is flushed but not closed.</p>
+	 * 
+	 * @param w			the destination of the XML text
+	 * @param withRAW	tells to generate RAW element or not;
+	 * 					i.e. either UnTagged elements else those explicitly tagged as 'RAW'
+	 * @param indent	asks for line breaks on elements, and indentation
+	 * @return false if there is no parsed message to output (and nothing was written)
+	 * @throws IOException 
+	 */
+	public boolean writeXML(Writer w, boolean withRAW, boolean indent) throws IOException {
+		if ((message==null)||(message.subElts==null)) return false;
+		writeXMLText(new XMLOutput(w, null, indent), "UTF-8", withRAW);
+		return true;
+	}
+
+	/**
+	 * Writes an XML rendering of the tagged message as resulting from parsing straight to
+	 * an OutputStream, in the given character set (also stated in the XML declaration).
+	 * <p>Characters that cannot be represented in the character set are
+	 * written as character references.</p>
+	 * <p>The OutputStream is flushed but not closed.</p>
+	 * 
+	 * @param os		the destination of the XML bytes
+	 * @param cs		character set applied to the output
+	 * @param withRAW	tells to generate RAW element or not;
+	 * 					i.e. either UnTagged elements else those explicitly tagged as 'RAW'
+	 * @param indent	asks for line breaks on elements, and indentation
+	 * @return false if there is no parsed message to output (and nothing was written)
+	 * @throws IOException 
+	 * @see #writeXML(Writer, boolean, boolean)
+	 */
+	public boolean writeXML(OutputStream os, Charset cs, boolean withRAW, boolean indent) throws IOException {
+		if ((message==null)||(message.subElts==null)) return false;
+		Writer w = new BufferedWriter(new OutputStreamWriter(os, cs.newEncoder()), 8192);
+		writeXMLText(new XMLOutput(w, cs.name().startsWith("UTF")?null:cs.newEncoder(), indent), cs.name(), withRAW);
+		return true;
+	}
+	
+	//text outputs never raise SAX exceptions
+	private void writeXMLText(XMLOutput out, String encodingName, final boolean withRaw) throws IOException {
+		try {
+			writeXMLDocument(out, encodingName, withRaw);
+		} catch (SAXException e) {
+			IOException ioe = new IOException(e.getMessage());
+			ioe.initCause(e);
+			throw ioe;
+		}
+	}
+
+	/**
+	 * Reports the XML rendering of the tagged message as resulting from parsing as a sequence of
+	 * SAX events, e.g. to feed an XSLT {@link javax.xml.transform.sax.TransformerHandler} without 
+	 * generating and re-parsing any XML text in between.
+	 * <p>The events describe the same document that {@link #getXML(boolean, boolean)} returns as text,
+	 * including the indentation white space when asked for (the contents of text nodes seen by an 
+	 * XSL stylesheet are thus strictly identical). Namespaces are reported as default namespace 
+	 * mappings: elements have no prefix.</p>
+	 * 
+	 * @param ch		the receiver of the events, from startDocument() to endDocument()
+	 * @param withRAW	tells to generate RAW element or not;
+	 * 					i.e. either UnTagged elements else those explicitly tagged as 'RAW'
+	 * @param indent	asks for line breaks on elements, and indentation, as character data
+	 * @return false if there is no parsed message to output (and no event was reported)
+	 * @throws SAXException	as raised by the ContentHandler
+	 * @see #getSAXSource(boolean, boolean)
+	 */
+	public boolean writeSAX(ContentHandler ch, boolean withRAW, boolean indent) throws SAXException {
+		if ((message==null)||(message.subElts==null)) return false;
+		try {
+			writeXMLDocument(new XMLOutput.SAX(ch, indent), null, withRAW);
+		} catch (IOException e) {
+			throw new SAXException(e); //not raised by SAX outputs
+		}
+		return true;
+	}
+
+	/**
+	 * Provides the XML rendering of the tagged message as resulting from parsing as a 
+	 * {@link SAXSource}, which is directly usable as input to any 
+	 * {@link javax.xml.transform.Transformer#transform(javax.xml.transform.Source, javax.xml.transform.Result) XSL transformation}.
+	 * The SAX events are generated with {@link #writeSAX(ContentHandler, boolean, boolean)} when the
+	 * transformation parses the source; no XML text is involved.
+	 * 
+	 * @param withRAW	tells to generate RAW element or not;
+	 * 					i.e. either UnTagged elements else those explicitly tagged as 'RAW'
+	 * @param indent	asks for line breaks on elements, and indentation, as character data
+	 * @return a SAXSource, or null if there is no parsed message to output
+	 */
+	public SAXSource getSAXSource(final boolean withRAW, final boolean indent) {
+		if ((message==null)||(message.subElts==null)) return null;
+		XMLReader reader = new XMLFilterImpl() {
+			public void parse(InputSource input) throws SAXException {
+				writeSAX(getContentHandler(), withRAW, indent);
+			}
+			public void parse(String systemId) throws SAXException {
+				writeSAX(getContentHandler(), withRAW, indent);
+			}
+		};
+		InputSource is = new InputSource();
+		is.setPublicId(messageID);
+		return new SAXSource(reader, is);
 	}
 	
 	/**
@@ -1881,61 +2376,23 @@ public final class Parser {
 	 * 
 	 * @param withRAW	tells to generate RAW element or not;
 	 * 					i.e. either UnTagged elements else those explicitly tagged as 'RAW'
-	 * @param indent	asks for indentation (only line breaks on elements as true indentation does not work!)
+	 * @param indent	asks for indentation (line breaks on elements and 3 spaces per depth level)
 	 * @return the XML output in a {@link StringWriter}
 	 * @throws FactoryConfigurationError 
 	 * @throws ParserConfigurationException 
 	 * @throws TransformerFactoryConfigurationError 
-	 * @throws TransformerException 
+	 * @throws TransformerException when the XML text cannot be generated (e.g. invalid characters)
+	 * @see #writeXML(Writer, boolean, boolean)
 	 */
 	public StringWriter getXML(boolean withRAW, boolean indent) throws ParserConfigurationException, FactoryConfigurationError, TransformerFactoryConfigurationError, TransformerException {
 		
 		StringWriter sWout = new StringWriter(3000); //3000 is only initial capacity
 		
-		if ((message==null)||(message.subElts==null)) return null;
-		
-		DocumentBuilderFactory builderFactory = DocumentBuilderFactory.newInstance();
-		//builderFactory.setIgnoringElementContentWhitespace(true);
-		//builderFactory.setValidating(true);
-		//builderFactory.setNamespaceAware(true); --> causes a problem with TIBCO environment
-		
-		DocumentBuilder builder = builderFactory.newDocumentBuilder();
-		Document doc = builder.newDocument();
-		try { doc.setXmlStandalone(true);
-		} catch (org.w3c.dom.DOMException de) {
+		try {
+			if (!writeXML(sWout, withRAW, indent)) return null;
+		} catch (IOException e) {
+			throw new TransformerException(e);
 		}
-		Element root = doc.createElement(message.tag); 
-		//Element root = doc.getDocumentElement();
-		namespace = getNamespace(message.suffix);
-		if (namespace!=null && namespace.length()>0 && !namespace.equalsIgnoreCase("NoNamespace")) root.setAttribute("xmlns",namespace);
-		root.setAttribute("messageID", messageID);
-		//root.setPrefix(null) would generate NAMESPACE_ERR!
-		doc.appendChild(root);
-		
-		fillDOM(doc, root, message,withRAW);
-		
-		//Florent partially solved the problem with not-working-indented outputs!
-		//The trick being to set attributes on the factory in addition to the tranformer
-		TransformerFactory factory = TransformerFactory.newInstance();
-		//save on line length with a low indent value because some cargo messages feature elements at a depth of 10
-//		if (indent) {
-//			try {
-//				factory.setAttribute("indent-number", "3"); 
-//			} catch (Exception e) { //exception caught when running in JRE 1.4 that does not support this attribute! 
-//			}
-//		}
-		Transformer transformer = factory.newTransformer();
-		transformer.setOutputProperty(OutputKeys.METHOD, "xml");
-		//transformer.setOutputProperty("omit-xml-declaration","yes");
-		if (indent)  { 
-			transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-			transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "3");
-			transformer.setOutputProperty("{http://xml.apache.org/xalan}indent-amount", "3");
-		}
-		//tran.setOutputProperty("standalone","yes");
-		DOMSource source = new DOMSource(doc);
-		StreamResult result = new StreamResult(sWout);
-		transformer.transform(source, result);
 		
 		return sWout;
 	}
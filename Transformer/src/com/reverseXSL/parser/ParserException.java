@@ -27,8 +27,60 @@ public class ParserException extends FormattedException {
 
 	private static final long serialVersionUID = -3865687699605848879L;
 
+	/**
+	 * Depth of nested parsings in the current thread. Parser exceptions created meanwhile are recorded
+	 * rather than thrown, in the vast majority, and thus skip the costly capture of their stack trace.
+	 */
+	private static final ThreadLocal<int[]> recording = new ThreadLocal<int[]>() {
+		protected int[] initialValue() {
+			return new int[1];
+		}
+	};
+
+	/**
+	 * Tells whether this exception was created without stack trace.
+	 */
+	private transient boolean recorded;
+
 	protected ParserException(String code, Throwable t, Object[] args) {
 		super(code, t, args);
+		this.recorded = recording.get()[0] > 0;
+	}
+
+	/**
+	 * Parser exceptions created from now on, in the current thread, are recorded ones, without stack trace.
+	 * To be balanced by {@link #endRecording()}.
+	 */
+	static void beginRecording() {
+		recording.get()[0]++;
+	}
+
+	static void endRecording() {
+		recording.get()[0]--;
+	}
+
+	/**
+	 * Skips the capture of the stack trace of recorded Parser exceptions: the message tells where
+	 * the problem lies in the data and DEF file, which the stack trace of the Parser itself does not.
+	 * 
+	 * @see java.lang.Throwable#fillInStackTrace()
+	 */
+	public Throwable fillInStackTrace() {
+		if (recording.get()[0] > 0) return this;
+		return super.fillInStackTrace();
+	}
+
+	/**
+	 * Captures the stack trace of a recorded exception as it is actually thrown.
+	 * 
+	 * @return this exception, to be thrown
+	 */
+	ParserException thrown() {
+		if (recorded) {
+			super.fillInStackTrace();
+			recorded = false;
+		}
+		return this;
 	}
 	public void adjustLineOffset(int adjustment) {
 		//there is a possibility of fixing lineOffsets in all recorded parser exceptions!
@@ -25,7 +25,8 @@ public class SD {
   }
   
   public String getNext() {
-	  return sd.cutFunction.getNext(cc);
+	  CharSequence s = sd.cutFunction.getNext(cc);
+	  return (s==null)? null: s.toString();
   }
 
 }
@@ -65,6 +65,11 @@ class SEGDefinition extends GSDDefinition {
 	 * but exactly the same segment tag for instance.
 	 */
 	String idPattern = "";
+	
+	/**
+	 * The {@link #idPattern} compiled once at DEF load time.
+	 */
+	Pattern idRegex = null;
 		
 	
 	/**
@@ -186,17 +191,51 @@ class SEGDefinition extends GSDDefinition {
 			int lastOffset = 0;
 			int currentLineNb = 0;
 			int lastLineNb = 0;
-			String rest = null;
+			//the data to cut is the range [from,limit[ of the source string; pieces are handed out as
+			//slices of that same source, and 'from' moves forward instead of substring-ing the rest
+			final String source;
+			final int limit;
+			int from;
+			boolean more = true; //false once the cut is finished
 			Matcher matcher = null; //for the CUT "<pattern>" and CUT-ON-"<regex>" functions
 			int nextGroupNb = 0;
 			int lastEnd = 0;
 			
-			CutContext(String d,int cl, int co) {
+			CutContext(CharSequence d,int cl, int co) {
 				currentOffset = co;
 				lastOffset = currentOffset;
 				currentLineNb = cl;
 				lastLineNb = currentLineNb;
-				rest = d;
+				if (d instanceof Slice) {
+					source = ((Slice)d).source();
+					from = ((Slice)d).start();
+					limit = ((Slice)d).end();
+				} else {
+					source = d.toString();
+					from = 0;
+					limit = source.length();
+				}
+				lastEnd = from;
+			}
+			
+			//the piece [start,end[ of the source (absolute indexes)
+			Slice piece(int start, int end) {
+				return Slice.of(source, start, end);
+			}
+			
+			//the remainder of the data to cut as last piece
+			Slice last() {
+				Slice s = piece(from, limit);
+				lastOffset = currentOffset;
+				currentOffset += limit-from; //cumulative
+				from = limit;
+				more = false;
+				return s;
+			}
+			
+			//apply a terminator semantic in case of the message and delimiter in case of segment
+			void terminate(String msgOrSeg) {
+				if ((from>=limit)&&(msgOrSeg.equals("MSG"))) more = false;
 			}
 		}
 		/**
@@ -206,21 +245,21 @@ class SEGDefinition extends GSDDefinition {
 		 * potential thread conflicts could occur whenever an indentical {@link Definition} is shared by multiple 
 		 * {@link Parser}'s.
 		 * 
-		 * @param dataIn	the input string to cut
+		 * @param dataIn	the input string to cut, possibly a slice of the message
 		 * @param startLineNb	the line offset applicable to the first line from the input (for tracing)
 		 */
-		CutContext cut(String dataIn, int startLineNb) {
+		CutContext cut(CharSequence dataIn, int startLineNb) {
 			return new CutContext(dataIn,startLineNb,0);
 		}
 
 		/**
-		 * Variant of {@link com.reverseXSL.parser.SEGDefinition.CutFunction#cut(String, int)}.
+		 * Variant of {@link com.reverseXSL.parser.SEGDefinition.CutFunction#cut(CharSequence, int)}.
 		 * 
-		 * @param dataIn	the input string to cut
+		 * @param dataIn	the input string to cut, possibly a slice of the message
 		 * @param startLineNb	the line offset applicable to the first line from the input (for tracing)
 		 * @param startOffset 	the character offset within the line
 		 */
-		CutContext cut(String dataIn, int startLineNb, int startOffset) {
+		CutContext cut(CharSequence dataIn, int startLineNb, int startOffset) {
 			return new CutContext(dataIn,startLineNb,startOffset);
 		}
 
@@ -228,26 +267,27 @@ class SEGDefinition extends GSDDefinition {
 		/**
 		 * Facilitates loop implementation using getNext(CutContext).
 		 * <p>
-		 * The method {@link com.reverseXSL.parser.SEGDefinition.CutFunction#cut(String, int)} <u>must</u> be invoked once 
+		 * The method {@link com.reverseXSL.parser.SEGDefinition.CutFunction#cut(CharSequence, int)} <u>must</u> be invoked once 
 		 * before this one in order to initiate a new cut.
 		 * 
 		 * @param cc	a cut context
 		 * @return	true when more data pieces from the cut are available (can be the empty string, once!)
 		 */
 		boolean hasNext(CutContext cc) {
-			return (cc.rest!=null);
+			return cc.more;
 		}
 		
 		/**
 		 * To get data pieces from the cut, one after each other.
 		 * <p>
-		 * The method {@link com.reverseXSL.parser.SEGDefinition.CutFunction#cut(String, int)} <u>must</u> be invoked once 
+		 * The method {@link com.reverseXSL.parser.SEGDefinition.CutFunction#cut(CharSequence, int)} <u>must</u> be invoked once 
 		 * before this one in order to initiate a new cut.
 		 * 
 		 * @param cc	a cut context
-		 * @return	the next 'cut' piece from the original data (may be ""), or null if the cut is finished.
+		 * @return	the next 'cut' piece from the original data (may be ""), or null if the cut is finished;
+		 * 			pieces are slices of the original data, not copies
 		 */
-		abstract String getNext(CutContext cc) ;
+		abstract CharSequence getNext(CutContext cc) ;
 	
 		
 		/**
@@ -329,9 +369,9 @@ class SEGDefinition extends GSDDefinition {
 		this.idPattern = m.group(2);
 		this.xmltag = m.group(3);
 		restOfLine = m.group(4);
-		//ensure that the id-pattern can be compiled
+		//compile the id-pattern once for all parsings
 		try {
-			Pattern.compile(this.idPattern).matcher("");
+			this.idRegex = Pattern.compile(this.idPattern);
 		} catch (Exception e) {
 			throw new ParserException.DEFErrorInvalidRegex(this.idPattern,_linenb,e.getLocalizedMessage());
 		}
@@ -364,9 +404,9 @@ class SEGDefinition extends GSDDefinition {
 				throw new ParserException.DEFErrorBadDepthVersusCOND("SEG",_linenb,line,this.depth,this.conditionName,((CONDDefinition)nCond.get(this.conditionName)).depthScope);				
 			//m.group(2) is the character used for the quote
 			this.conditionFeed = m.group(3);
-			//ensure that the feed can be compiled
+			//compile the feed once for all parsings
 			try {
-				Pattern.compile(this.conditionFeed).matcher("");
+				this.conditionFeedRegex = Pattern.compile(this.conditionFeed);
 			} catch (Exception e) {
 				throw new ParserException.DEFErrorInvalidRegex(this.conditionFeed,_linenb,e.getLocalizedMessage());
 			}
@@ -404,38 +444,39 @@ class SEGDefinition extends GSDDefinition {
 					public String toString() {
 						return ("CUT-ON-("+this.cutPattern+")");
 					}
-					String getNext(CutContext cc) {
-						if (cc.rest==null) return null;
+					CharSequence getNext(CutContext cc) {
+						if (!cc.more) return null;
 						char sep = cutPattern.charAt(0);
-						String piece;
-						int offset = cc.rest.indexOf(sep);
-						if (offset>0 && parentDef!=null && parentDef.releaseChar!=null 
-								&& (cc.rest.charAt(offset-1)==parentDef.releaseChar.charValue())) {
-							//release characters exist before reaching the next cut char
-							//so: recalculate the offset by a progression in the 'rest' string!
-							offset = -1;
-							for (int i=0;i<cc.rest.length();i++)
-								if (cc.rest.charAt(i)==parentDef.releaseChar.charValue()) 
-									i++; //skip next char, whatever it is
-								else if (cc.rest.charAt(i)==sep) {
+						CharSequence piece;
+						int offset = -1;
+						//single forward scan up to the next cut char, skipping any char that follows a release char,
+						//such that every char of the data is read once over the whole cut
+						final String s = cc.source;
+						final int limit = cc.limit;
+						if (parentDef==null || parentDef.releaseChar==null) {
+							for (int i=cc.from;i<limit;i++)
+								if (s.charAt(i)==sep) {
+									offset = i; break;
+								}
+						} else {
+							char rel = parentDef.releaseChar.charValue();
+							for (int i=cc.from;i<limit;i++) {
+								char c = s.charAt(i);
+								if (c==rel) i++; //skip next char, whatever it is
+								else if (c==sep) {
 									offset = i; break;
 								}
-								else continue;
+							}
 						}
 						if (offset<0) {
 							//return it all
-							piece = cc.rest;
-							cc.lastOffset = cc.currentOffset;
-							cc.currentOffset += cc.rest.length(); //Cumulative
-							cc.rest = null;
-							return piece;
+							return cc.last();
 						}
 						cc.lastOffset = cc.currentOffset;
-						cc.currentOffset += offset+1; //Cumulative
-						piece = cc.rest.substring(0, offset);
-						cc.rest = cc.rest.substring(offset+1);
-						//apply a terminator semantic in case of the message and delimiter in case of segment
-						if ((cc.rest.length()<=0)&&(msgOrSeg.equals("MSG"))) cc.rest = null;
+						cc.currentOffset += offset-cc.from+1; //Cumulative
+						piece = cc.piece(cc.from, offset);
+						cc.from = offset+1;
+						cc.terminate(msgOrSeg);
 						return piece;
 					}
 
@@ -452,38 +493,37 @@ class SEGDefinition extends GSDDefinition {
 					public String toString() {
 						return ("CUT-ON-NL");
 					}
-					String getNext(CutContext cc) {
-						if (cc.rest==null) return null;
+					CharSequence getNext(CutContext cc) {
+						if (!cc.more) return null;
 
-						String line;
+						CharSequence line;
 						int upto,plus;
 						plus=1;
 						//simplify access to release character
 						Character rCh = parentDef!=null? parentDef.releaseChar:null;
 						
-						for (upto=0;upto<cc.rest.length();upto++) {
+						for (upto=cc.from;upto<cc.limit;upto++) {
 							//check for any release char and skip if found
-							if (rCh!=null && cc.rest.charAt(upto)==rCh.charValue()) {
+							if (rCh!=null && cc.source.charAt(upto)==rCh.charValue()) {
 								//skip the next char, or CRLF together
-								if ((upto+2)<cc.rest.length()
-									&& cc.rest.charAt(upto+1)=='\r'
-									&& cc.rest.charAt(upto+2)=='\n')
+								if ((upto+2)<cc.limit
+									&& cc.source.charAt(upto+1)=='\r'
+									&& cc.source.charAt(upto+2)=='\n')
 									upto+=2;
 								else upto+=1;
 								continue;
 							}
 							//compute index up to first CR or LF or FF
-							switch (cc.rest.charAt(upto)) {
+							switch (cc.source.charAt(upto)) {
 							case ('\r'):
-								if (((upto+1)<cc.rest.length())&&(cc.rest.charAt(upto+1)=='\n')) plus=2;
+								if (((upto+1)<cc.limit)&&(cc.source.charAt(upto+1)=='\n')) plus=2;
 							case ('\n'):
 							case ('\f'): {
-								line = cc.rest.substring(0,upto);
+								line = cc.piece(cc.from,upto);
 								cc.lastLineNb = cc.currentLineNb;
 								cc.currentLineNb++;
-								cc.rest = cc.rest.substring(upto+plus);
-								//apply a terminator semantic in case of the message and delimiter in case of segment
-								if ((cc.rest.length()<=0)&&(msgOrSeg.equals("MSG"))) cc.rest = null;
+								cc.from = upto+plus;
+								cc.terminate(msgOrSeg);
 								cc.lastOffset = cc.currentOffset;
 								cc.currentOffset =0;
 								return line;
@@ -493,10 +533,7 @@ class SEGDefinition extends GSDDefinition {
 							}
 						}
 						//no line terminator found, return the rest
-						line = cc.rest;
-						cc.lastOffset = cc.currentOffset;
-						cc.currentOffset += cc.rest.length(); //Cumulative
-						cc.rest = null;
+						line = cc.last();
 						cc.lastLineNb = cc.currentLineNb;
 						cc.currentLineNb++;
 						return line;
@@ -514,23 +551,19 @@ class SEGDefinition extends GSDDefinition {
 					public String toString() {
 						return ("CUT-FIXED-("+this.cutPattern+")");
 					}
-					String getNext(CutContext cc) {
-						if (cc.rest==null) return null;
+					CharSequence getNext(CutContext cc) {
+						if (!cc.more) return null;
 						int size = Integer.parseInt(cutPattern);
-						int lgth = cc.rest.length();
-						String piece;
+						int lgth = cc.limit-cc.from;
+						CharSequence piece;
 						if (lgth<=size) {
 							//return it all
-							piece = cc.rest;
-							cc.lastOffset = cc.currentOffset;
-							cc.currentOffset += lgth; //cummulative
-							cc.rest = null;
-							return piece;
+							return cc.last();
 						}
 						cc.lastOffset = cc.currentOffset;
 						cc.currentOffset += size; //cummulative
-						piece = cc.rest.substring(0, size);
-						cc.rest = cc.rest.substring(size);
+						piece = cc.piece(cc.from, cc.from+size);
+						cc.from += size;
 						return piece;
 					}
 
@@ -548,31 +581,30 @@ class SEGDefinition extends GSDDefinition {
 					public String toString() {
 						return ("CUT-ON-1NBSP");
 					}
-					String getNext(CutContext cc) {
-						if (cc.rest==null) return null;
+					CharSequence getNext(CutContext cc) {
+						if (!cc.more) return null;
 
-						String piece;
+						CharSequence piece;
 						int upto;
 						//simplify access to release character
 						Character rCh = parentDef!=null? parentDef.releaseChar:null;
 						
-						for (upto=0;upto<cc.rest.length();upto++) {
+						for (upto=cc.from;upto<cc.limit;upto++) {
 							//check for any release char and skip if found
-							if (rCh!=null && cc.rest.charAt(upto)==rCh.charValue()) {
+							if (rCh!=null && cc.source.charAt(upto)==rCh.charValue()) {
 								//skip the next char
 								upto+=1;
 								continue;
 							}
 							//compute index up to first SPACE or TAB
-							switch (cc.rest.charAt(upto)) {
+							switch (cc.source.charAt(upto)) {
 							case (' '):
 							case ('\t'): {
-								piece = cc.rest.substring(0,upto);
-								cc.rest = cc.rest.substring(upto+1);
-								//apply a terminator semantic in case of the message and delimiter in case of segment
-								if ((cc.rest.length()<=0)&&(msgOrSeg.equals("MSG"))) cc.rest = null;
+								piece = cc.piece(cc.from,upto);
 								cc.lastOffset = cc.currentOffset;
-								cc.currentOffset += (upto + 1);
+								cc.currentOffset += (upto - cc.from + 1);
+								cc.from = upto+1;
+								cc.terminate(msgOrSeg);
 								return piece;
 							}
 							default:
@@ -580,11 +612,7 @@ class SEGDefinition extends GSDDefinition {
 							}
 						}
 						//no space or tab separator found (or rest was the empty string): return the rest
-						piece = cc.rest;
-						cc.lastOffset = cc.currentOffset;
-						cc.currentOffset += cc.rest.length(); //cumulative
-						cc.rest = null;
-						return piece;
+						return cc.last();
 					}
 				};
 				restOfLine = m.group(1);
@@ -599,26 +627,26 @@ class SEGDefinition extends GSDDefinition {
 					public String toString() {
 						return ("CUT-ON-RNBSP");
 					}
-					String getNext(CutContext cc) {
-						if (cc.rest==null) return null;
+					CharSequence getNext(CutContext cc) {
+						if (!cc.more) return null;
 
-						String piece;
-						int upto = 0;
+						CharSequence piece;
+						int upto = cc.from;
 						int plus = 0;
 						//simplify access to release character
 						Character rCh = parentDef!=null? parentDef.releaseChar:null;
 						
-						while ((upto+plus)<cc.rest.length()) {
+						while ((upto+plus)<cc.limit) {
 							//compute index up to first SPACE or TAB and the 'plus' to the next non-space and non-tab
 							if (plus==0) {
 								//check for any release char and skip if found
-								if (rCh!=null && cc.rest.charAt(upto)==rCh.charValue()) {
+								if (rCh!=null && cc.source.charAt(upto)==rCh.charValue()) {
 									//skip the next char
 									upto+=2;
 									continue;
 								}
 								//look for the next SPACE or TAB as separator
-								if ((cc.rest.charAt(upto)==' ') || (cc.rest.charAt(upto)=='\t')) {
+								if ((cc.source.charAt(upto)==' ') || (cc.source.charAt(upto)=='\t')) {
 									plus=1;
 									continue;
 								}
@@ -626,7 +654,7 @@ class SEGDefinition extends GSDDefinition {
 								continue;
 							} else {
 								//we look for the next printable char
-								if ((cc.rest.charAt(upto+plus)==' ') || (cc.rest.charAt(upto+plus)=='\t')) {
+								if ((cc.source.charAt(upto+plus)==' ') || (cc.source.charAt(upto+plus)=='\t')) {
 									plus++;
 									continue;
 								}
@@ -635,19 +663,14 @@ class SEGDefinition extends GSDDefinition {
 						}
 						if (plus==0) {
 							//no separator was found
-							piece = cc.rest;
-							cc.lastOffset = cc.currentOffset;
-							cc.currentOffset += cc.rest.length(); //cumulative
-							cc.rest = null;
-							return piece;
+							return cc.last();
 						}
 						//we found one or more space chars as separator
-						piece = cc.rest.substring(0,upto);
-						cc.rest = cc.rest.substring(upto+plus);
-						//apply a terminator semantic in case of the message and delimiter in case of segment
-						if ((cc.rest.length()<=0)&&(msgOrSeg.equals("MSG"))) cc.rest = null;
+						piece = cc.piece(cc.from,upto);
 						cc.lastOffset = cc.currentOffset;
-						cc.currentOffset += (upto + plus);
+						cc.currentOffset += (upto - cc.from + plus);
+						cc.from = upto+plus;
+						cc.terminate(msgOrSeg);
 						return piece;
 					}
 				};
@@ -663,30 +686,29 @@ class SEGDefinition extends GSDDefinition {
 					public String toString() {
 						return ("CUT-ON-TAB");
 					}
-					String getNext(CutContext cc) {
-						if (cc.rest==null) return null;
+					CharSequence getNext(CutContext cc) {
+						if (!cc.more) return null;
 
-						String piece;
+						CharSequence piece;
 						int upto;
 						//simplify access to release character
 						Character rCh = parentDef!=null? parentDef.releaseChar:null;
 						
-						for (upto=0;upto<cc.rest.length();upto++) {
+						for (upto=cc.from;upto<cc.limit;upto++) {
 							//check for any release char and skip if found
-							if (rCh!=null && cc.rest.charAt(upto)==rCh.charValue()) {
+							if (rCh!=null && cc.source.charAt(upto)==rCh.charValue()) {
 								//skip the next char
 								upto+=1;
 								continue;
 							}
 							//compute index up to first TAB
-							switch (cc.rest.charAt(upto)) {
+							switch (cc.source.charAt(upto)) {
 							case ('\t'): {
-								piece = cc.rest.substring(0,upto);
-								cc.rest = cc.rest.substring(upto+1);
-								//apply a terminator semantic in case of the message and delimiter in case of segment
-								if ((cc.rest.length()<=0)&&(msgOrSeg.equals("MSG"))) cc.rest = null;
+								piece = cc.piece(cc.from,upto);
 								cc.lastOffset = cc.currentOffset;
-								cc.currentOffset += (upto + 1);
+								cc.currentOffset += (upto - cc.from + 1);
+								cc.from = upto+1;
+								cc.terminate(msgOrSeg);
 								return piece;
 							}
 							default:
@@ -694,11 +716,7 @@ class SEGDefinition extends GSDDefinition {
 							}
 						}
 						//no tab found (or rest was the empty string): return the rest
-						piece = cc.rest;
-						cc.lastOffset = cc.currentOffset;
-						cc.currentOffset += cc.rest.length(); //cumulative
-						cc.rest = null;
-						return piece;
+						return cc.last();
 					}
 				};
 				restOfLine = m.group(1);
@@ -710,26 +728,33 @@ class SEGDefinition extends GSDDefinition {
 			p = Pattern.compile("^CUT-ON-([^\\s]{1})(.*?)\\1\\s*(.*)$");
 			m = p.matcher(restOfLine);
 			if (m.matches()) {
+				//compile the cut-pattern once for all parsings
+				final Pattern cutRegex;
+				try {
+					cutRegex = Pattern.compile(m.group(2));
+				} catch (Exception e) {
+					throw new ParserException.DEFErrorInvalidRegex(m.group(2),_linenb,e.getLocalizedMessage());
+				}
 				cutFunction = new CutFunction("Cut-on-Pattern-as-Separator",m.group(2)) {
 					public String toString() {
 						return ("CUT-ON-\""+this.cutPattern+"\"");
 					}
 
-					CutContext cut(String dataIn, int startLineNb) {
+					CutContext cut(CharSequence dataIn, int startLineNb) {
 						return cut(dataIn, startLineNb,0);
 					}
 
 
-					CutContext cut(String dataIn, int startLineNb, int startOffset) {
+					CutContext cut(CharSequence dataIn, int startLineNb, int startOffset) {
 						CutContext cc = super.cut(dataIn, startLineNb, startOffset);
-						Pattern pattern = Pattern.compile(this.cutPattern);
-						cc.matcher = pattern.matcher(dataIn);
+						//the region bounds are opaque and anchoring, as if matching the data alone
+						cc.matcher = cutRegex.matcher(cc.source).region(cc.from, cc.limit);
 						return cc;
 					}
 
-					String getNext(CutContext cc) {
-						if (cc.rest==null) return null;
-						String piece = "";
+					CharSequence getNext(CutContext cc) {
+						if (!cc.more) return null;
+						CharSequence piece = "";
 						String sep = "";
 						int offset = 0;
 						int lineOffset = 0;
@@ -744,23 +769,23 @@ class SEGDefinition extends GSDDefinition {
 							//  AND d) an odd count of consecutive release characters actually precede it
 							if (rCh!=null 
 									&& cc.matcher.end()-cc.matcher.start()==1
-									&& cc.matcher.start()>0 
-									&& cc.rest.charAt(cc.matcher.start()-1)==rCh.charValue()) {
+									&& cc.matcher.start()>cc.from 
+									&& cc.source.charAt(cc.matcher.start()-1)==rCh.charValue()) {
 								//if there is an odd sequence of release characters actually preceding the match
 								//then this is a false match
 								int count = 1;
-								while (cc.matcher.start()-count>0 
-									&& cc.rest.charAt(cc.matcher.start()-count-1)==rCh.charValue())
+								while (cc.matcher.start()-count>cc.from 
+									&& cc.source.charAt(cc.matcher.start()-count-1)==rCh.charValue())
 									count++;
 								if (count%2==1)	continue;
 							}							
 							//we found a valid separator matching the pattern
-							piece = cc.rest.substring(cc.lastEnd, cc.matcher.start());
+							piece = cc.piece(cc.lastEnd, cc.matcher.start());
 							sep = cc.matcher.group();
 							offset = piece.length()+ sep.length();
 							cc.lastEnd = cc.matcher.end();
 							//apply a terminator semantic in case of the message and delimiter in case of segment
-							if ((cc.lastEnd>=cc.rest.length())&&(msgOrSeg.equals("MSG"))) cc.rest = null;
+							if ((cc.lastEnd>=cc.limit)&&(msgOrSeg.equals("MSG"))) cc.more = false;
 							//update the lineOffset if the extracted separator contained LF's
 							//count them first
 							for (int i=0;i<sep.length();i++) 
@@ -780,8 +805,8 @@ class SEGDefinition extends GSDDefinition {
 						}
 
 						//ELSE, no pattern found, return it all as the last piece
-						piece = ((cc.lastEnd>=cc.rest.length())?"":cc.rest.substring(cc.lastEnd));
-						cc.rest = null;
+						piece = ((cc.lastEnd>=cc.limit)?"":cc.piece(cc.lastEnd, cc.limit));
+						cc.more = false;
 						offset = piece.length();
 						cc.lastOffset = cc.currentOffset;
 						cc.currentOffset += offset; //cumulative
@@ -790,12 +815,6 @@ class SEGDefinition extends GSDDefinition {
 					}
 
 				};
-				//ensure that the cut-pattern can be compiled
-				try {
-					Pattern.compile(m.group(2)).matcher("");
-				} catch (Exception e) {
-					throw new ParserException.DEFErrorInvalidRegex(m.group(2),_linenb,e.getLocalizedMessage());
-				}
 				restOfLine = m.group(3);
 				break;		
 			}
@@ -806,23 +825,29 @@ class SEGDefinition extends GSDDefinition {
 			p = Pattern.compile("^CUT\\s+([^\\s]{1})(.*?)\\1\\s*(.*?)$");
 			m = p.matcher(restOfLine);
 			if (m.matches()) {
+				//compile the cut-pattern once for all parsings
+				final Pattern cutRegex;
+				try {
+					cutRegex = Pattern.compile(m.group(2));
+				} catch (Exception e) {
+					throw new ParserException.DEFErrorInvalidRegex(m.group(2),_linenb,e.getLocalizedMessage());
+				}
 				cutFunction = new CutFunction("Cut-by-Matching-Pattern",m.group(2)) {
 					public String toString() {
 						return ("CUT \""+this.cutPattern+"\"");
 					}
 					
 					
-					CutContext cut(String dataIn, int startLineNb) {
+					CutContext cut(CharSequence dataIn, int startLineNb) {
 						return cut(dataIn, startLineNb,0);
 					}
 
 
-					CutContext cut(String dataIn, int startLineNb, int startOffset) {
+					CutContext cut(CharSequence dataIn, int startLineNb, int startOffset) {
 						CutContext cc = super.cut(dataIn, startLineNb, startOffset);
-						Pattern pattern = Pattern.compile(this.cutPattern);
-						cc.matcher = pattern.matcher(cc.rest);
-						if (cc.matcher.find()) cc.rest="TRUE";
-						else cc.rest= null;
+						//the region bounds are opaque and anchoring, as if matching the data alone
+						cc.matcher = cutRegex.matcher(cc.source).region(cc.from, cc.limit);
+						cc.more = cc.matcher.find();
 						cc.lastOffset = startOffset; //frozen to this value in the present case
 						cc.nextGroupNb = 0;
 						if (cc.matcher.groupCount()>0) cc.nextGroupNb=1;
@@ -833,18 +858,15 @@ class SEGDefinition extends GSDDefinition {
 						cc.nextGroupNb++;
 						if (cc.nextGroupNb>cc.matcher.groupCount()) {
 							cc.nextGroupNb=1;
-							if (cc.matcher.find())
-								cc.rest = "TRUE";
-							else
-								cc.rest = null;
+							cc.more = cc.matcher.find();
 							
 						}
 						return;
 					}
 					
-					String getNext(CutContext cc) {
-						if (cc.rest==null) return null;
-						String s;
+					CharSequence getNext(CutContext cc) {
+						if (!cc.more) return null;
+						CharSequence s;
 						if (cc.nextGroupNb>0) {
 							//only consider capturing groups (not group(0)), in possibly repeating pattern
 							//but we still need to skip nested capturing groups
@@ -855,8 +877,8 @@ class SEGDefinition extends GSDDefinition {
 								return this.getNext(cc);
 							}
 							else {
-								s = cc.matcher.group(cc.nextGroupNb);
-								cc.currentOffset = cc.matcher.start(cc.nextGroupNb)+cc.lastOffset;
+								s = cc.piece(cc.matcher.start(cc.nextGroupNb), cc.matcher.end(cc.nextGroupNb));
+								cc.currentOffset = cc.matcher.start(cc.nextGroupNb)-cc.from+cc.lastOffset;
 								cc.lastEnd = cc.matcher.end(cc.nextGroupNb);
 								//position for next group
 								this.calculateNextGroup(cc);
@@ -866,10 +888,9 @@ class SEGDefinition extends GSDDefinition {
 						}
 						else {
 							//repeating pattern cutting mode, no capturing groups but group(0)
-							s = cc.matcher.group(0);
-							cc.currentOffset = cc.matcher.start(0)+cc.lastOffset;
-							if (cc.matcher.find()) cc.rest="TRUE";
-							else cc.rest= null;
+							s = cc.piece(cc.matcher.start(0), cc.matcher.end(0));
+							cc.currentOffset = cc.matcher.start(0)-cc.from+cc.lastOffset;
+							cc.more = cc.matcher.find();
 							return s;
 						}
 						
@@ -880,12 +901,6 @@ class SEGDefinition extends GSDDefinition {
 					}
 						
 				};
-				//ensure that the cut-pattern can be compiled
-				try {
-					Pattern.compile(m.group(2)).matcher("");
-				} catch (Exception e) {
-					throw new ParserException.DEFErrorInvalidRegex(m.group(2),_linenb,e.getLocalizedMessage());
-				}
 				restOfLine = m.group(3);
 				break;		
 			}
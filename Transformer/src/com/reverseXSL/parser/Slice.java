@@ -0,0 +1,91 @@
+package com.reverseXSL.parser;
+
+/**
+ * A read-only view on a range of characters of a source string, typically the input message.
+ * <p>
+ * The cut functions of segments hand out slices rather than substrings, such that the parse tree
+ * references the characters of the original message instead of holding copies of every segment and data
+ * element. A slice of a slice is a view on the same source. The characters are only copied into a String
+ * by {@link #toString()}, i.e. when the XML output writes them, or when reporting an exception.
+ * </p><p>
+ * Note that a slice is not equal to a String with the same characters; compare their <code>toString()</code>.
+ * </p>
+ *
+ * @author bernardH
+ */
+final class Slice implements CharSequence {
+
+	private final String source;
+	private final int start;
+	private final int end;
+
+	private Slice(String source, int start, int end) {
+		this.source = source;
+		this.start = start;
+		this.end = end;
+	}
+
+	/**
+	 * Gets a view on a range of characters, without copying them.
+	 *
+	 * @param cs	a String, a Slice, or any other character sequence (the latter being copied once)
+	 * @param from	the index of the first character, within cs
+	 * @param to	the index after the last character, within cs
+	 * @return a slice of the same source as cs
+	 */
+	static Slice of(CharSequence cs, int from, int to) {
+		if (from < 0 || to < from || to > cs.length())
+			throw new IndexOutOfBoundsException("Slice [" + from + "," + to + "[ of " + cs.length() + " chars");
+		if (cs instanceof Slice) {
+			Slice s = (Slice) cs;
+			return new Slice(s.source, s.start + from, s.start + to);
+		}
+		return new Slice(cs.toString(), from, to);
+	}
+
+	/**
+	 * @return the String holding the characters of this slice
+	 */
+	String source() {
+		return source;
+	}
+
+	/**
+	 * @return the index of the first character of this slice in its {@link #source()}
+	 */
+	int start() {
+		return start;
+	}
+
+	/**
+	 * @return the index after the last character of this slice in its {@link #source()}
+	 */
+	int end() {
+		return end;
+	}
+
+	public int length() {
+		return end - start;
+	}
+
+	public char charAt(int index) {
+		if (index < 0 || index >= end - start)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + (end - start));
+		return source.charAt(start + index);
+	}
+
+	public CharSequence subSequence(int from, int to) {
+		return of(this, from, to);
+	}
+
+	/**
+	 * Copies the characters of this slice.
+	 *
+	 * @return a new String, or the source itself when the slice covers it all
+	 */
+	public String toString() {
+		if (start == 0 && end == source.length()) return source;
+		return source.substring(start, end);
+	}
+
+}
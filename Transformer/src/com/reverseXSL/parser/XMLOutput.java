@@ -0,0 +1,233 @@
+package com.reverseXSL.parser;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.CharsetEncoder;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Minimal XML serializer writing markup and escaped character data straight to a {@link Writer}.
+ * <p>
+ * Supports just what the {@link Parser} needs to render a tagged message: elements, attributes,
+ * and text. The produced text is the one of the identity javax.xml.transform.Transformer formerly
+ * applied to a W3C DOM, i.e. same XML declaration, same escaping rules (including character
+ * references for characters that the output encoding cannot represent), and same line breaks and
+ * 3-space indentation when asked for.
+ * </p><p>
+ * The {@link XMLOutput.SAX} variant turns the very same rendering into SAX events, that is the
+ * document that an XML parser would report when reading the text.
+ * </p>
+ *
+ * @author bernardH
+ */
+class XMLOutput {
+
+	private static final String SPACES = "                                                                                                    ";
+
+	private final Writer w;
+	private final CharsetEncoder encoder; //null when all chars can be encoded (Unicode encodings)
+	final boolean indent;
+
+	/**
+	 * @param w			target writer
+	 * @param encoder	encoder applied behind the writer, used to test which characters shall rather be escaped;
+	 * 					null for a Unicode encoding
+	 * @param indent	asks for line breaks and indentation of elements
+	 */
+	XMLOutput(Writer w, CharsetEncoder encoder, boolean indent) {
+		this.w = w;
+		this.encoder = encoder;
+		this.indent = indent;
+	}
+
+	void startDocument(String encodingName) throws IOException, SAXException {
+		w.write("<?xml version=\"1.0\" encoding=\"");
+		w.write(encodingName);
+		w.write("\"?>");
+	}
+
+	//line break closing the document, nothing if not indenting
+	void endDocument() throws IOException, SAXException {
+		if (indent) w.write('\n');
+		w.flush();
+	}
+
+	//line break and indentation ahead of a child element or text node, nothing if not indenting
+	void newLine(int depth) throws IOException, SAXException {
+		if (!indent) return;
+		w.write('\n');
+		int n = depth*3;
+		while (n>SPACES.length()) {
+			w.write(SPACES);
+			n -= SPACES.length();
+		}
+		w.write(SPACES, 0, n);
+	}
+
+	/**
+	 * Starts an element, and closes it right away when empty.
+	 *
+	 * @param tag		element name
+	 * @param nsDecl	default namespace declared on this element, else null
+	 * @param ns		namespace of the element, i.e. the one in scope
+	 * @param attributes	attribute values by name (not including any namespace declaration), possibly null
+	 * @param empty		the element has no content
+	 */
+	void startElement(String tag, String nsDecl, String ns, Map<String, String> attributes, boolean empty) throws IOException, SAXException {
+		w.write('<');
+		w.write(tag);
+		if (nsDecl!=null) attribute("xmlns", nsDecl);
+		if (attributes!=null) {
+			Iterator<Map.Entry<String, String>> ia = attributes.entrySet().iterator();
+			Map.Entry<String, String> a;
+			while (ia.hasNext()) {
+				a = ia.next();
+				attribute(a.getKey(), a.getValue());
+			}
+		}
+		if (empty) w.write("/>");
+		else w.write('>');
+	}
+
+	/**
+	 * Ends an element that was not empty; arguments are those given to {@link #startElement(String, String, String, Map, boolean)}.
+	 */
+	void endElement(String tag, String nsDecl, String ns) throws IOException, SAXException {
+		w.write("</");
+		w.write(tag);
+		w.write('>');
+	}
+
+	void text(String s) throws IOException, SAXException {
+		escape(s, false);
+	}
+
+	private void attribute(String name, String value) throws IOException {
+		w.write(' ');
+		w.write(name);
+		w.write("=\"");
+		escape(value, true);
+		w.write('"');
+	}
+
+	/**
+	 * Writes the string with markup characters escaped, as well as control characters and any
+	 * character outside of the output encoding. Runs of characters left as is are written in one go.
+	 *
+	 * @param s		character data
+	 * @param inAttr	true for an attribute value (escapes quotes, tabs and line feeds in addition,
+	 * 					but leaves C1 control characters as is)
+	 * @throws IOException	on write failure, or in presence of a lone surrogate character
+	 */
+	private void escape(String s, boolean inAttr) throws IOException {
+		if (s==null) return;
+		int len = s.length();
+		int from = 0;
+		String ref;
+		char c;
+		for (int i=0; i<len; i++) {
+			c = s.charAt(i);
+			if (c>=0x20 && c<0x7F) {
+				switch (c) {
+				case '&': ref = "&amp;"; break;
+				case '<': ref = "&lt;"; break;
+				case '>': ref = "&gt;"; break;
+				case '"': ref = inAttr ? "&quot;" : null; break;
+				default: ref = null;
+				}
+			}
+			else if (c=='\n') ref = inAttr ? "&#10;" : null;
+			else if (c=='\t') ref = inAttr ? "&#9;" : null;
+			else if (c<0x20 || (!inAttr && c>=0x7F && c<=0x9F)) ref = "&#"+(int)c+";";
+			else if (Character.isHighSurrogate(c)) {
+				if (i+1>=len || !Character.isLowSurrogate(s.charAt(i+1)))
+					throw new IOException("Invalid UTF-16 surrogate detected: "+Integer.toHexString(c));
+				ref = "&#"+Character.toCodePoint(c, s.charAt(i+1))+";";
+				w.write(s, from, i-from);
+				w.write(ref);
+				from = (++i)+1;
+				continue;
+			}
+			else if (Character.isLowSurrogate(c))
+				throw new IOException("Invalid UTF-16 surrogate detected: "+Integer.toHexString(c));
+			else if (encoder!=null && !encoder.canEncode(c)) ref = "&#"+(int)c+";";
+			else ref = null;
+			if (ref!=null) {
+				w.write(s, from, i-from);
+				w.write(ref);
+				from = i+1;
+			}
+		}
+		w.write(s, from, len-from);
+	}
+
+	/**
+	 * Reports the XML rendering as SAX events to a ContentHandler, such as an XSLT TransformerHandler,
+	 * instead of writing it as text. Elements are reported with their namespace URI and no prefix,
+	 * the default namespace declarations as prefix mappings, and the line breaks and indentation
+	 * (when asked for) as character data.
+	 */
+	static final class SAX extends XMLOutput {
+		private final ContentHandler ch;
+		private final AttributesImpl atts = new AttributesImpl();
+		private static final AttributesImpl NO_ATTRIBUTES = new AttributesImpl();
+		private char[] buf = new char[200];
+
+		SAX(ContentHandler ch, boolean indent) {
+			super(null, null, indent);
+			this.ch = ch;
+		}
+
+		void startDocument(String encodingName) throws SAXException {
+			ch.startDocument();
+		}
+
+		void endDocument() throws SAXException {
+			ch.endDocument();
+		}
+
+		void newLine(int depth) throws SAXException {
+			if (!indent) return;
+			int n = 1+depth*3;
+			if (buf.length<n) buf = new char[n];
+			buf[0] = '\n';
+			for (int i=1; i<n; i++) buf[i] = ' ';
+			ch.characters(buf, 0, n);
+		}
+
+		void startElement(String tag, String nsDecl, String ns, Map<String, String> attributes, boolean empty) throws SAXException {
+			if (nsDecl!=null) ch.startPrefixMapping("", nsDecl);
+			AttributesImpl a = NO_ATTRIBUTES;
+			if (attributes!=null && !attributes.isEmpty()) {
+				atts.clear();
+				Iterator<Map.Entry<String, String>> ia = attributes.entrySet().iterator();
+				Map.Entry<String, String> e;
+				while (ia.hasNext()) {
+					e = ia.next();
+					atts.addAttribute("", e.getKey(), e.getKey(), "CDATA", e.getValue()==null?"":e.getValue());
+				}
+				a = atts;
+			}
+			ch.startElement(ns==null?"":ns, tag, tag, a);
+			if (empty) endElement(tag, nsDecl, ns);
+		}
+
+		void endElement(String tag, String nsDecl, String ns) throws SAXException {
+			ch.endElement(ns==null?"":ns, tag, tag);
+			if (nsDecl!=null) ch.endPrefixMapping("");
+		}
+
+		void text(String s) throws SAXException {
+			if (s==null || s.length()<=0) return;
+			if (buf.length<s.length()) buf = new char[s.length()];
+			s.getChars(0, s.length(), buf, 0);
+			ch.characters(buf, 0, s.length());
+		}
+	}
+
+}
@@ -0,0 +1,382 @@
+package com.reverseXSL.transform;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.text.DecimalFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.reverseXSL.message.MessageSplitter;
+
+/**
+ * Transforms files or streams that contain many concatenated messages, e.g. thousands of IATA Type-B
+ * or SWIFT messages in a single feed.
+ * <p>
+ * The input stream is cut into individual messages by a {@link MessageSplitter}, incrementally, and each
+ * message is transformed (mapping selection, parsing, XSLT) as soon as it is cut, exactly as
+ * {@link Transformer#transform(InputStream, java.io.OutputStream)} would do with that message alone.
+ * The outcome of every message is handed over to a {@link BatchTransformer.ResultHandler}, in the input order,
+ * and a transformation failure only affects the message concerned: the batch goes on with the next ones.
+ * </p><p>
+ * Transformations run in the calling thread, else on an executor, in which case message splitting and
+ * transformations are pipelined, and a bounded number of messages are in progress at any time.
+ * </p><p>
+ * Messages get IDs made of a base, by default the batch start time, followed by their sequence number
+ * in the batch.
+ * </p>
+ *
+ * @author bernardH
+ * @see TransformerFactory#newBatchTransformer(MessageSplitter)
+ * @see TransformerFactory#newBatchTransformer(Transformer, MessageSplitter, ExecutorService)
+ */
+public final class BatchTransformer {
+
+	private static final int MAX_IN_PROGRESS_PER_THREAD = 4;
+
+	private final TransformerFactory.Resources factory_resources;
+	private final MessageSplitter splitter;
+	private final ExecutorService executor; //null to transform in the calling thread
+	private int maxInProgress;
+	private String msgIDBase = null;
+
+	/**
+	 * Receives the outcome of each message of a batch, in sequence.
+	 */
+	public interface ResultHandler {
+		/**
+		 * @param r	the outcome of the transformation of one message
+		 * @throws IOException	aborts the batch, e.g. upon failure to store results
+		 */
+		void handle(Result r) throws IOException;
+	}
+
+	/**
+	 * The outcome of the transformation of one message in a batch.
+	 */
+	public static final class Result {
+		private final int index;
+		private final long offset;
+		private final int length;
+		private final ConcurrentTransformer.Result transformation;
+		private final Exception failure;
+		private final long elapsed;
+
+		Result(int index, MessageSplitter.Piece piece, ConcurrentTransformer.Result transformation, Exception failure, long elapsed) {
+			this.index = index;
+			this.offset = piece.getOffset();
+			this.length = piece.getBytes().length;
+			this.transformation = transformation;
+			this.failure = failure;
+			this.elapsed = elapsed;
+		}
+
+		/**
+		 * @return the sequence number of the message in the batch, from 1
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		/**
+		 * @return the position of the message in the input stream
+		 */
+		public long getOffset() {
+			return offset;
+		}
+
+		/**
+		 * @return the message size in bytes
+		 */
+		public int getLength() {
+			return length;
+		}
+
+		/**
+		 * @return true if the message was transformed, possibly with Parser exceptions still below thresholds
+		 */
+		public boolean isTransformed() {
+			return failure == null;
+		}
+
+		/**
+		 * @return the exception that stopped the transformation (thresholds exceeded, no mapping selection entry,
+		 * XSLT error...), else null
+		 */
+		public Exception getFailure() {
+			return failure;
+		}
+
+		/**
+		 * @return the output bytes, the log, the message ID, and the recorded Parser exceptions; the output is null
+		 * when the transformation failed
+		 */
+		public ConcurrentTransformer.Result getTransformation() {
+			return transformation;
+		}
+
+		/**
+		 * @return the transformation time, in nanoseconds
+		 */
+		public long getElapsedNanos() {
+			return elapsed;
+		}
+	}
+
+	/**
+	 * Aggregated figures on a batch.
+	 */
+	public static final class Statistics {
+		private int messages = 0;
+		private int failures = 0;
+		private long parserExceptions = 0;
+		private long bytesIn = 0;
+		private long bytesSkipped = 0;
+		private long bytesOut = 0;
+		private long transformNanos = 0;
+		private long elapsedNanos = 0;
+
+		void add(Result r) {
+			messages++;
+			bytesIn += r.getLength();
+			transformNanos += r.getElapsedNanos();
+			if (!r.isTransformed()) failures++;
+			else bytesOut += r.getTransformation().getOutput().length;
+			parserExceptions += r.getTransformation().getParserExceptionsCount();
+		}
+
+		/**
+		 * @return count of messages found in the input
+		 */
+		public int getMessages() {
+			return messages;
+		}
+
+		/**
+		 * @return count of messages that could not be transformed
+		 */
+		public int getFailures() {
+			return failures;
+		}
+
+		/**
+		 * @return total count of recorded Parser exceptions, over all messages
+		 */
+		public long getParserExceptions() {
+			return parserExceptions;
+		}
+
+		/**
+		 * @return total size of the messages
+		 */
+		public long getBytesIn() {
+			return bytesIn;
+		}
+
+		/**
+		 * @return count of input bytes outside of messages (blank lines, separators, data outside envelopes)
+		 */
+		public long getBytesSkipped() {
+			return bytesSkipped;
+		}
+
+		/**
+		 * @return total size of the transformation outputs
+		 */
+		public long getBytesOut() {
+			return bytesOut;
+		}
+
+		/**
+		 * @return the time spent in message transformations, summed over all messages (thus possibly exceeding the elapsed time
+		 * with concurrent transformations)
+		 */
+		public long getTransformNanos() {
+			return transformNanos;
+		}
+
+		/**
+		 * @return the overall batch time, from start to end of the input, in nanoseconds
+		 */
+		public long getElapsedNanos() {
+			return elapsedNanos;
+		}
+
+		/**
+		 * @return throughput in messages per second
+		 */
+		public double getMessagesPerSecond() {
+			return elapsedNanos > 0 ? messages * 1e9 / elapsedNanos : 0;
+		}
+
+		/**
+		 * @return input throughput in bytes per second
+		 */
+		public double getBytesPerSecond() {
+			return elapsedNanos > 0 ? (bytesIn + bytesSkipped) * 1e9 / elapsedNanos : 0;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#toString()
+		 */
+		public String toString() {
+			DecimalFormat df = new DecimalFormat("0.0");
+			return messages + " messages (" + failures + " failed, " + parserExceptions + " parser exceptions), "
+					+ bytesIn + " bytes in (+" + bytesSkipped + " skipped), " + bytesOut + " bytes out, in "
+					+ df.format(elapsedNanos / 1e6) + " ms: " + df.format(getMessagesPerSecond()) + " msg/s, "
+					+ df.format(getBytesPerSecond() / 1e6) + " MB/s";
+		}
+	}
+
+	/**
+	 * @param res	the factory resources shared by all transformations
+	 * @param splitter	message boundaries
+	 * @param executor	executor on which transformations are run, or null to run them in the calling thread
+	 */
+	BatchTransformer(TransformerFactory.Resources res, MessageSplitter splitter, ExecutorService executor) {
+		super();
+		this.factory_resources = res;
+		this.splitter = splitter;
+		this.executor = executor;
+		this.maxInProgress = executor == null ? 1 : Runtime.getRuntime().availableProcessors() * MAX_IN_PROGRESS_PER_THREAD;
+	}
+
+	/**
+	 * Sets the base of the message IDs used in traces and in the parsed XML, which is followed by the message
+	 * sequence number in the batch.
+	 *
+	 * @param base	the base, or null to use the batch start time (the default)
+	 */
+	public void setMessageIDBase(String base) {
+		msgIDBase = base;
+	}
+
+	/**
+	 * Sets how many messages may be in progress at once with an executor, i.e. split and not yet handled.
+	 * This bounds the memory used by a batch.
+	 *
+	 * @param max	count of messages, by default four times the count of processors
+	 */
+	public void setMaxInProgress(int max) {
+		if (executor != null) maxInProgress = Math.max(1, max);
+	}
+
+	/**
+	 * Transforms every message of a file.
+	 *
+	 * @param f	the input file
+	 * @param handler	receives the result of every message, in sequence, or null to only get statistics
+	 * @return statistics on the batch
+	 * @throws IOException	as would result from read errors, or thrown by the handler
+	 */
+	public Statistics transform(File f, ResultHandler handler) throws IOException {
+		InputStream in = new FileInputStream(f);
+		try {
+			return transform(in, handler);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Transforms every message of a stream, read till its end; the stream is not closed.
+	 *
+	 * @param in	reading concatenated messages
+	 * @param handler	receives the result of every message, in sequence, or null to only get statistics
+	 * @return statistics on the batch
+	 * @throws IOException	as would result from read errors, or thrown by the handler
+	 */
+	public Statistics transform(InputStream in, ResultHandler handler) throws IOException {
+		long t0 = System.nanoTime();
+		Statistics stats = new Statistics();
+		String base = msgIDBase != null ? msgIDBase : new SimpleDateFormat("yyMMdd_HHmmss").format(new Date()) + "_";
+		DecimalFormat df = new DecimalFormat("000000");
+		MessageSplitter.Pieces pieces = splitter.split(in);
+		Transformer t = executor == null ? new Transformer(factory_resources) : null;
+		LinkedList<Future<Result>> inProgress = new LinkedList<Future<Result>>();
+		MessageSplitter.Piece piece;
+		int index = 0;
+		try {
+			while ((piece = pieces.next()) != null) {
+				index++;
+				if (t != null) {
+					deliver(transform(t, index, base + df.format(index), piece), stats, handler);
+				} else {
+					final int i = index;
+					final String msgID = base + df.format(index);
+					final MessageSplitter.Piece p = piece;
+					inProgress.add(executor.submit(new Callable<Result>() {
+						public Result call() {
+							return transform(new Transformer(factory_resources), i, msgID, p);
+						}
+					}));
+					while (inProgress.size() >= maxInProgress)
+						deliver(inProgress.removeFirst(), stats, handler);
+				}
+			}
+			while (!inProgress.isEmpty())
+				deliver(inProgress.removeFirst(), stats, handler);
+		} finally {
+			//on abort, don't leave transformations behind
+			while (!inProgress.isEmpty())
+				inProgress.removeFirst().cancel(true);
+		}
+		stats.bytesSkipped = pieces.getSkippedBytes();
+		stats.elapsedNanos = System.nanoTime() - t0;
+		return stats;
+	}
+
+	/**
+	 * Transforms one message, and records the outcome whatever it is.
+	 */
+	private Result transform(Transformer t, int index, String msgID, MessageSplitter.Piece piece) {
+		long t0 = System.nanoTime();
+		t.setLocalMessageReferences(msgID, new Date());
+		ByteArrayOutputStream out = new ByteArrayOutputStream(piece.getBytes().length * 2);
+		Exception failure = null;
+		try {
+			t.transform(new ByteArrayInputStream(piece.getBytes()), out);
+		} catch (Exception e) {
+			failure = e;
+		}
+		ConcurrentTransformer.Result r = new ConcurrentTransformer.Result(failure == null ? out.toByteArray() : null, t, failure);
+		return new Result(index, piece, r, failure, System.nanoTime() - t0);
+	}
+
+	private void deliver(Result r, Statistics stats, ResultHandler handler) throws IOException {
+		stats.add(r);
+		if (handler != null) handler.handle(r);
+	}
+
+	private void deliver(Future<Result> f, Statistics stats, ResultHandler handler) throws IOException {
+		try {
+			deliver(f.get(), stats, handler);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Batch transformation interrupted");
+		} catch (ExecutionException e) {
+			//transformation failures are caught in transform(), so this is an Error
+			Throwable c = e.getCause();
+			if (c instanceof Error) throw (Error) c;
+			throw new IllegalStateException(c.toString());
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return "[com.reverseXSL.transform.BatchTransformer] " + splitter + (executor == null ? "" : " on " + executor)
+				+ "\n" + factory_resources.toString();
+	}
+
+}
@@ -0,0 +1,273 @@
+package com.reverseXSL.transform;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.reverseXSL.parser.ParserException;
+import com.reverseXSL.types.DataFormat;
+
+/**
+ * Executes message transformations in parallel, on a pool of worker threads.
+ * <p>
+ * A {@link Transformer} holds the state of the transformation in progress and is thus
+ * bound to a single thread at a time. The ConcurrentTransformer accepts any number of
+ * input messages, and submits each transformation (mapping selection, parsing, XSLT) to an
+ * executor, using a fresh Transformer per message. All these Transformer objects share
+ * the resources of the same factory, notably the {@link DefinitionCache cached parsing DEFinitions}
+ * and {@link TemplatesCache compiled XSL templates}, which are read-only and thread-safe.
+ * </p>
+ * <p>
+ * Each submission immediately returns a {@link Future} that eventually yields a
+ * {@link ConcurrentTransformer.Result} with the transformed output bytes, the Transformer log,
+ * and the list of recorded Parser exceptions. Any exception thrown by the transformation itself
+ * (thresholds exceeded, no mapping selection entry, XSLT error...) is reported by the Result
+ * as well, see {@link ConcurrentTransformer.Result#getFailure()}, such that the log and the
+ * Parser exceptions that led to the rejection of the message remain available.
+ * </p>
+ * <p>
+ * The executor is either supplied by the application (and then left under its control), or
+ * created as a fixed-size pool that is released with {@link #shutdown()}. Any ExecutorService
+ * can be supplied, including a virtual-thread-per-task executor on JVMs that provide one.
+ * </p>
+ *
+ * @author bernardH
+ * @see TransformerFactory#newConcurrentTransformer(ExecutorService)
+ * @see TransformerFactory#newConcurrentTransformer(int)
+ */
+public final class ConcurrentTransformer {
+
+	private final TransformerFactory.Resources factory_resources;
+	private final ExecutorService executor;
+	private final boolean ownExecutor;
+
+	/**
+	 * The outcome of a single message transformation.
+	 */
+	public static final class Result {
+		private final byte[] output;
+		private final TransformationLog log;
+		private final String messageID;
+		private final String entryName;
+		private final DataFormat outputFormat;
+		private final int parserExceptionsCount;
+		private final List<ParserException> parserExceptions;
+		private final Exception failure;
+
+		Result(byte[] output, Transformer t, Exception failure) {
+			this.output = output;
+			this.failure = failure;
+			this.log = t.getTransformationLog();
+			this.messageID = t.msgID;
+			this.entryName = t.getName();
+			this.outputFormat = t.outputFormat;
+			if (t.parser == null) {
+				this.parserExceptionsCount = 0;
+				this.parserExceptions = Collections.<ParserException>emptyList();
+			} else {
+				this.parserExceptionsCount = t.parser.getExceptionsCount();
+				List<ParserException> l = new ArrayList<ParserException>(this.parserExceptionsCount);
+				ListIterator<?> iter = t.parser.exceptionIterator();
+				while (iter.hasNext()) l.add((ParserException) iter.next());
+				this.parserExceptions = Collections.unmodifiableList(l);
+			}
+		}
+
+		/**
+		 * @return true if the message was transformed, possibly with Parser exceptions still below thresholds
+		 */
+		public boolean isTransformed() {
+			return failure == null;
+		}
+
+		/**
+		 * @return the exception that stopped the transformation (thresholds exceeded, no mapping selection entry,
+		 * XSLT error...), else null
+		 */
+		public Exception getFailure() {
+			return failure;
+		}
+
+		/**
+		 * @return the transformed message bytes, encoded with the factory output charset; null when the
+		 * transformation failed
+		 */
+		public byte[] getOutput() {
+			return output;
+		}
+
+		/**
+		 * @return the printable log of the transformation, formatted with each call
+		 * @see Transformer#getLog()
+		 */
+		public StringBuffer getLog() {
+			return log==null? null : log.format();
+		}
+
+		/**
+		 * @return the message ID used in traces and in the parsed XML
+		 */
+		public String getMessageID() {
+			return messageID;
+		}
+
+		/**
+		 * @return the name of the selected Mapping Selection Table entry, possibly null
+		 * @see Transformer#getName()
+		 */
+		public String getName() {
+			return entryName;
+		}
+
+		/**
+		 * @return the format of the output data
+		 */
+		public DataFormat getOutputFormat() {
+			return outputFormat;
+		}
+
+		/**
+		 * @return count of Parser exceptions, as would be returned by {@link Transformer#transform(InputStream, java.io.OutputStream)}
+		 */
+		public int getParserExceptionsCount() {
+			return parserExceptionsCount;
+		}
+
+		/**
+		 * @return the read-only list of recorded {@link ParserException}s, in sequence
+		 */
+		public List<ParserException> getParserExceptions() {
+			return parserExceptions;
+		}
+	}
+
+	/**
+	 * Creates a concurrent transformation service.
+	 *
+	 * @param res	the factory resources shared by all transformations
+	 * @param executor	executor on which transformations are run
+	 * @param ownExecutor	whether the executor shall be shut down together with this service
+	 */
+	ConcurrentTransformer(TransformerFactory.Resources res, ExecutorService executor, boolean ownExecutor) {
+		super();
+		this.factory_resources = res;
+		this.executor = executor;
+		this.ownExecutor = ownExecutor;
+	}
+
+	/**
+	 * Creates a fixed-size pool of worker threads, one per available processor.
+	 * @return a new executor, to be owned by a ConcurrentTransformer
+	 */
+	static ExecutorService newDefaultExecutor(int nThreads) {
+		return Executors.newFixedThreadPool(nThreads > 0 ? nThreads : Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Submits the transformation of a message read from the InputStream. The stream is read
+	 * from the worker thread, till no more bytes are available, but it is not closed.
+	 *
+	 * @param in	reading input message bytes
+	 * @return a Future on the transformation {@link Result}
+	 */
+	public Future<Result> submit(final InputStream in) {
+		return submit(in, null);
+	}
+
+	/**
+	 * Submits the transformation of a message read from the InputStream, with an imposed message ID.
+	 *
+	 * @param in	reading input message bytes
+	 * @param messageID	message reference to be used in traces and in the parsed XML, or null for the default
+	 * @return a Future on the transformation {@link Result}
+	 * @see Transformer#setLocalMessageReferences(String, Date)
+	 */
+	public Future<Result> submit(final InputStream in, final String messageID) {
+		return executor.submit(new Callable<Result>() {
+			public Result call() {
+				Transformer t = new Transformer(factory_resources);
+				if (messageID != null) t.setLocalMessageReferences(messageID, new Date());
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				try {
+					t.transform(in, out);
+				} catch (Exception e) {
+					return new Result(null, t, e);
+				}
+				return new Result(out.toByteArray(), t, null);
+			}
+		});
+	}
+
+	/**
+	 * Submits the transformation of a message supplied as bytes.
+	 *
+	 * @param msg	the input message bytes
+	 * @return a Future on the transformation {@link Result}
+	 */
+	public Future<Result> submit(byte[] msg) {
+		return submit(new ByteArrayInputStream(msg), null);
+	}
+
+	/**
+	 * Submits the transformation of every message in the collection.
+	 *
+	 * @param inputs	a collection of <code>byte[]</code> or {@link InputStream} elements
+	 * @return the list of Futures on the transformation {@link Result}s, in the iteration order of the inputs
+	 * @throws IllegalArgumentException when an element is neither a byte array nor an InputStream
+	 */
+	public List<Future<Result>> submitAll(Collection<?> inputs) {
+		List<Future<Result>> futures = new ArrayList<Future<Result>>(inputs.size());
+		Iterator<?> iter = inputs.iterator();
+		Object o;
+		while (iter.hasNext()) {
+			o = iter.next();
+			if (o instanceof byte[]) futures.add(submit((byte[]) o));
+			else if (o instanceof InputStream) futures.add(submit((InputStream) o));
+			else throw new IllegalArgumentException("Cannot transform an input of type ["
+					+ (o == null ? "null" : o.getClass().getName()) + "], expecting byte[] or InputStream");
+		}
+		return futures;
+	}
+
+	/**
+	 * Releases the worker threads when the pool was created by the factory; no operation when
+	 * the executor was supplied by the application. Already submitted transformations complete.
+	 */
+	public void shutdown() {
+		if (ownExecutor) executor.shutdown();
+	}
+
+	/**
+	 * Waits for the completion of all submitted transformations after a {@link #shutdown()},
+	 * when the pool was created by the factory.
+	 *
+	 * @param timeout	the maximum time to wait
+	 * @param unit	the time unit of the timeout argument
+	 * @return true if the pool terminated, false if the timeout elapsed, or the executor is not owned
+	 * @throws InterruptedException
+	 */
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		if (!ownExecutor) return false;
+		return executor.awaitTermination(timeout, unit);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return "[com.reverseXSL.transform.ConcurrentTransformer] on " + executor + "\n" + factory_resources.toString();
+	}
+
+}
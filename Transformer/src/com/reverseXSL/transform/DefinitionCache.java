@@ -0,0 +1,48 @@
+package com.reverseXSL.transform;
+
+import java.io.IOException;
+import java.io.LineNumberReader;
+import java.io.StringReader;
+
+import com.reverseXSL.parser.Definition;
+import com.reverseXSL.parser.ParserException;
+
+/**
+ * A size-bounded cache of fully loaded parsing {@link Definition} objects, shared by all
+ * Transformer objects issued by the same {@link TransformerFactory}.
+ * <p>
+ * Loading a DEF file is costly: every MSG, SEG, GRP, D, MARK and COND line yields
+ * several regular expressions to compile. Definition objects are read-only once loaded
+ * and can thus be shared by as many threads as desired; the cache makes sure that a
+ * frequently used mapping pays the DEF load cost only once.
+ * </p>
+ * <p>
+ * Entries are keyed by resource name and replaced whenever the DEF content changes, see
+ * {@link ResourceCache}.
+ * </p>
+ *
+ * @author bernardH
+ * @see TransformerFactory#getDefinitionCache()
+ */
+public final class DefinitionCache extends ResourceCache<Definition, ParserException> {
+
+	/**
+	 * Default count of Definition objects kept in a cache.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 50;
+
+	/**
+	 * Creates an empty cache.
+	 * @param maxSize maximum count of Definition objects kept in cache, 0 to disable caching
+	 */
+	public DefinitionCache(int maxSize) {
+		super("DEFinition", maxSize);
+	}
+
+	Definition build(String content) throws IOException, ParserException {
+		Definition def = new Definition();
+		def.loadDefinition(new LineNumberReader(new StringReader(content)));
+		return def;
+	}
+
+}
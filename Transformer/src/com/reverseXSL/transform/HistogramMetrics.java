@@ -0,0 +1,268 @@
+package com.reverseXSL.transform;
+
+import java.lang.management.ManagementFactory;
+import java.text.DecimalFormat;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.reverseXSL.types.Impact;
+
+/**
+ * An in-memory {@link TransformerMetrics} implementation, keeping a histogram of the time spent in every
+ * transformation stage, per message type, plus byte and exception counters.
+ * <p>
+ * Message types are the names of the selected Mapping Selection Table entries (else the DEF resource name for
+ * entries without name), such that one can tell where latency goes per message type. Histograms have a fixed
+ * size, whatever the count of messages, with four buckets per power of two: percentiles are thus approximated
+ * by excess, within 25%, and never exceed the maximum time observed.
+ * </p><p>
+ * The metrics are readable via JMX once {@link #register(String)} is called, for instance with jconsole.
+ * </p>
+ *
+ * @author bernardH
+ * @see TransformerFactory#setMetrics(TransformerMetrics)
+ */
+public class HistogramMetrics implements TransformerMetrics, HistogramMetricsMBean {
+
+	/**
+	 * The message type aggregating all messages.
+	 */
+	public static final String ALL = "*";
+
+	/**
+	 * The message type of messages that matched no Mapping Selection Table entry.
+	 */
+	public static final String UNSELECTED = "-";
+
+	private static final String TOTAL = "total";
+
+	private final Map<String, Stats> stats = new HashMap<String, Stats>();
+	private long failures = 0;
+	private long bytesIn = 0;
+	private long bytesOut = 0;
+	private long fatalExceptions = 0;
+	private long warnings = 0;
+	private ObjectName objectName = null;
+
+	/**
+	 * A histogram of durations, in nanoseconds.
+	 */
+	private static final class Histogram {
+		private final long[] buckets = new long[256];
+		private long count = 0;
+		private long sum = 0;
+		private long max = 0;
+
+		void add(long nanos) {
+			if (nanos < 0) nanos = 0;
+			buckets[bucket(nanos)]++;
+			count++;
+			sum += nanos;
+			if (nanos > max) max = nanos;
+		}
+
+		// four buckets per power of two
+		static int bucket(long v) {
+			if (v < 4) return (int) v;
+			int p = 63 - Long.numberOfLeadingZeros(v);
+			return 4 * (p - 1) + (int) ((v >>> (p - 2)) & 3);
+		}
+
+		static long upperBound(int bucket) {
+			if (bucket < 4) return bucket;
+			int p = bucket / 4 + 1;
+			return ((4L + bucket % 4) << (p - 2)) + (1L << (p - 2)) - 1;
+		}
+
+		double mean() {
+			return count == 0 ? 0 : (double) sum / count;
+		}
+
+		long percentile(double pct) {
+			if (count == 0) return 0;
+			long target = (long) Math.ceil(count * Math.min(100, Math.max(0, pct)) / 100);
+			long cumul = 0;
+			for (int i = 0; i < buckets.length; i++) {
+				cumul += buckets[i];
+				if (cumul >= target && cumul > 0) return Math.min(upperBound(i), max);
+			}
+			return max;
+		}
+	}
+
+	/**
+	 * The histograms of one message type, per stage plus total.
+	 */
+	private static final class Stats {
+		final Histogram[] stages = new Histogram[STAGES.length + 1];
+
+		Stats() {
+			for (int i = 0; i < stages.length; i++) stages[i] = new Histogram();
+		}
+
+		void add(Sample s) {
+			for (int i = 0; i < STAGES.length; i++) stages[i].add(s.getNanos(i));
+			stages[STAGES.length].add(s.getTotalNanos());
+		}
+	}
+
+	/**
+	 * Creates empty metrics.
+	 */
+	public HistogramMetrics() {
+		super();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.reverseXSL.transform.TransformerMetrics#record(com.reverseXSL.transform.TransformerMetrics.Sample)
+	 */
+	public synchronized void record(Sample s) {
+		String type = s.getEntryName() == null ? UNSELECTED : s.getEntryName();
+		stats(ALL).add(s);
+		stats(type).add(s);
+		if (s.isFailed()) failures++;
+		bytesIn += s.getBytesIn();
+		bytesOut += s.getBytesOut();
+		fatalExceptions += s.getExceptionsCount(Impact.FATAL);
+		warnings += s.getExceptionsCount(Impact.WARNING);
+	}
+
+	private Stats stats(String type) {
+		Stats st = stats.get(type);
+		if (st == null) {
+			st = new Stats();
+			stats.put(type, st);
+		}
+		return st;
+	}
+
+	private Histogram histogram(String type, String stage) {
+		Stats st = stats.get(type == null || type.length() == 0 ? ALL : type);
+		if (st == null) return null;
+		if (TOTAL.equals(stage)) return st.stages[STAGES.length];
+		for (int i = 0; i < STAGES.length; i++)
+			if (STAGES[i].equals(stage)) return st.stages[i];
+		throw new IllegalArgumentException("Unknown transformation stage [" + stage + "]");
+	}
+
+	public synchronized long getMessages() {
+		Stats st = stats.get(ALL);
+		return st == null ? 0 : st.stages[STAGES.length].count;
+	}
+
+	public synchronized long getFailures() {
+		return failures;
+	}
+
+	public synchronized long getBytesIn() {
+		return bytesIn;
+	}
+
+	public synchronized long getBytesOut() {
+		return bytesOut;
+	}
+
+	public synchronized long getFatalExceptions() {
+		return fatalExceptions;
+	}
+
+	public synchronized long getWarnings() {
+		return warnings;
+	}
+
+	public synchronized String[] getMessageTypes() {
+		String[] types = stats.keySet().toArray(new String[0]);
+		Arrays.sort(types);
+		return types;
+	}
+
+	public String[] getStages() {
+		String[] stages = new String[STAGES.length + 1];
+		System.arraycopy(STAGES, 0, stages, 0, STAGES.length);
+		stages[STAGES.length] = TOTAL;
+		return stages;
+	}
+
+	public synchronized long getCount(String messageType) {
+		Histogram h = histogram(messageType, TOTAL);
+		return h == null ? 0 : h.count;
+	}
+
+	public synchronized double getMeanMillis(String messageType, String stage) {
+		Histogram h = histogram(messageType, stage);
+		return h == null ? 0 : h.mean() / 1e6;
+	}
+
+	public synchronized double getPercentileMillis(String messageType, String stage, double percentile) {
+		Histogram h = histogram(messageType, stage);
+		return h == null ? 0 : h.percentile(percentile) / 1e6;
+	}
+
+	public synchronized String[] getSummary() {
+		String[] types = getMessageTypes();
+		String[] stages = getStages();
+		String[] lines = new String[types.length * stages.length];
+		DecimalFormat df = new DecimalFormat("0.000");
+		int n = 0;
+		for (int t = 0; t < types.length; t++) {
+			for (int i = 0; i < stages.length; i++) {
+				Histogram h = histogram(types[t], stages[i]);
+				lines[n++] = types[t] + " " + stages[i] + ": count=" + h.count + " mean=" + df.format(h.mean() / 1e6)
+						+ "ms p50=" + df.format(h.percentile(50) / 1e6) + "ms p90=" + df.format(h.percentile(90) / 1e6)
+						+ "ms p99=" + df.format(h.percentile(99) / 1e6) + "ms max=" + df.format(h.max / 1e6) + "ms";
+			}
+		}
+		return lines;
+	}
+
+	public synchronized void reset() {
+		stats.clear();
+		failures = bytesIn = bytesOut = fatalExceptions = warnings = 0;
+	}
+
+	/**
+	 * Registers these metrics as an MBean of the platform MBean server, named
+	 * <code>com.reverseXSL:type=TransformerMetrics,name=</code><i>name</i>.
+	 *
+	 * @param name	distinguishes the metrics of several factories, e.g. an application name
+	 * @return the MBean name
+	 * @throws JMException	when the name is invalid or already registered
+	 */
+	public synchronized ObjectName register(String name) throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName on = new ObjectName("com.reverseXSL:type=TransformerMetrics,name=" + ObjectName.quote(name));
+		server.registerMBean(this, on);
+		objectName = on;
+		return on;
+	}
+
+	/**
+	 * Removes the MBean registered by {@link #register(String)}, if any.
+	 *
+	 * @throws JMException	as would result from the MBean server
+	 */
+	public synchronized void unregister() throws JMException {
+		if (objectName == null) return;
+		ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		objectName = null;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public synchronized String toString() {
+		StringBuffer sb = new StringBuffer("TRANSFORMER METRICS: ");
+		sb.append(getMessages()).append(" messages (").append(failures).append(" failed, ")
+			.append(fatalExceptions).append(" fatal and ").append(warnings).append(" warning parser exceptions), ")
+			.append(bytesIn).append(" bytes in, ").append(bytesOut).append(" bytes out\n");
+		String[] lines = getSummary();
+		for (int i = 0; i < lines.length; i++) sb.append("     ").append(lines[i]).append('\n');
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,85 @@
+package com.reverseXSL.transform;
+
+/**
+ * JMX management interface of {@link HistogramMetrics}.
+ * <p>
+ * Message types are the names of the Mapping Selection Table entries; the type {@link HistogramMetrics#ALL}
+ * aggregates all messages. Stages are named as in {@link TransformerMetrics#STAGES}, plus "total".
+ * </p>
+ *
+ * @author bernardH
+ */
+public interface HistogramMetricsMBean {
+
+	/**
+	 * @return count of transformations recorded
+	 */
+	long getMessages();
+
+	/**
+	 * @return count of transformations that threw an exception
+	 */
+	long getFailures();
+
+	/**
+	 * @return total size of input messages, in bytes
+	 */
+	long getBytesIn();
+
+	/**
+	 * @return total size of outputs, in bytes
+	 */
+	long getBytesOut();
+
+	/**
+	 * @return count of FATAL Parser exceptions, over all messages
+	 */
+	long getFatalExceptions();
+
+	/**
+	 * @return count of WARNING Parser exceptions, over all messages
+	 */
+	long getWarnings();
+
+	/**
+	 * @return the message types recorded so far, sorted, including {@link HistogramMetrics#ALL}
+	 */
+	String[] getMessageTypes();
+
+	/**
+	 * @return the stage names
+	 */
+	String[] getStages();
+
+	/**
+	 * @param messageType	a message type, or {@link HistogramMetrics#ALL}
+	 * @return count of transformations of that type
+	 */
+	long getCount(String messageType);
+
+	/**
+	 * @param messageType	a message type, or {@link HistogramMetrics#ALL}
+	 * @param stage	a stage name
+	 * @return mean time of the stage, in milliseconds
+	 */
+	double getMeanMillis(String messageType, String stage);
+
+	/**
+	 * @param messageType	a message type, or {@link HistogramMetrics#ALL}
+	 * @param stage	a stage name
+	 * @param percentile	from 0 to 100, e.g. 99
+	 * @return the time of the stage not exceeded by the given percentage of transformations, in milliseconds
+	 */
+	double getPercentileMillis(String messageType, String stage, double percentile);
+
+	/**
+	 * @return one line per message type and stage, with count, mean, median, 90th and 99th percentiles, and maximum
+	 */
+	String[] getSummary();
+
+	/**
+	 * Clears all recorded metrics.
+	 */
+	void reset();
+
+}
@@ -4,6 +4,8 @@ import java.io.IOException;
 import java.io.LineNumberReader;
 import java.io.Reader;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -13,7 +15,16 @@ import com.reverseXSL.message.Data;
 /**
  * Simple support for a mapping selection mechanism. Suitable as such for small collections of
  * message brands.
- * 
+ * <p>
+ * Selection patterns are compiled once when the table is loaded. Moreover, whenever a pattern 
+ * holds a literal string that any match necessarily contains (e.g. "FWB/" in <code>(?m)^FWB/\d</code>),
+ * that string is used as a cheap pre-filter: the regex is only run against message chunks that 
+ * contain it. Entries are still tried in table order, and the first match wins.
+ * </p><p>
+ * Patterns are searched in the leading part of a message only, by default its first 
+ * {@link #DEFAULT_SELECTION_RANGE} bytes. A table can set its own range with a line
+ * <code>SelectionRange = &lt;count of bytes&gt;</code>, not indented, anywhere in the table.
+ * </p>
  * @author bernardH
  *
  */
@@ -22,8 +33,15 @@ public class MappingSelection {
 	//these constants shall not be edited without affecting overall application consistency
 	public static final String MAPPING_SELECTION_TABLE = "mapping_selection_table.txt";
 	public static final String INJAR_MAPPING_SELECTION_TABLE = "resources/TABLES/"+MAPPING_SELECTION_TABLE;
+	public static final int DEFAULT_SELECTION_RANGE = 1500; //tells how much bytes to look-up for a mapping selection pattern
+							//note that just below 1000 bytes are required to hit the SMI in a IATA message prefixed by a
+							//fully loaded type-B header
 
 	ArrayList localSelectionTable = null;
+	//index of pattern keys, for enforcing the unicity of entries
+	HashMap<String, MappingEntry> patternKeys = null;
+	//count of leading message bytes in which patterns are searched
+	private int selectionRange = DEFAULT_SELECTION_RANGE;
 
 	final Pattern pPatternKey = Pattern.compile("^([\"'/`~]{1})(.*?)\\1\\s*$");
 	final Pattern pBlankLine = Pattern.compile("^\\s+$");
@@ -32,6 +50,7 @@ public class MappingSelection {
 	final Pattern pXSLTransformation = Pattern.compile("(?i)^\\s+XSLTransformation\\s*=\\s*\"(.*?)\"\\s*$");
 	final Pattern pName = Pattern.compile("(?i)^\\s+Name\\s*=\\s*\"(.*?)\"\\s*$");
 	final Pattern pComment = Pattern.compile("(?i)^\\s+Comment\\s*=\\s*\"(.*?)\"\\s*$");
+	final Pattern pSelectionRange = Pattern.compile("(?i)^SelectionRange\\s*=\\s*\"?(\\d{1,9})\"?\\s*$");
 
     /**
      * Models one entry in the Mapping Selection Table
@@ -48,9 +67,15 @@ public class MappingSelection {
     	public final String comment;
     	public final String name;
     	public final int sourceLineNb;
+    	//selection pattern compiled once, and the literal that any match must contain (or null)
+    	final Pattern compiledKey;
+    	final String requiredLiteral;
+    	private final AtomicLong hits = new AtomicLong();
    	
     	public MappingEntry(String ptrn, String normTokens, String defRsrc, String xslRsrc, String nam, String info, int srcLineNb ) {
     		patternKey = ptrn;
+    		compiledKey = Pattern.compile(ptrn);
+    		requiredLiteral = MappingSelection.requiredLiteral(ptrn);
     		normalizingTokens = normTokens;
     		defResource = defRsrc;
     		xslResource = xslRsrc;
@@ -59,13 +84,30 @@ public class MappingSelection {
     		sourceLineNb = srcLineNb;
     	}
     	
+    	/**
+    	 * @return count of messages for which this entry has been selected so far
+    	 */
+    	public long getHits() {
+    		return hits.get();
+    	}
+    	
+    	/**
+    	 * Tells whether this entry selects the given message chunk, and counts it as a hit.
+    	 */
+    	boolean select(String msgChunk) {
+    		if (requiredLiteral!=null && msgChunk.indexOf(requiredLiteral)<0) return false;
+    		if (!compiledKey.matcher(msgChunk).find()) return false;
+    		hits.incrementAndGet();
+    		return true;
+    	}
+    	
     	public String toString() {
     		return ("\""+patternKey
     				+"\" NORM=\""+normalizingTokens
     				+"\" DEF=\""+defResource
     				+"\" XSL=\""+xslResource
     				+"\" NAME=\""+name
-    				+"\" INFO=\""+comment+"\" FROM LINE="+sourceLineNb+"\n");
+    				+"\" INFO=\""+comment+"\" FROM LINE="+sourceLineNb+" HITS="+hits.get()+"\n");
     	}
     	
     	public int getConversions() {
@@ -107,12 +149,13 @@ public class MappingSelection {
 		Matcher m;
 		String p,f,d,x,n,c; //Pattern, Flags, Def, Xslt, Name, Comment
 		int l=0;
+		int rangeLine=0; //line of the SelectionRange setting, if any
 		p=f=d=x=n=c=null; //clear
 		
 		while (line!=null) {
 			//skip lines starting with a # or empty or blank
 			if (line.startsWith("#")||(line.length()<=0)
-					|| line.matches(pBlankLine.pattern())) {
+					|| pBlankLine.matcher(line).matches()) {
 				line = lnr.readLine(); continue; 
 			}
 			//assume a structure as 
@@ -153,7 +196,7 @@ public class MappingSelection {
 				line = lnr.readLine();
 				continue;
 			}
-			if (line.matches(pInputNormalizing.pattern())) {
+			if (pInputNormalizing.matcher(line).matches()) {
 				m = pInputNormalizing.matcher(line);
 				m.find();
 				if (f!=null) throw new TransformerException.OverloadedMappingSelectionAttribute(
@@ -162,7 +205,7 @@ public class MappingSelection {
 				line = lnr.readLine();
 				continue;
 			}
-			if (line.matches(pParserDefinition.pattern())) {
+			if (pParserDefinition.matcher(line).matches()) {
 				m = pParserDefinition.matcher(line);
 				m.find();
 				if (d!=null) throw new TransformerException.OverloadedMappingSelectionAttribute(
@@ -171,7 +214,7 @@ public class MappingSelection {
 				line = lnr.readLine();
 				continue;
 			}
-			if (line.matches(pXSLTransformation.pattern())) {
+			if (pXSLTransformation.matcher(line).matches()) {
 				m = pXSLTransformation.matcher(line);
 				m.find();
 				if (x!=null) throw new TransformerException.OverloadedMappingSelectionAttribute(
@@ -180,7 +223,7 @@ public class MappingSelection {
 				line = lnr.readLine();
 				continue;
 			}
-			if (line.matches(pName.pattern())) {
+			if (pName.matcher(line).matches()) {
 				m = pName.matcher(line);
 				m.find();
 				if (n!=null) throw new TransformerException.OverloadedMappingSelectionAttribute(
@@ -189,7 +232,7 @@ public class MappingSelection {
 				line = lnr.readLine();
 				continue;
 			}
-			if (line.matches(pComment.pattern())) {
+			if (pComment.matcher(line).matches()) {
 				m = pComment.matcher(line);
 				m.find();
 				if (c!=null) c = c.concat(", "+m.group(1));
@@ -197,6 +240,16 @@ public class MappingSelection {
 				line = lnr.readLine();
 				continue;
 			}
+			//table-wide setting, not indented
+			m = pSelectionRange.matcher(line);
+			if (m.matches()) {
+				if (rangeLine>0) throw new TransformerException.OverloadedMappingSelectionAttribute(
+						lnr.getLineNumber(),line,"SelectionRange",Integer.toString(selectionRange),rangeLine);
+				rangeLine = lnr.getLineNumber();
+				setSelectionRange(Integer.parseInt(m.group(1)));
+				line = lnr.readLine();
+				continue;
+			}
 			throw new TransformerException.UnexpectedMappingSelectionLine(lnr.getLineNumber(),line);
 		}
 		//save the MappingEntry loaded last, if any
@@ -218,28 +271,52 @@ public class MappingSelection {
 			if (!(arg0 instanceof MappingEntry))
 				return false;
 			//ensure unicity of entries
-			for (int i=0;i<localSelectionTable.size();i++) {
-				if (((MappingEntry)localSelectionTable.get(i)).patternKey.equals(((MappingEntry)arg0).patternKey))
+			if (patternKeys==null) patternKeys = new HashMap<String, MappingEntry>(64);
+			MappingEntry original = patternKeys.get(((MappingEntry)arg0).patternKey);
+			if (original!=null)
 					throw new TransformerException.DuplicateMappingSelectionKey(
 							((MappingEntry)arg0).sourceLineNb,
-							((MappingEntry)localSelectionTable.get(i)).patternKey,
-							((MappingEntry)localSelectionTable.get(i)).sourceLineNb);
+							original.patternKey,
+							original.sourceLineNb);
 //unicity of names shall NOT be tested in order to allow the same onward 'routing' to be defined for different entries
 //				if (((MappingEntry)localSelectionTable.get(i)).name.equals(((MappingEntry)arg0).name))
 //					throw new TransformerException.DuplicateMappingSelectionKey(
 //							((MappingEntry)arg0).sourceLineNb,
 //							((MappingEntry)localSelectionTable.get(i)).name,
 //							((MappingEntry)localSelectionTable.get(i)).sourceLineNb);
-			}
+			patternKeys.put(((MappingEntry)arg0).patternKey, (MappingEntry)arg0);
 			return localSelectionTable.add(arg0);
 		}
 
+	/**
+	 * @return the count of leading message bytes in which selection patterns are searched
+	 */
+	public int getSelectionRange() {
+		return selectionRange;
+	}
+
+	/**
+	 * Sets the count of leading message bytes in which selection patterns are searched, overriding 
+	 * the <code>SelectionRange</code> of the table, if any.
+	 * 
+	 * @param range	a count of bytes, at least 1
+	 */
+	public void setSelectionRange(int range) {
+		selectionRange = Math.max(1, range);
+	}
+
+	/**
+	 * Selects the first entry in table order whose pattern is found in the message chunk.
+	 * 
+	 * @param msgChunk	the leading part of a message
+	 * @return the selected entry, or null if none matches
+	 */
 	public MappingEntry matchEntry(String msgChunk ) {
 		MappingEntry me;
 		if (localSelectionTable!=null) {
 			for (int i=0;i<localSelectionTable.size();i++) {
 				me = (MappingEntry)localSelectionTable.get(i);
-				if (Pattern.compile(me.patternKey).matcher(msgChunk).find())
+				if (me.select(msgChunk))
 					return me;
 			}		
 		}
@@ -247,9 +324,166 @@ public class MappingSelection {
 
 	}
 
+	/**
+	 * Extracts from a regular expression the longest literal string that any match must contain.
+	 * <p>
+	 * The analysis is deliberately conservative: it only considers plain characters at the top level
+	 * of the expression (outside of groups and character classes) that are not made optional by a 
+	 * quantifier. No literal is returned when the expression holds a top-level alternation, or 
+	 * inline flags that change the meaning of characters (case insensitivity, comments, unicode case).
+	 * </p>
+	 * 
+	 * @param regex	a valid java regular expression
+	 * @return	the required literal, or null if none can be safely determined
+	 */
+	static String requiredLiteral(String regex) {
+		String best = "";
+		StringBuffer run = new StringBuffer();
+		int depth = 0;
+		boolean lastWasLiteral = false;
+		char c;
+		for (int i=0; i<regex.length(); i++) {
+			c = regex.charAt(i);
+			if (c=='\\') {
+				if (i+1>=regex.length()) return null;
+				char e = regex.charAt(++i);
+				if (e=='Q') return null; //quoting mode, not worth the trouble
+				if (depth==0 && !Character.isLetterOrDigit(e)) {
+					run.append(e); lastWasLiteral = true;
+				} else {
+					//a character class or other special construct: ends the run
+					if (run.length()>best.length()) best = run.toString();
+					run.setLength(0); lastWasLiteral = false;
+					i = endOfEscape(regex, i);
+					if (i<0) return null;
+				}
+				continue;
+			}
+			if (c=='[') {
+				//skip the whole character class, with possible nesting and escapes
+				int nest = 1;
+				i++;
+				if (i<regex.length() && regex.charAt(i)=='^') i++;
+				if (i<regex.length() && regex.charAt(i)==']') i++; //a leading ] is literal
+				for (; i<regex.length() && nest>0; i++) {
+					if (regex.charAt(i)=='\\') i++;
+					else if (regex.charAt(i)=='[') nest++;
+					else if (regex.charAt(i)==']') nest--;
+				}
+				i--;
+				if (depth==0) {
+					if (run.length()>best.length()) best = run.toString();
+					run.setLength(0);
+				}
+				lastWasLiteral = false;
+				continue;
+			}
+			if (c=='(') {
+				if (i+1<regex.length() && regex.charAt(i+1)=='?') {
+					//inline flags like (?i) or (?ix:...) may change the meaning of literals
+					for (int j=i+2; j<regex.length(); j++) {
+						char f = regex.charAt(j);
+						if (f==')' || f==':') break;
+						if (f=='i' || f=='x' || f=='u' || f=='U') return null;
+						if (!Character.isLetter(f) && f!='-') break;
+					}
+				}
+				if (depth==0) {
+					if (run.length()>best.length()) best = run.toString();
+					run.setLength(0);
+				}
+				depth++;
+				lastWasLiteral = false;
+				continue;
+			}
+			if (c==')') {
+				depth--;
+				lastWasLiteral = false;
+				continue;
+			}
+			if (depth>0) continue;
+			if (c=='|') return null;
+			if (c=='?' || c=='*' || c=='+' || c=='{') {
+				//the preceding literal char is optional or repeated: it ends the run
+				if (lastWasLiteral) run.setLength(run.length()-1);
+				if (run.length()>best.length()) best = run.toString();
+				run.setLength(0);
+				if (c=='{') {
+					i = regex.indexOf('}', i);
+					if (i<0) return null;
+				}
+				//possessive or reluctant modifiers
+				if (i+1<regex.length() && (regex.charAt(i+1)=='?' || regex.charAt(i+1)=='+')) i++;
+				lastWasLiteral = false;
+				continue;
+			}
+			if (c=='.' || c=='^' || c=='$') {
+				if (run.length()>best.length()) best = run.toString();
+				run.setLength(0);
+				lastWasLiteral = false;
+				continue;
+			}
+			run.append(c);
+			lastWasLiteral = true;
+		}
+		if (run.length()>best.length()) best = run.toString();
+		return best.length()>0? best : null;
+	}
+
+	/**
+	 * Finds the end of an escape sequence, including its argument if any, such that the characters of 
+	 * e.g. <code>\x41</code>, <code>\cA</code>, <code>\pL</code> or <code>\k&lt;name&gt;</code> are not 
+	 * taken for literals.
+	 * 
+	 * @param regex	a valid java regular expression
+	 * @param i	index of the char following the backslash
+	 * @return	index of the last char of the escape sequence, or -1 if it cannot be determined
+	 */
+	private static int endOfEscape(String regex, int i) {
+		int n = regex.length();
+		char e = regex.charAt(i);
+		int end = i;
+		switch (e) {
+		case 'x': //\xhh or \x{h...h}
+			end = (i+1<n && regex.charAt(i+1)=='{')? regex.indexOf('}', i) : i+2;
+			break;
+		case 'u': //u and 4 hex digits (not spelled out: a unicode escape, even within a comment)
+			end = i+4;
+			break;
+		case 'c': //\cx
+			end = i+1;
+			break;
+		case 'p': case 'P': //\pL or \p{name}
+		case 'N': //\N{name}
+			end = (i+1<n && regex.charAt(i+1)=='{')? regex.indexOf('}', i) : i+1;
+			break;
+		case 'k': //\k<name>
+			end = regex.indexOf('>', i);
+			break;
+		case '0': //\0n, \0nn or \0mnn with m up to 3
+			int max = (i+1<n && regex.charAt(i+1)>='0' && regex.charAt(i+1)<='3')? 3 : 2;
+			while (end-i<max && end+1<n && regex.charAt(end+1)>='0' && regex.charAt(end+1)<='7') end++;
+			break;
+		default:
+			//back references take as many digits as possible
+			if (e>='1' && e<='9')
+				while (end+1<n && regex.charAt(end+1)>='0' && regex.charAt(end+1)<='9') end++;
+		}
+		return (end<0 || end>=n)? -1 : end;
+	}
+
+	/**
+	 * @return all entries of the table, in selection order (empty if none)
+	 */
+	MappingEntry[] entries() {
+		if (localSelectionTable==null) return new MappingEntry[0];
+		return (MappingEntry[]) localSelectionTable.toArray(new MappingEntry[localSelectionTable.size()]);
+	}
+
 	String dump() {
 		StringBuffer sb = new StringBuffer();
 		sb.append("MAPPING SELECTION TABLE:\n");
+		sb.append("SELECTION RANGE: "+selectionRange+" bytes\n");
 		sb.append(localSelectionTable.toString());
 		return sb.toString();
 	}
@@ -0,0 +1,56 @@
+package com.reverseXSL.transform;
+
+import java.io.StringReader;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactoryConfigurationError;
+import javax.xml.transform.stream.StreamSource;
+
+/**
+ * A size-bounded cache of compiled XSL templates ({@link javax.xml.transform.Templates}), shared by all
+ * Transformer objects issued by the same {@link TransformerFactory}.
+ * <p>
+ * Compiling a stylesheet costs much more than applying it to a small message. Templates objects
+ * are thread-safe by JAXP contract, so a single compiled instance per XSL resource serves all
+ * Transformer objects, each of them deriving its own light-weight javax.xml.transform.Transformer
+ * with {@link Templates#newTransformer()}.
+ * </p>
+ * <p>
+ * Entries are keyed by resource name and recompiled whenever the XSL content changes, see
+ * {@link ResourceCache}. The get() method may also throw a {@link TransformerFactoryConfigurationError}.
+ * </p>
+ *
+ * @author bernardH
+ * @see TransformerFactory#getTemplatesCache()
+ */
+public final class TemplatesCache extends ResourceCache<Templates, TransformerConfigurationException> {
+
+	/**
+	 * Default count of compiled XSL templates kept in a cache.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 50;
+
+	// JAXP factories are not thread-safe: the compilation is synchronized on it
+	private javax.xml.transform.TransformerFactory xsltFactory = null;
+
+	/**
+	 * Creates an empty cache.
+	 * @param maxSize maximum count of compiled templates kept in cache, 0 to disable caching
+	 */
+	public TemplatesCache(int maxSize) {
+		super("XSL Templates", maxSize);
+	}
+
+	Templates build(String content) throws TransformerConfigurationException {
+		javax.xml.transform.TransformerFactory tf;
+		synchronized (this) {
+			if (xsltFactory == null) xsltFactory = javax.xml.transform.TransformerFactory.newInstance();
+			tf = xsltFactory;
+		}
+		synchronized (tf) {
+			return tf.newTemplates(new StreamSource(new StringReader(content)));
+		}
+	}
+
+}
@@ -0,0 +1,103 @@
+package com.reverseXSL.transform;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.reverseXSL.exception.FormattedMessage;
+
+/**
+ * The log of a single transformation, made of {@link TransformerMessage} entries.
+ * <p>
+ * Entries keep their message identifier and arguments, and are only formatted (resource bundle look-up and
+ * {@link java.text.MessageFormat}) when the log is actually read, e.g. with {@link Transformer#getLog()}.
+ * Nothing is formatted for the vast majority of messages whose log is never read.
+ * </p><p>
+ * The level, set with {@link TransformerFactory#setLogLevel(int)}, tells which entries are recorded at all:
+ * {@link #OFF} records none, {@link #STEPS} records the transformation steps, and {@link #DETAILS} (the default)
+ * also records every Parser exception and its cause.
+ * </p>
+ *
+ * @author bernardH
+ * @see Transformer#getTransformationLog()
+ */
+public final class TransformationLog {
+
+	/** no log at all */
+	public static final int OFF = 0;
+	/** transformation steps: bytes in and out, mapping selection, conversions, parsing and XSLT outcome */
+	public static final int STEPS = 1;
+	/** transformation steps plus the report of every Parser exception */
+	public static final int DETAILS = 2;
+
+	private static final String HEADER = "[com.reverseXSL.transform.Transformer] LOG:\n";
+
+	private final int level;
+	private final List<FormattedMessage> entries;
+
+	/**
+	 * @param level	{@link #OFF}, {@link #STEPS} or {@link #DETAILS}
+	 */
+	TransformationLog(int level) {
+		this.level = level;
+		this.entries = level > OFF ? new ArrayList<FormattedMessage>() : Collections.<FormattedMessage>emptyList();
+	}
+
+	/**
+	 * @param lvl	{@link #STEPS} or {@link #DETAILS}
+	 * @return true if entries of that level are recorded
+	 */
+	public boolean isEnabled(int lvl) {
+		return level >= lvl;
+	}
+
+	/**
+	 * @return the log level
+	 */
+	public int getLevel() {
+		return level;
+	}
+
+	/**
+	 * Records an entry of the {@link #STEPS} level.
+	 */
+	void add(FormattedMessage m) {
+		if (level >= STEPS) entries.add(m);
+	}
+
+	/**
+	 * Records an entry of the {@link #DETAILS} level.
+	 */
+	void addDetail(FormattedMessage m) {
+		if (level >= DETAILS) entries.add(m);
+	}
+
+	/**
+	 * @return the entries, not formatted, in sequence
+	 */
+	public List<FormattedMessage> getEntries() {
+		return Collections.unmodifiableList(entries);
+	}
+
+	/**
+	 * Formats the whole log.
+	 *
+	 * @return a new printable log
+	 */
+	public StringBuffer format() {
+		StringBuffer sb = new StringBuffer(HEADER.length() + entries.size() * 64);
+		sb.append(HEADER);
+		if (level == OFF) sb.append(new TransformerMessage.LogOff().getMessage());
+		for (int i = 0; i < entries.size(); i++)
+			sb.append(entries.get(i).getMessage());
+		return sb;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return format().toString();
+	}
+
+}
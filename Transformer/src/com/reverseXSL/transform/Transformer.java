@@ -1,9 +1,11 @@
 package com.reverseXSL.transform;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.LineNumberReader;
 import java.io.OutputStream;
 import java.io.StringReader;
 import java.io.StringWriter;
@@ -20,6 +22,7 @@ import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.FactoryConfigurationError;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Source;
 import javax.xml.transform.Templates;
 import javax.xml.transform.TransformerFactoryConfigurationError;
 import javax.xml.transform.dom.DOMSource;
@@ -59,10 +62,6 @@ public class Transformer {
 
 	private static final int MSG_COUNT_MODULO = 1000000;
 
-	private static final int MSG_SELECTION_RANGE = 1500; //tells how much bytes to look-up for a mapping selection pattern
-							//note that just below 1000 bytes are required to hit the SMI in a IATA message prefixed by a
-							//fully loaded type-B header
-
 	//argument message id chunks, working variables
 	String msg_id = null;
 	String msg_id_base = null;
@@ -72,7 +71,7 @@ public class Transformer {
 	// working variables
 	DecimalFormat msg_id_nb_format = null;
 	Date msg_date = null;
-	StringBuffer log;
+	TransformationLog log;
 	MappingEntry me = null;
 	String entryName;
 	Data data = null;
@@ -87,6 +86,12 @@ public class Transformer {
 	//the following must be reset at the beginning of every new transform() call
 	Parser parser;
 	
+	//metrics of the current transformation, when collected
+	TransformerMetrics metrics = null;
+	TransformerMetrics.Sample sample = null;
+	int currentStage;
+	long lap;
+	
 	protected Transformer(TransformerFactory.Resources res) {
 		super();
 		factory_resources = res;
@@ -153,12 +158,70 @@ public class Transformer {
 	public int transform(InputStream in, OutputStream out) 
 		throws IOException, TransformerException, ParserException, ParserConfigurationException, FactoryConfigurationError, TransformerFactoryConfigurationError, javax.xml.transform.TransformerException {
 
-		//Reset
+		newTransformation();
+		boolean done = false;
+		try {
+			//A. Load the message
+			data = new Data(in,factory_resources.getInputCharSet());
+			int parseErrors = transformData(out);
+			done = true;
+			return parseErrors;
+		} finally {
+			endTransformation(done);
+		}
+	}
+
+	/**
+	 * Transforms the message contained in a file, like {@link #transform(InputStream, OutputStream)}, but 
+	 * with the file memory-mapped instead of being read in memory.
+	 * <p>
+	 * The Mapping Selection only looks at the first bytes of the file, and message bytes are 
+	 * otherwise decoded on the fly when parsing: the file contents are not copied 
+	 * in the Java heap, making it possible to handle very large files. 
+	 * </p>
+	 * 
+	 * @param f		the input message file
+	 * @param out	writing transformed output bytes to FileOutputStream, ByteArrayOutputStream, PrintStream, other implementations
+	 * @return		count of Parser errors (still below {@link TransformerFactory#setParserExceptionThresholds(int, int) thresholds}, 
+	 * otherwise an exception is thrown)
+	 * @throws IOException	notably when the file cannot be opened or mapped
+	 * @throws ParserException see {@link #transform(InputStream, OutputStream)}
+	 * @throws TransformerException see {@link #transform(InputStream, OutputStream)}
+	 * @throws javax.xml.transform.TransformerException (XSLT related)
+	 * @throws TransformerFactoryConfigurationError  (XSLT related)
+	 * @throws FactoryConfigurationError  (XSLT related)
+	 * @throws ParserConfigurationException  (XSLT related)
+	 * @see com.reverseXSL.message.Data#Data(java.nio.channels.FileChannel, Charset)
+	 */
+	public int transform(File f, OutputStream out) 
+		throws IOException, TransformerException, ParserException, ParserConfigurationException, FactoryConfigurationError, TransformerFactoryConfigurationError, javax.xml.transform.TransformerException {
+
+		newTransformation();
+		boolean done = false;
+		try {
+			//A. Load the message, i.e. map it
+			FileInputStream fis = new FileInputStream(f);
+			try {
+				data = new Data(fis.getChannel(),factory_resources.getInputCharSet());
+			} finally {
+				fis.close(); //the mapping remains valid
+			}
+			int parseErrors = transformData(out);
+			done = true;
+			return parseErrors;
+		} finally {
+			endTransformation(done);
+		}
+	}
+
+	/**
+	 * Resets the Transformer state before a new transformation, and assigns the message ID.
+	 */
+	private void newTransformation() {
 		parser = null; 
-		int parseErrors = 0;
 		entryName = null;
 		me = null;
-		log = new StringBuffer("[com.reverseXSL.transform.Transformer] LOG:\n");
+		log = new TransformationLog(factory_resources.getLogLevel());
 		
 		msgID = new SimpleDateFormat("yyMMdd_HHmmss").format(new Date()); //default
 		if (msg_id!=null) msgID = msg_id;
@@ -166,21 +229,67 @@ public class Transformer {
 			msgID = msg_id_base + msg_id_nb_format.format(msg_id_count);
 			msg_id_count = ++msg_id_count % MSG_COUNT_MODULO;
 		}
+		
+		metrics = factory_resources.getMetrics();
+		if (metrics!=null) {
+			sample = new TransformerMetrics.Sample(msgID);
+			currentStage = TransformerMetrics.LOADING;
+			lap = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Ends the timing of the current transformation stage and starts that of the next one, when metrics are collected.
+	 * @param next	one of the stage constants of {@link TransformerMetrics}
+	 */
+	private void stage(int next) {
+		if (sample==null) return;
+		long now = System.nanoTime();
+		sample.addNanos(currentStage, now-lap);
+		currentStage = next;
+		lap = now;
+	}
+
+	/**
+	 * Completes the metrics of the transformation, if collected, and hands them over to the collector.
+	 * @param done	false if the transformation is failing with an exception
+	 */
+	private void endTransformation(boolean done) {
+		if (sample==null) return;
+		stage(currentStage);
+		TransformerMetrics.Sample s = sample;
+		sample = null;
+		if (me!=null) 
+			s.entryName = me.name!=null && me.name.length()>0? me.name : me.defResource.length()>0? me.defResource : me.xslResource;
+		if (data!=null) s.bytesIn = data.length();
+		if (!done) s.bytesOut = 0;
+		if (parser!=null) {
+			ExceptionListIterator eli = parser.exceptionIterator();
+			while (eli.hasNext()) s.addException(eli.nextException().getImpact());
+		}
+		s.failed = !done;
+		metrics.record(s);
+	}
+
+	/**
+	 * Transforms the message once loaded in {@link #data}: steps B to E of the transformation.
+	 */
+	private int transformData(OutputStream out) 
+		throws IOException, TransformerException, ParserException, ParserConfigurationException, FactoryConfigurationError, TransformerFactoryConfigurationError, javax.xml.transform.TransformerException {
 
-		//A. Load the message
-		data = new Data(in,factory_resources.getInputCharSet());
-		log.append(new TransformerMessage.LogBytesIn(data.length(),data.getFormat()));
+		int parseErrors = 0;
 
 		//B. Select Mapping
-			//conventionally take the first N bytes as range for message selection patterns
-			int l = Math.min(data.length(), MSG_SELECTION_RANGE);
-			byte[] ba = new byte[l];
-			System.arraycopy(data.getArray(), 0, ba,0,l); //getArray() is faster than getBytes() which makes yet another copy of the data
-	    String msgChunk = factory_resources.getInputCharSet().decode(ByteBuffer.wrap(ba)).toString();
+		stage(TransformerMetrics.SELECTION);
+			//conventionally take the first N bytes as range for message selection patterns, decoded once for identifying the data format as well
+			int range = factory_resources.getMappingSelectionRange();
+			int l = Math.min(data.length(), range);
+	    String msgChunk = data.sniff(range); //leaves the rest of a mapped file untouched
+		if (log.isEnabled(TransformationLog.STEPS)) log.add(new TransformerMessage.LogBytesIn(data.length(),data.getFormat()));
 		me = factory_resources.getMappingEntry(msgChunk);
 		if (me==null) {
 			entryName = null;
-			if (data.length()<MSG_SELECTION_RANGE)
+			if (data.length()<range)
 			throw new TransformerException.MappingSelectionFailure(
 						msgChunk.substring(0,Math.min(50,msgChunk.length()/2)).replace('\r','').replace('\n',''),
 						msgChunk.substring(Math.max(msgChunk.length()/2,msgChunk.length()-50),msgChunk.length()).replace('\r','').replace('\n',''),
@@ -192,68 +301,78 @@ public class Transformer {
 			
 			}
 		entryName = me.name;
-		log.append(new TransformerMessage.LogSelected_DEF_and_XSL(me.defResource,me.xslResource, entryName));		
+		log.add(new TransformerMessage.LogSelected_DEF_and_XSL(me.defResource,me.xslResource, entryName));		
 		
 		// set data conversions: those defined in mapping table entries OVERLOAD those of the transformer factory
 		int conversions = me.getConversions();
 		conversions = conversions>0? conversions:factory_resources.getConversions();
-		log.append(new TransformerMessage.LogSelected_Conversions(Data.namedTokens(conversions)));		
+		if (log.isEnabled(TransformationLog.STEPS)) log.add(new TransformerMessage.LogSelected_Conversions(Data.namedTokens(conversions)));		
 
 		//C. PARSE
 		if (me.defResource.length()>0) {
-			// load the definition
-			Definition def = new Definition();
-			def.loadDefinition( new LineNumberReader( factory_resources.get(me.defResource) ) );
+			stage(TransformerMetrics.PARSING);
+			// get the definition, loaded once and then shared via the factory cache
+			Definition def = factory_resources.getDefinition(me.defResource);
 			// create a parser
 			parser = new Parser( def, factory_resources.getMaxFatal(), factory_resources.getMaxTotal() );
 			//applicable namespace:
 			//remind that the namespace is exclusively from SET BASENAMESPACE in the DEF file
 			//other parameters:
 			parser.removeNonRepeatableNilOptionalElements( factory_resources.getRemoveNRNOElts() );
+			parser.setVerificationExecutor( factory_resources.getVerificationExecutor() );
 			// parse it, with possible data cleansing
-			parseErrors = parser.parse( msgID, data.getConvertedData( conversions ).toString(),0 );
+			stage(TransformerMetrics.CONVERSION);
+			String msg = data.getConvertedData( conversions ).toString();
+			stage(TransformerMetrics.PARSING);
+			parseErrors = parser.parse( msgID, msg, 0 );
+			msg = null;
 			
 			if (parseErrors>0) {
-				log.append(new TransformerMessage.GotParsingErrors(parseErrors,factory_resources.getMaxFatal(), factory_resources.getMaxTotal()));
-				log.append(new TransformerMessage.RecordedExceptions());
-				ListIterator iter = parser.exceptionIterator();
-				int i = 1;
-				ParserException e;
-				Exception c;
-				while (iter.hasNext()) {
-					e = (ParserException) iter.next();
-					log.append(new TransformerMessage.ExceptionReport(i,e));
-					c = (Exception) e.getCause();
-					if (c!=null) {
-						log.append(new TransformerMessage.CausedBy(c.getLocalizedMessage()));
+				log.add(new TransformerMessage.GotParsingErrors(parseErrors,factory_resources.getMaxFatal(), factory_resources.getMaxTotal()));
+				if (log.isEnabled(TransformationLog.DETAILS)) {
+					log.addDetail(new TransformerMessage.RecordedExceptions());
+					ListIterator iter = parser.exceptionIterator();
+					int i = 1;
+					ParserException e;
+					Exception c;
+					while (iter.hasNext()) {
+						e = (ParserException) iter.next();
+						log.addDetail(new TransformerMessage.ExceptionReport(i,e));
+						c = (Exception) e.getCause();
+						if (c!=null) {
+							log.addDetail(new TransformerMessage.CausedBy(c));
+						}
+						i++;
 					}
-					i++;
 				}
-				log.append(new TransformerMessage.TransformationContinues());
+				log.add(new TransformerMessage.TransformationContinues());
 
 			} else 
-				log.append(new TransformerMessage.ParsingOK());
-			//the next method inserts the parsed XML as a "very-long-line" into the message (minimal overheads)
-			output = parser.getXML( false, true ).getBuffer();
+				log.add(new TransformerMessage.ParsingOK());
+			//the parsed XML is never rendered here: it is either fed as SAX events into the XSL 
+			//transformation (step D), else written straight to the output stream (step E)
+			output = null;
 			outputFormat = DataFormat.XML;
 			
 		} else {
+			stage(TransformerMetrics.CONVERSION);
 			output = data.getConvertedData( conversions );
-			log.append(new TransformerMessage.NoParsing());
+			log.add(new TransformerMessage.NoParsing());
 		}
 
 
         //D. TRANSFORM
         //if (!freeSwMode && me.xslResource.length()>0) {
         if (me.xslResource.length()>0) {	
-        	// prepare
-        	javax.xml.transform.TransformerFactory tf = javax.xml.transform.TransformerFactory.newInstance();
-        	Templates tpl = tf.newTemplates( new StreamSource( factory_resources.get(me.xslResource) ) );
+        	stage(TransformerMetrics.XSLT);
+        	// prepare, with the XSL compiled once and then shared via the factory cache
+        	Templates tpl = factory_resources.getTemplates(me.xslResource);
         	javax.xml.transform.Transformer tr = tpl.newTransformer();
-        	StringWriter swOUT = new StringWriter( output.length() * 3 / 2 );
+        	StringWriter swOUT = new StringWriter( (output==null? data.length() : output.length()) * 3 / 2 );
         	
-        	// transform with XSL
-        	tr.transform( new StreamSource( new StringReader( output.toString() ) ), new StreamResult( swOUT ) );
+        	// transform with XSL, parsed messages being directly read from the parser as SAX events
+        	Source src = (output==null)? parser.getSAXSource( false, true ) : new StreamSource( new StringReader( output.toString() ) );
+        	tr.transform( src, new StreamResult( swOUT ) );
         	//when XSL transformation fails, exceptions are thrown
         	swOUT.close();
         	
@@ -261,19 +380,30 @@ public class Transformer {
         	output = swOUT.getBuffer();
         	outputFormat = Data.identify(output.substring(0,Math.min(100, output.length())).toString());
 
-        	log.append(new TransformerMessage.XsltOK());
+        	log.add(new TransformerMessage.XsltOK());
         } else
 			// log.append(freeSwMode?new TransformerMessage.NoXslt_FreeSW().getMessage():new TransformerMessage.NoXslt().getMessage());
-            log.append(new TransformerMessage.NoXslt().getMessage());
+            log.add(new TransformerMessage.NoXslt());
 
 
         //E. Output the result
 
-        	//all cases:
+        	if (output==null) {
+        		//parsed XML not transformed by XSL: generate it directly into the output stream
+        		stage(TransformerMetrics.XML);
+        		ByteCountingOutputStream cout = new ByteCountingOutputStream(out);
+        		parser.writeXML(cout, factory_resources.getOutputCharSet(), false, true);
+        		log.add(new TransformerMessage.LogBytesOut(cout.count,outputFormat));
+        		if (sample!=null) sample.bytesOut = cout.count;
+        		return parseErrors;
+        	}
+        	//all other cases:
+        	stage(TransformerMetrics.OUTPUT);
         	ByteBuffer bout = factory_resources.getOutputCharSet().encode(output.toString());
         	out.write(bout.array(),0,bout.limit()); 
         	
-		log.append(new TransformerMessage.LogBytesOut(bout.limit(),outputFormat));
+		log.add(new TransformerMessage.LogBytesOut(bout.limit(),outputFormat));
+		if (sample!=null) sample.bytesOut = bout.limit();
 		
         return parseErrors;
 	}
@@ -311,6 +441,34 @@ public class Transformer {
 				factory_resources.getXmlEOL()));
 		return errCnt;
 	}
+
+	/**
+	 * A variant of {@link #printableTransform(InputStream, StringBuffer)} reading the input message from a 
+	 * memory-mapped file, as {@link #transform(File, OutputStream)} does.
+	 *
+	 * @param f		the input message file
+	 * @param out	transformed output is now directed to a StringBuffer (printable!)
+	 * @return		count of Parser errors (still below {@link TransformerFactory#setParserExceptionThresholds(int, int) thresholds}, 
+	 * otherwise an exception is thrown)
+	 * @throws IOException
+	 * @throws ParserException 
+	 * @throws TransformerException 
+	 * @throws javax.xml.transform.TransformerException (XSLT related)
+	 * @throws TransformerFactoryConfigurationError  (XSLT related)
+	 * @throws FactoryConfigurationError  (XSLT related)
+	 * @throws ParserConfigurationException  (XSLT related)
+	 */
+	public int printableTransform(File f, StringBuffer out) 
+		throws IOException, TransformerException, ParserException, ParserConfigurationException, FactoryConfigurationError, TransformerFactoryConfigurationError, javax.xml.transform.TransformerException {
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream(); 
+		int errCnt = transform(f, baos);
+		baos.close();
+		out.append(Formatters.niceXML(new StringBuffer(baos.toString()),
+				factory_resources.getXmlIndent(),
+				factory_resources.getXmlEOL()));
+		return errCnt;
+	}
 	
 	
 	
@@ -332,19 +490,30 @@ public class Transformer {
 	 * @see java.lang.Object#toString()
 	 */
 	public String toString() {
-		if (log==null) log = new StringBuffer();
-		log.append(factory_resources.toString());
-		if (parser.getExceptionsCount()>0) log.append(parser.toString());
-		return log.toString();
+		StringBuffer sb = (log==null)? new StringBuffer() : log.format();
+		sb.append(factory_resources.toString());
+		if (parser!=null && parser.getExceptionsCount()>0) sb.append(parser.toString());
+		return sb.toString();
 	}
 	
 	/**
 	 * get a printable log of the Transformer activities during the last
 	 * call to {@link #transform(InputStream, OutputStream)}. Parser warnings are also detailed.
+	 * <p>The log is formatted with each call, as per the {@link TransformerFactory#setLogLevel(int) log level}.</p>
 	 * 
-	 * @return	textual log in a StringBuffer
+	 * @return	textual log in a new StringBuffer, or null if no transformation yet performed
 	 */
 	public StringBuffer getLog() {
+		return log==null? null : log.format();
+	}
+
+	/**
+	 * get the log of the last transformation as a list of message entries, not yet formatted.
+	 * 
+	 * @return the log, or null if no transformation yet performed
+	 * @see #getLog()
+	 */
+	public TransformationLog getTransformationLog() {
 		return log;
 	}
 
@@ -451,5 +620,20 @@ public class Transformer {
 		return sWout.toString();
 	}
 
+	//pass-through output stream that counts the bytes written, for the log
+	private static final class ByteCountingOutputStream extends FilterOutputStream {
+		int count = 0;
+		ByteCountingOutputStream(OutputStream out) {
+			super(out);
+		}
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
 
 }
@@ -82,6 +82,16 @@ public class TransformerException extends FormattedException {
 			super("R006",null,new String[]{startBit,endBit,mstName,Integer.toString(lgth)});
 		}
 	}
+	/**
+	 * R007 Failed to compile XSL template [{0}] selected at line [{1}] of the Mapping Selection Table! {2}
+	 */
+	public static class TemplateWarmUpFailure extends TransformerException {
+		private static final long serialVersionUID = -4021786934507702853L;
+
+		public TemplateWarmUpFailure(String xslResource, int lineNb, Throwable cause) {
+			super("R007",cause,new String[]{xslResource,Integer.toString(lineNb),cause.getMessage()});
+		}
+	}
 	
 	
 
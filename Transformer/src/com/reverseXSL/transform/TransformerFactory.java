@@ -8,10 +8,17 @@ import java.io.Reader;
 import java.io.StringReader;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.concurrent.ExecutorService;
 import java.util.jar.JarFile;
 import java.util.zip.ZipEntry;
 
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+
 import com.reverseXSL.message.Data;
+import com.reverseXSL.message.MessageSplitter;
+import com.reverseXSL.parser.Definition;
+import com.reverseXSL.parser.ParserException;
 import com.reverseXSL.transform.MappingSelection.MappingEntry;
 
 /**
@@ -70,7 +77,16 @@ public final class TransformerFactory {
 	private JarFile _jarfile;
 	private Reader _myDEF;
 	private Reader _myXSL;
+	private String _myDEFText;
+	private String _myXSLText;
 	private String _classpathExtension;
+	private DefinitionCache _defCache = new DefinitionCache(DefinitionCache.DEFAULT_MAX_SIZE);
+	private TemplatesCache _xslCache = new TemplatesCache(TemplatesCache.DEFAULT_MAX_SIZE);
+	private boolean _warmUpTemplates = false;
+	private MappingSelection _warmedUpMst = null;
+	private TransformerMetrics _metrics = null;
+	private int _logLevel = TransformationLog.DETAILS;
+	private ExecutorService _verificationExecutor = null;
 
 	/**
 	 * This is a wrapper class with accessors for all properties of a
@@ -89,6 +105,20 @@ public final class TransformerFactory {
 			return _mst.matchEntry(msgChunk);
 		}
 
+		int getMappingSelectionRange() {
+			return _mst.getSelectionRange();
+		}
+
+		Definition getDefinition(String resourceName) throws IOException,
+				ParserException {
+			return _defCache.get(resourceName, get(resourceName));
+		}
+
+		Templates getTemplates(String resourceName) throws IOException,
+				TransformerConfigurationException {
+			return _xslCache.get(resourceName, get(resourceName));
+		}
+
 		int getMaxFatal() {
 			return _maxFatalParserExceptions;
 		}
@@ -125,6 +155,18 @@ public final class TransformerFactory {
 			return _conversion_flags;
 		}
 
+		TransformerMetrics getMetrics() {
+			return _metrics;
+		}
+
+		int getLogLevel() {
+			return _logLevel;
+		}
+
+		ExecutorService getVerificationExecutor() {
+			return _verificationExecutor;
+		}
+
 		/*
 		 * (non-Javadoc) A quick dump of what resources are used (where do they
 		 * come from)
@@ -142,6 +184,8 @@ public final class TransformerFactory {
 			else
 				sb.append("CLASSPATH;\n");
 			sb.append("     Mapping Selection Table: " + _mst_source + "\n");
+			sb.append("     " + _defCache.toString() + "\n");
+			sb.append("     " + _xslCache.toString() + "\n");
 			// sb.append(_mst.toString()+"\n\n");
 			return sb.toString();
 		}
@@ -219,6 +263,7 @@ public final class TransformerFactory {
 						.getReaderFromClassLoader(resourceName);
 			}
 		};
+		warmUpTemplates(res);
 		Transformer t = new Transformer(res);
 		return t;
 	}
@@ -256,7 +301,8 @@ public final class TransformerFactory {
 					sb.append(ca, 0, nbin);
 			} while (nbin > 0);
 			// and convert to a String reader (in memory!)
-			_myDEF = new StringReader(sb.toString());
+			_myDEFText = sb.toString();
+			_myDEF = new StringReader(_myDEFText);
 		}
 		sb = new StringBuffer();
 		if (myXSLT == null)
@@ -269,31 +315,31 @@ public final class TransformerFactory {
 					sb.append(ca, 0, nbin);
 			} while (nbin > 0);
 			// and convert to a String reader (in memory!)
-			_myXSL = new StringReader(sb.toString());
+			_myXSLText = sb.toString();
+			_myXSL = new StringReader(_myXSLText);
 		}
 
 		// create an empty Mapping Selection Table for building a MappingEntry
 		// inner class with always the same DEF and XSL
 		this._mst = new MappingSelection();
+		final MappingEntry presetEntry = _mst.new MappingEntry(".*", "",
+				_myDEF == null ? "" : "PreSET_DEF", _myXSL == null ? ""
+						: "PreSET_XSL", "PRESET",
+				"DEF and XSL sources as preSet in TransformerFactory", 0);
 		Resources res = new Resources() {
 			// overload the matching process
 			MappingEntry getMappingEntry(String msgChunk) {
-				return _mst.new MappingEntry(".*", "", _myDEF == null ? ""
-						: "PreSET_DEF", _myXSL == null ? "" : "PreSET_XSL",
-						"PRESET",
-						"DEF and XSL sources as preSet in TransformerFactory",
-						0);
+				presetEntry.select(msgChunk); // always true, counts the hit
+				return presetEntry;
 			}
 
+			// a fresh StringReader with every call such that concurrent
+			// Transformers never share the same reader position
 			Reader get(String resourceName) throws IOException {
-				if (resourceName.equals("PreSET_DEF")) {
-					_myDEF.reset();
-					return _myDEF;
-				}
-				if (resourceName.equals("PreSET_XSL")) {
-					_myXSL.reset();
-					return _myXSL;
-				}
+				if (resourceName.equals("PreSET_DEF"))
+					return new StringReader(_myDEFText);
+				if (resourceName.equals("PreSET_XSL"))
+					return new StringReader(_myXSLText);
 				return null;
 			}
 		};
@@ -340,10 +386,141 @@ public final class TransformerFactory {
 				return TransformerFactory.this.getReaderFromJar(resourceName);
 			}
 		};
+		warmUpTemplates(res);
 		Transformer t = new Transformer(res);
 		return t;
 	}
 
+	/*
+	 * Compiles (into the factory cache) all XSL templates listed in the current
+	 * mapping selection table, once per table, if so requested via
+	 * setTemplatesWarmUp(true)
+	 */
+	private void warmUpTemplates(Resources res) throws IOException,
+			TransformerException {
+		if (!_warmUpTemplates || _mst == null || _warmedUpMst == _mst)
+			return;
+		MappingEntry[] entries = _mst.entries();
+		for (int i = 0; i < entries.length; i++) {
+			if (entries[i].xslResource.length() == 0)
+				continue;
+			try {
+				res.getTemplates(entries[i].xslResource);
+			} catch (TransformerConfigurationException tce) {
+				throw new TransformerException.TemplateWarmUpFailure(
+						entries[i].xslResource, entries[i].sourceLineNb, tce);
+			}
+		}
+		_warmedUpMst = _mst;
+	}
+
+	/**
+	 * Instantiates a service that executes many transformations in parallel on
+	 * the supplied executor, with all resources loaded from the CLASSPATH like
+	 * {@link #newTransformer()}.
+	 * 
+	 * @param executor
+	 *            the executor running transformations, left under the control
+	 *            of the caller (e.g. a fixed thread pool, or a virtual thread
+	 *            per task executor on JVMs that support them)
+	 * @return a concurrent transformation service
+	 * @throws IOException
+	 * @throws TransformerException
+	 * @see ConcurrentTransformer
+	 */
+	public ConcurrentTransformer newConcurrentTransformer(
+			ExecutorService executor) throws IOException, TransformerException {
+		return newConcurrentTransformer(newTransformer(), executor);
+	}
+
+	/**
+	 * Instantiates a service that executes many transformations in parallel on
+	 * a pool of worker threads of its own, with all resources loaded from the
+	 * CLASSPATH like {@link #newTransformer()}. The pool is released with
+	 * {@link ConcurrentTransformer#shutdown()}.
+	 * 
+	 * @param nThreads
+	 *            count of worker threads, or 0 for one per available
+	 *            processor
+	 * @return a concurrent transformation service
+	 * @throws IOException
+	 * @throws TransformerException
+	 * @see ConcurrentTransformer
+	 */
+	public ConcurrentTransformer newConcurrentTransformer(int nThreads)
+			throws IOException, TransformerException {
+		return new ConcurrentTransformer(newTransformer().factory_resources,
+				ConcurrentTransformer.newDefaultExecutor(nThreads), true);
+	}
+
+	/**
+	 * Instantiates a service that executes many transformations in parallel,
+	 * with the same resources as the given Transformer, which may have been
+	 * obtained from any of the newTransformer() methods (CLASSPATH, JAR, or
+	 * preset DEF and XSL).
+	 * 
+	 * @param prototype
+	 *            a Transformer from this factory, only used as reference to
+	 *            the resources
+	 * @param executor
+	 *            the executor running transformations, left under the control
+	 *            of the caller; or null to create a pool of worker threads,
+	 *            one per available processor, released with
+	 *            {@link ConcurrentTransformer#shutdown()}
+	 * @return a concurrent transformation service
+	 * @see ConcurrentTransformer
+	 */
+	public ConcurrentTransformer newConcurrentTransformer(
+			Transformer prototype, ExecutorService executor) {
+		if (executor == null)
+			return new ConcurrentTransformer(prototype.factory_resources,
+					ConcurrentTransformer.newDefaultExecutor(0), true);
+		return new ConcurrentTransformer(prototype.factory_resources,
+				executor, false);
+	}
+
+	/**
+	 * Instantiates a service that transforms streams of concatenated messages
+	 * in the calling thread, with all resources loaded from the CLASSPATH
+	 * like {@link #newTransformer()}.
+	 * 
+	 * @param splitter
+	 *            tells how to detect message boundaries, e.g.
+	 *            {@link MessageSplitter#TYPEB_ENVELOPES}
+	 * @return a batch transformation service
+	 * @throws IOException
+	 * @throws TransformerException
+	 * @see BatchTransformer
+	 */
+	public BatchTransformer newBatchTransformer(MessageSplitter splitter)
+			throws IOException, TransformerException {
+		return newBatchTransformer(newTransformer(), splitter, null);
+	}
+
+	/**
+	 * Instantiates a service that transforms streams of concatenated
+	 * messages, with the same resources as the given Transformer, which may
+	 * have been obtained from any of the newTransformer() methods (CLASSPATH,
+	 * JAR, or preset DEF and XSL).
+	 * 
+	 * @param prototype
+	 *            a Transformer from this factory, only used as reference to
+	 *            the resources
+	 * @param splitter
+	 *            tells how to detect message boundaries
+	 * @param executor
+	 *            the executor running transformations in parallel with the
+	 *            splitting of the input, left under the control of the
+	 *            caller; or null to transform messages in the calling thread
+	 * @return a batch transformation service
+	 * @see BatchTransformer
+	 */
+	public BatchTransformer newBatchTransformer(Transformer prototype,
+			MessageSplitter splitter, ExecutorService executor) {
+		return new BatchTransformer(prototype.factory_resources, splitter,
+				executor);
+	}
+
 	private Reader getReaderFromJar(String resourceName) throws IOException {
 		ZipEntry ze = this._jarfile.getEntry(resourceName);
 		if (ze == null)
@@ -439,6 +616,124 @@ public final class TransformerFactory {
 		this._mst_source = "supplied via TransformerFactory API as Input Stream Reader";
 	}
 
+	/**
+	 * Lists the entries of the Mapping Selection Table in use, in selection
+	 * order, notably for monitoring how many messages each entry has selected
+	 * ({@link MappingEntry#getHits()}).
+	 * 
+	 * @return the table entries, empty when no table has been loaded yet or
+	 *         the DEF and XSL are preset
+	 */
+	public MappingEntry[] getMappingSelectionEntries() {
+		if (_mst == null)
+			return new MappingEntry[0];
+		return _mst.entries();
+	}
+
+	/**
+	 * Gives access to the cache of parsing DEFinitions shared by all Transformer
+	 * objects from this factory, notably for monitoring hit/miss/eviction
+	 * counters and for invalidating entries upon hot redeploys of DEF files.
+	 * 
+	 * @return the factory DEFinition cache
+	 * @see DefinitionCache
+	 */
+	public DefinitionCache getDefinitionCache() {
+		return _defCache;
+	}
+
+	/**
+	 * Gives access to the cache of compiled XSL templates shared by all
+	 * Transformer objects from this factory, notably for monitoring
+	 * hit/miss/eviction counters and for invalidating entries upon hot
+	 * redeploys of XSL files.
+	 * 
+	 * @return the factory XSL templates cache
+	 * @see TemplatesCache
+	 */
+	public TemplatesCache getTemplatesCache() {
+		return _xslCache;
+	}
+
+	/**
+	 * Sets how much of every transformation is logged, as returned by
+	 * {@link Transformer#getLog()}. Log entries are anyway only formatted when
+	 * the log is read. The default is {@link TransformationLog#DETAILS}.
+	 * 
+	 * @param level
+	 *            {@link TransformationLog#OFF} to save the log overhead
+	 *            altogether, {@link TransformationLog#STEPS} to only log the
+	 *            transformation steps, or {@link TransformationLog#DETAILS} to
+	 *            also log every Parser exception
+	 */
+	public void setLogLevel(int level) {
+		_logLevel = Math.max(TransformationLog.OFF, Math.min(TransformationLog.DETAILS, level));
+	}
+
+	/**
+	 * Sets the collector of performance metrics of all transformations made
+	 * by Transformer objects from this factory, including concurrent and batch
+	 * transformations: time spent per stage, byte counts, Parser exception
+	 * counts, and selected mapping entry. The default is null, i.e. no metrics.
+	 * 
+	 * @param metrics
+	 *            the collector, e.g. a {@link HistogramMetrics}, or null to
+	 *            stop collecting metrics
+	 */
+	public void setMetrics(TransformerMetrics metrics) {
+		_metrics = metrics;
+	}
+
+	/**
+	 * @return the collector of performance metrics, or null if none
+	 * @see #setMetrics(TransformerMetrics)
+	 */
+	public TransformerMetrics getMetrics() {
+		return _metrics;
+	}
+
+	/**
+	 * Sets the maximum count of compiled XSL templates kept in cache by the
+	 * factory. The default is {@link TemplatesCache#DEFAULT_MAX_SIZE}.
+	 * 
+	 * @param maxSize
+	 *            maximum count of cached templates, 0 to disable caching (XSL
+	 *            files are then recompiled with every transform)
+	 */
+	public void setTemplatesCacheSize(int maxSize) {
+		_xslCache.setMaxSize(maxSize);
+	}
+
+	/**
+	 * Tells to compile all XSL templates listed in the Mapping Selection Table
+	 * as soon as the table is loaded, that is, with the next call to one of
+	 * the newTransformer() methods, instead of on first use by a message. XSL
+	 * compilation errors are then reported upfront as a
+	 * {@link TransformerException}. The default is FALSE.
+	 * <p>
+	 * Note that the cache size ({@link #setTemplatesCacheSize(int)}) shall be
+	 * large enough to hold all templates listed in the table.
+	 * </p>
+	 * 
+	 * @param bool
+	 *            whether or not to warm-up the XSL templates cache
+	 */
+	public void setTemplatesWarmUp(boolean bool) {
+		_warmUpTemplates = bool;
+	}
+
+	/**
+	 * Sets the maximum count of loaded parsing DEFinitions kept in cache by the
+	 * factory. The default is {@link DefinitionCache#DEFAULT_MAX_SIZE}.
+	 * 
+	 * @param maxSize
+	 *            maximum count of cached Definition objects, 0 to disable
+	 *            caching (DEF files are then reloaded with every transform)
+	 */
+	public void setDefinitionCacheSize(int maxSize) {
+		_defCache.setMaxSize(maxSize);
+	}
+
 	/**
 	 * Sets specific Parser tolerance to input message syntax errors. Every
 	 * element of syntax definition for a given message in a Parser DEF file is
@@ -494,6 +789,23 @@ public final class TransformerFactory {
 		this._removeNRNOElts = bool;
 	}
 
+	/**
+	 * Would cause (if set non-null) the Parser to verify occurences and named
+	 * conditions in parallel, once the whole message is matched. This is only
+	 * worth for very large messages; results are identical to the sequential
+	 * verification. The executor may be shared by all transformers, and is not
+	 * shut down by the factory.
+	 * <p>
+	 * The default value is null, i.e. sequential verification.
+	 * 
+	 * @param executor
+	 *            the executor running the Parser verification tasks, or null
+	 * @see com.reverseXSL.parser.Parser#setVerificationExecutor(ExecutorService)
+	 */
+	public void setParserVerificationExecutor(ExecutorService executor) {
+		this._verificationExecutor = executor;
+	}
+
 	/**
 	 * Sets the pattern of chars that will be repeated at each depth level to
 	 * indent the printable-XML output. Only applicable to
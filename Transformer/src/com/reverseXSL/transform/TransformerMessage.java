@@ -88,9 +88,24 @@ public class TransformerMessage extends FormattedMessage {
 	 */
 	public static class CausedBy extends TransformerMessage {
 		private static final long serialVersionUID = 1967809153418881708L;
+		private final Throwable cause;
 		
 		public CausedBy(String causeDescr) {
 			super("M_caused_by",new String[] {causeDescr});
+			cause = null;
+		}
+
+		/**
+		 * The cause description is only worked out when the message is formatted.
+		 */
+		public CausedBy(Throwable cause) {
+			super("M_caused_by",null);
+			this.cause = cause;
+		}
+
+		public Object[] getArguments() {
+			if (cause==null) return super.getArguments();
+			return new String[] {cause.getLocalizedMessage()};
 		}
 	}
 
@@ -99,9 +114,20 @@ public class TransformerMessage extends FormattedMessage {
 	 */
 	public static class ExceptionReport extends TransformerMessage {
 		private static final long serialVersionUID = 2391281301606649911L;
+		private final int rank;
+		private final ParserException pe;
 
+		/**
+		 * The exception message is only formatted when this message is.
+		 */
 		public ExceptionReport(int rank,ParserException pe) {
-			super("M_exception_report",new String[] {Integer.toString(rank),pe.getMessage()});
+			super("M_exception_report",null);
+			this.rank = rank;
+			this.pe = pe;
+		}
+
+		public Object[] getArguments() {
+			return new String[] {Integer.toString(rank),pe.getMessage()};
 		}
 	}
 
@@ -164,6 +190,18 @@ public class TransformerMessage extends FormattedMessage {
 	}
 
 	
+	/**
+	 * M_log_off = Transformation log is off
+	 */
+	public static class LogOff extends TransformerMessage {
+		private static final long serialVersionUID = -4403645787353386021L;
+
+		public LogOff() {
+			super("M_log_off",new String[0]);
+		}
+	}
+
+	
 	/**
 	 * M_ignore_XSLT = (XSL Transformation skipped by the Free Software version)
 	 */
@@ -0,0 +1,141 @@
+package com.reverseXSL.transform;
+
+import com.reverseXSL.types.Impact;
+
+/**
+ * Service Provider Interface for collecting performance metrics of message transformations.
+ * <p>
+ * An implementation set with {@link TransformerFactory#setMetrics(TransformerMetrics)} receives one
+ * {@link TransformerMetrics.Sample} per call to Transformer.transform(), from all Transformer objects of
+ * the factory, including those used by concurrent and batch transformers. Implementations must thus be
+ * thread-safe, and should be quick: they are called in the transformation thread.
+ * </p><p>
+ * A sample tells the wall time spent in each transformation stage, from {@link #LOADING} to {@link #OUTPUT}.
+ * Stages that are skipped for a given message (e.g. no XSLT) take no time. Note that when an XSL
+ * transformation follows parsing, the parsed XML is fed as SAX events into the XSLT, and its generation
+ * is then accounted in the {@link #XSLT} stage; likewise, parsed XML that is not transformed is written
+ * straight to the output stream, in the {@link #XML} stage.
+ * </p>
+ *
+ * @author bernardH
+ * @see HistogramMetrics
+ */
+public interface TransformerMetrics {
+
+	/** stage A: reading (or mapping) the input message */
+	int LOADING = 0;
+	/** stage B: matching the message against the Mapping Selection Table */
+	int SELECTION = 1;
+	/** data conversions of the input, and decoding into characters */
+	int CONVERSION = 2;
+	/** stage C: parsing, including the loading of the DEFinition when not cached */
+	int PARSING = 3;
+	/** generation of the parsed XML, when not transformed by XSL */
+	int XML = 4;
+	/** stage D: XSL transformation, including the compilation of the XSL when not cached */
+	int XSLT = 5;
+	/** stage E: encoding and writing the output */
+	int OUTPUT = 6;
+
+	/**
+	 * Stage names, indexed by stage.
+	 */
+	String[] STAGES = {"loading", "selection", "conversion", "parsing", "xml", "xslt", "output"};
+
+	/**
+	 * Records the metrics of one transformation.
+	 *
+	 * @param s	the measures of a completed or failed transformation, not to be modified
+	 */
+	void record(Sample s);
+
+	/**
+	 * The measures of one message transformation.
+	 */
+	final class Sample {
+		private final long[] nanos = new long[STAGES.length];
+		private final int[] exceptions = new int[Impact.table.length];
+		String messageID;
+		String entryName = null;
+		long bytesIn = 0;
+		long bytesOut = 0;
+		boolean failed = true;
+
+		Sample(String messageID) {
+			this.messageID = messageID;
+		}
+
+		void addNanos(int stage, long n) {
+			nanos[stage] += n;
+		}
+
+		void addException(String impact) {
+			for (int i = 0; i < Impact.table.length; i++)
+				if (Impact.table[i].toString().equals(impact)) exceptions[i]++;
+		}
+
+		/**
+		 * @return the message ID used in traces and in the parsed XML
+		 */
+		public String getMessageID() {
+			return messageID;
+		}
+
+		/**
+		 * @return the name of the Mapping Selection Table entry that was selected, else its DEF (or XSL) resource
+		 * for an entry without name, or null when no entry was selected
+		 */
+		public String getEntryName() {
+			return entryName;
+		}
+
+		/**
+		 * @param stage	one of the stage constants, {@link #LOADING} to {@link #OUTPUT}
+		 * @return the wall time spent in the stage, in nanoseconds
+		 */
+		public long getNanos(int stage) {
+			return nanos[stage];
+		}
+
+		/**
+		 * @return the wall time of the whole transformation, in nanoseconds
+		 */
+		public long getTotalNanos() {
+			long t = 0;
+			for (int i = 0; i < nanos.length; i++) t += nanos[i];
+			return t;
+		}
+
+		/**
+		 * @return the input message size in bytes, 0 if it could not be loaded
+		 */
+		public long getBytesIn() {
+			return bytesIn;
+		}
+
+		/**
+		 * @return the size of the output in bytes, 0 upon failure
+		 */
+		public long getBytesOut() {
+			return bytesOut;
+		}
+
+		/**
+		 * @param impact	{@link Impact#FATAL} or {@link Impact#WARNING}
+		 * @return count of Parser exceptions with the given impact, as recorded before completion or failure
+		 */
+		public int getExceptionsCount(Impact impact) {
+			for (int i = 0; i < Impact.table.length; i++)
+				if (Impact.table[i].equals(impact)) return exceptions[i];
+			return 0;
+		}
+
+		/**
+		 * @return true when the transformation threw an exception
+		 */
+		public boolean isFailed() {
+			return failed;
+		}
+	}
+
+}